@@ -23,6 +23,11 @@ import es.ucm.fdi.tp.basecode.bgame.model.Game;
 import es.ucm.fdi.tp.basecode.bgame.model.GameError;
 import es.ucm.fdi.tp.basecode.bgame.model.Piece;
 import es.ucm.fdi.tp.basecode.connectN.ConnectNFactory;
+import es.ucm.fdi.tp.basecode.mcts.MCTS;
+import es.ucm.fdi.tp.basecode.minmax.IterativeDeepening;
+import es.ucm.fdi.tp.basecode.minmax.MinMax;
+import es.ucm.fdi.tp.basecode.minmax.ParallelMinMax;
+import es.ucm.fdi.tp.basecode.minmax.TranspositionTable;
 import es.ucm.fdi.tp.basecode.ttt.TicTacToeFactory;
 
 /**
@@ -133,6 +138,39 @@ public class Main {
 		}
 	}
 
+	/**
+	 * The algorithms that automatic players can use.
+	 * <p>
+	 * Algoritmos que pueden usar los jugadores automaticos.
+	 */
+	enum AlgorithmForAIPlayer {
+		NONE("none", "No AI Algorithm"), MINMAX("minmax", "MinMax"), MINMAXAB("ab",
+				"MinMax with Alpha-Beta Prunning"), PARALLELAB("pab",
+						"Parallel MinMax with Alpha-Beta Prunning"), MCTS("mcts", "Monte Carlo Tree Search"), ITERATIVE("id",
+								"Iterative Deepening MinMax with Alpha-Beta Prunning");
+
+		private String id;
+		private String desc;
+
+		AlgorithmForAIPlayer(String id, String desc) {
+			this.id = id;
+			this.desc = desc;
+		}
+
+		public String getId() {
+			return id;
+		}
+
+		public String getDesc() {
+			return desc;
+		}
+
+		@Override
+		public String toString() {
+			return id;
+		}
+	}
+
 	/**
 	 * Default game to play.
 	 * <p>
@@ -154,6 +192,39 @@ public class Main {
 	 */
 	final private static PlayerMode DEFAULT_PLAYERMODE = PlayerMode.MANUAL;
 
+	/**
+	 * Default algorithm for automatic players.
+	 * <p>
+	 * Algoritmo por defecto de los jugadores automaticos.
+	 */
+	final private static AlgorithmForAIPlayer DEFAULT_AIALG = AlgorithmForAIPlayer.MINMAXAB;
+
+	/**
+	 * Default depth of the MinMax search of automatic players.
+	 * <p>
+	 * Profundidad por defecto de la busqueda MinMax de los jugadores
+	 * automaticos.
+	 */
+	final private static int DEFAULT_MINMAX_DEPTH = 3;
+
+	/**
+	 * Default number of playouts per move of the Monte Carlo Tree Search of
+	 * automatic players.
+	 * <p>
+	 * Numero por defecto de simulaciones por movimiento de la busqueda Monte
+	 * Carlo de los jugadores automaticos.
+	 */
+	final private static int DEFAULT_MCTS_PLAYOUTS = 10000;
+
+	/**
+	 * Default time per move, in milliseconds, of the iterative deepening search
+	 * of automatic players.
+	 * <p>
+	 * Tiempo por defecto por movimiento, en milisegundos, de la busqueda en
+	 * profundidad iterativa de los jugadores automaticos.
+	 */
+	final private static long DEFAULT_MOVE_TIME = 1000;
+
 	/**
 	 * This field includes a game factory that is constructed after parsing the
 	 * command-line arguments. Depending on the game selected with the -g option
@@ -231,12 +302,24 @@ public class Main {
 	private static Integer dimCols;
 
 	/**
-	 * The algorithm to be used by the automatic player. Not used so far, it is
-	 * always {@code null}.
+	 * Number of pieces in a row that win, provided as a third component of
+	 * the option -d ({@code null} if not provided).
 	 * 
 	 * <p>
-	 * Algoritmo a utilizar por el jugador automatico. Actualmente no se
-	 * utiliza, por lo que siempre es {@code null}.
+	 * Numero de fichas en linea que ganan, proporcionado como tercer
+	 * componente de la opcion -d, o {@code null} si no se incluye.
+	 */
+	private static Integer dimLine;
+
+	/**
+	 * The algorithm to be used by the automatic player, selected with the
+	 * options -aialg, -md, -mp, -mt, -mn and -tt, or {@code null} to make
+	 * random moves.
+	 * 
+	 * <p>
+	 * Algoritmo a utilizar por el jugador automatico, seleccionado con las
+	 * opciones -aialg, -md, -mp, -mt, -mn y -tt, o {@code null} para hacer
+	 * movimientos aleatorios.
 	 */
 	private static AIAlgorithm aiPlayerAlg;
 
@@ -270,6 +353,18 @@ public class Main {
 																// --multiviews
 		cmdLineOptions.addOption(constructPlayersOption()); // -p or --players
 		cmdLineOptions.addOption(constructDimensionOption()); // -d or --dim
+		cmdLineOptions.addOption(constructAIAlgOption()); // -aialg or
+																// --ai-algorithm
+		cmdLineOptions.addOption(constructMinMaxDepthOption()); // -md or
+																	// --minmax-depth
+		cmdLineOptions.addOption(constructMCTSPlayoutsOption()); // -mp or
+																	// --mcts-playouts
+		cmdLineOptions.addOption(constructMoveTimeOption()); // -mt or
+																// --move-time
+		cmdLineOptions.addOption(constructMoveNodesOption()); // -mn or
+																// --move-nodes
+		cmdLineOptions.addOption(constructTableSizeOption()); // -tt or
+																// --table-size
 
 		// parse the command line as provided in args
 		//
@@ -281,6 +376,7 @@ public class Main {
 			parseGameOption(line);
 			parseViewOption(line);
 			parseMultiViewOption(line);
+			parseAIAlgOption(line);
 			parsePlayersOptions(line);
 
 			// if there are some remaining arguments, then something wrong is
@@ -524,8 +620,8 @@ public class Main {
 			gameFactory = new AdvancedTTTFactory();
 			break;
 		case CONNECTN:
-			if (dimRows != null && dimCols != null && dimRows == dimCols) {
-				gameFactory = new ConnectNFactory(dimRows);
+			if (dimRows != null && dimCols != null && dimRows.equals(dimCols)) {
+				gameFactory = new ConnectNFactory(dimRows, dimLine != null ? dimLine : dimRows);
 			} else {
 				gameFactory = new ConnectNFactory();
 			}
@@ -551,18 +647,18 @@ public class Main {
 	 */
 	private static Option constructDimensionOption() {
 		return new Option("d", "dim", true,
-				"The board size (if allowed by the selected game). It must has the form ROWSxCOLS.");
+				"The board size (if allowed by the selected game). It must has the form ROWSxCOLS, or ROWSxCOLSxK to set the number of pieces in a row that win in ConnectN.");
 	}
 
 	/**
 	 * Parses the dimension option (-d or --dim). It sets the value of
-	 * {@link #dimRows} and {@link #dimCols} accordingly. The dimension is
-	 * ROWSxCOLS.
+	 * {@link #dimRows}, {@link #dimCols} and {@link #dimLine} accordingly.
+	 * The dimension is ROWSxCOLS or ROWSxCOLSxK.
 	 * 
 	 * <p>
 	 * Extrae la opcion dimension (-d). Asigna el valor de los atributos
-	 * {@link #dimRows} and {@link #dimCols}. La dimension es de la forma
-	 * ROWSxCOLS.
+	 * {@link #dimRows}, {@link #dimCols} y {@link #dimLine}. La dimension es
+	 * de la forma ROWSxCOLS o ROWSxCOLSxK.
 	 * 
 	 * @param line
 	 *            CLI {@link CommandLine} object.
@@ -576,9 +672,12 @@ public class Main {
 		if (dimVal != null) {
 			try {
 				String[] dim = dimVal.split("x");
-				if (dim.length == 2) {
+				if (dim.length == 2 || dim.length == 3) {
 					dimRows = Integer.parseInt(dim[0]);
 					dimCols = Integer.parseInt(dim[1]);
+					if (dim.length == 3) {
+						dimLine = Integer.parseInt(dim[2]);
+					}
 				} else {
 					throw new ParseException("Invalid dimension: " + dimVal);
 				}
@@ -589,6 +688,220 @@ public class Main {
 
 	}
 
+	/**
+	 * Builds the AI algorithm (-aialg or --ai-algorithm) CLI option.
+	 * 
+	 * <p>
+	 * Construye la opcion CLI -aialg.
+	 * 
+	 * @return CLI {@link {@link Option} for the AI algorithm option.
+	 *         <p>
+	 *         Objeto {@link Option} de esta opcion.
+	 */
+	private static Option constructAIAlgOption() {
+		String optionInfo = "The algorithm to be used by the automatic players ( ";
+		for (AlgorithmForAIPlayer i : AlgorithmForAIPlayer.values()) {
+			optionInfo += i.getId() + " [for " + i.getDesc() + "] ";
+		}
+		optionInfo += "). By defualt, " + DEFAULT_AIALG.getId() + ".";
+		Option opt = new Option("aialg", "ai-algorithm", true, optionInfo);
+		opt.setArgName("algorithm identifier");
+		return opt;
+	}
+
+	/**
+	 * Builds the MinMax depth (-md or --minmax-depth) CLI option.
+	 * 
+	 * <p>
+	 * Construye la opcion CLI -md.
+	 * 
+	 * @return CLI {@link {@link Option} for the MinMax depth option.
+	 *         <p>
+	 *         Objeto {@link Option} de esta opcion.
+	 */
+	private static Option constructMinMaxDepthOption() {
+		Option opt = new Option("md", "minmax-depth", true,
+				"The number of moves that MinMax looks ahead. By default, " + DEFAULT_MINMAX_DEPTH + ".");
+		opt.setArgName("depth");
+		return opt;
+	}
+
+	/**
+	 * Builds the MCTS playouts (-mp or --mcts-playouts) CLI option.
+	 * 
+	 * <p>
+	 * Construye la opcion CLI -mp.
+	 * 
+	 * @return CLI {@link {@link Option} for the MCTS playouts option.
+	 *         <p>
+	 *         Objeto {@link Option} de esta opcion.
+	 */
+	private static Option constructMCTSPlayoutsOption() {
+		Option opt = new Option("mp", "mcts-playouts", true,
+				"The number of playouts per move of MCTS. By default, " + DEFAULT_MCTS_PLAYOUTS + ".");
+		opt.setArgName("playouts");
+		return opt;
+	}
+
+	/**
+	 * Builds the time per move (-mt or --move-time) CLI option.
+	 * 
+	 * <p>
+	 * Construye la opcion CLI -mt.
+	 * 
+	 * @return CLI {@link {@link Option} for the time per move option.
+	 *         <p>
+	 *         Objeto {@link Option} de esta opcion.
+	 */
+	private static Option constructMoveTimeOption() {
+		Option opt = new Option("mt", "move-time", true,
+				"The milliseconds per move of the iterative deepening search. By default, " + DEFAULT_MOVE_TIME
+						+ ", or no limit if a number of nodes is given.");
+		opt.setArgName("milliseconds");
+		return opt;
+	}
+
+	/**
+	 * Builds the nodes per move (-mn or --move-nodes) CLI option.
+	 * 
+	 * <p>
+	 * Construye la opcion CLI -mn.
+	 * 
+	 * @return CLI {@link {@link Option} for the nodes per move option.
+	 *         <p>
+	 *         Objeto {@link Option} de esta opcion.
+	 */
+	private static Option constructMoveNodesOption() {
+		Option opt = new Option("mn", "move-nodes", true,
+				"The nodes per move of the iterative deepening search. By default, no limit.");
+		opt.setArgName("nodes");
+		return opt;
+	}
+
+	/**
+	 * Builds the transposition table size (-tt or --table-size) CLI option.
+	 * 
+	 * <p>
+	 * Construye la opcion CLI -tt.
+	 * 
+	 * @return CLI {@link {@link Option} for the transposition table size
+	 *         option.
+	 *         <p>
+	 *         Objeto {@link Option} de esta opcion.
+	 */
+	private static Option constructTableSizeOption() {
+		Option opt = new Option("tt", "table-size", true,
+				"The MB of the transposition table of the parallel and iterative deepening searches. By default, "
+						+ ParallelMinMax.DEFAULT_TABLE_SIZE + ".");
+		opt.setArgName("megabytes");
+		return opt;
+	}
+
+	/**
+	 * Parses the AI algorithm options (-aialg, -md, -mp, -mt, -mn and -tt). It
+	 * sets the value of {@link #aiPlayerAlg} accordingly.
+	 * 
+	 * <p>
+	 * Extrae las opciones de algoritmo (-aialg, -md, -mp, -mt, -mn y -tt).
+	 * Asigna el valor del atributo {@link #aiPlayerAlg}.
+	 * 
+	 * @param line
+	 *            CLI {@link CommandLine} object.
+	 * @throws ParseException
+	 *             If an invalid value is provided (the valid algorithms are
+	 *             those of {@link AlgorithmForAIPlayer}).
+	 *             <p>
+	 *             Si se proporciona un valor invalido (los algoritmos validos
+	 *             son los de {@link AlgorithmForAIPlayer}).
+	 */
+	private static void parseAIAlgOption(CommandLine line) throws ParseException {
+		String algVal = line.getOptionValue("aialg", DEFAULT_AIALG.getId());
+		AlgorithmForAIPlayer selectedAlg = null;
+
+		for (AlgorithmForAIPlayer a : AlgorithmForAIPlayer.values()) {
+			if (a.getId().equals(algVal)) {
+				selectedAlg = a;
+				break;
+			}
+		}
+
+		if (selectedAlg == null) {
+			throw new ParseException("Uknown AI algorithm '" + algVal + "'");
+		}
+
+		int depth = DEFAULT_MINMAX_DEPTH;
+		String depthVal = line.getOptionValue("md");
+		if (depthVal != null) {
+			try {
+				depth = Integer.parseInt(depthVal);
+			} catch (NumberFormatException e) {
+				throw new ParseException("Invalid MinMax depth: " + depthVal);
+			}
+			if (depth < 1) {
+				throw new ParseException("Invalid MinMax depth: " + depthVal + " (it must be at least 1)");
+			}
+		}
+
+		int playouts = DEFAULT_MCTS_PLAYOUTS;
+		String playoutsVal = line.getOptionValue("mp");
+		if (playoutsVal != null) {
+			try {
+				playouts = Integer.parseInt(playoutsVal);
+			} catch (NumberFormatException e) {
+				throw new ParseException("Invalid number of playouts: " + playoutsVal);
+			}
+		}
+
+		long time = DEFAULT_MOVE_TIME;
+		long nodes = 0;
+		String timeVal = line.getOptionValue("mt");
+		String nodesVal = line.getOptionValue("mn");
+		try {
+			if (nodesVal != null) {
+				nodes = Long.parseLong(nodesVal);
+				time = 0;
+			}
+			if (timeVal != null) {
+				time = Long.parseLong(timeVal);
+			}
+		} catch (NumberFormatException e) {
+			throw new ParseException("Invalid budget per move: " + timeVal + " ms, " + nodesVal + " nodes");
+		}
+
+		TranspositionTable table = null;
+		String tableVal = line.getOptionValue("tt");
+		if (tableVal != null) {
+			try {
+				table = new TranspositionTable(Integer.parseInt(tableVal));
+			} catch (NumberFormatException e) {
+				throw new ParseException("Invalid size of the transposition table: " + tableVal);
+			}
+		}
+
+		switch (selectedAlg) {
+		case NONE:
+			aiPlayerAlg = null;
+			break;
+		case MINMAX:
+			aiPlayerAlg = new MinMax(depth, false);
+			break;
+		case MINMAXAB:
+			aiPlayerAlg = new MinMax(depth);
+			break;
+		case PARALLELAB:
+			aiPlayerAlg = new ParallelMinMax(depth, Runtime.getRuntime().availableProcessors(), table);
+			break;
+		case MCTS:
+			aiPlayerAlg = new MCTS(playouts);
+			break;
+		case ITERATIVE:
+			aiPlayerAlg = new IterativeDeepening(time, nodes, table);
+			break;
+		default:
+			throw new UnsupportedOperationException("Something went wrong! This program point should be unreachable!");
+		}
+	}
+
 	/**
 	 * Builds the help (-h or --help) CLI option.
 	 * 
@@ -669,6 +982,7 @@ public class Main {
 		}
 
 		c.start();
+		releaseAIAlgorithm();
 	}
 
 	/**
@@ -714,6 +1028,23 @@ public class Main {
 		}
 
 		c.start();
+		releaseAIAlgorithm();
+	}
+
+	/**
+	 * Releases the threads of the AI algorithm, if it has any, once the game
+	 * is over.
+	 * 
+	 * <p>
+	 * Libera los hilos del algoritmo de IA, si tiene, una vez terminado el
+	 * juego.
+	 */
+	private static void releaseAIAlgorithm() {
+		if (aiPlayerAlg instanceof ParallelMinMax) {
+			((ParallelMinMax) aiPlayerAlg).shutdown();
+		} else if (aiPlayerAlg instanceof MCTS) {
+			((MCTS) aiPlayerAlg).shutdown();
+		}
 	}
 
 	/**
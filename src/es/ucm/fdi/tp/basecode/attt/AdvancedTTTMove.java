@@ -59,16 +59,31 @@ public class AdvancedTTTMove extends ConnectNMove {
 	public void execute(Board board, List<Piece> pieces) {
 		Piece p = getPiece();
 
-		if (board.getPieceCount(p) <= 0) {
+		if (board.getPieceCountValue(p) <= 0) {
 			throw new GameError("There are no pieces of type " + p + " available");
 		} else if (board.getPosition(row, col) != null) {
 			throw new GameError("Position (" + row + "," + col + ") is already occupied");
 		} else {
 			board.setPosition(row, col, p);
-			board.setPieceCount(p, board.getPieceCount(p) - 1);
+			board.addPieceCount(p, -1);
+			executed = true;
 		}
 	}
 
+	/**
+	 * Removes the piece placed by {@link #execute(Board, List)} and gives it
+	 * back to the player.
+	 * 
+	 * <p>
+	 * Quita la ficha colocada por {@link #execute(Board, List)} y se la
+	 * devuelve al jugador.
+	 */
+	@Override
+	public void undo(Board board, List<Piece> pieces) {
+		super.undo(board, pieces);
+		board.addPieceCount(getPiece(), 1);
+	}
+
 	@Override
 	protected GameMove createMove(int row, int col, Piece p) {
 		return new AdvancedTTTMove(row, col, p);
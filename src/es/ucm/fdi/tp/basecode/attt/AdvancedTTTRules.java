@@ -3,10 +3,12 @@ package es.ucm.fdi.tp.basecode.attt;
 import java.util.List;
 
 import es.ucm.fdi.tp.basecode.bgame.model.Board;
-import es.ucm.fdi.tp.basecode.bgame.model.FiniteRectBoard;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
 import es.ucm.fdi.tp.basecode.bgame.model.Pair;
 import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+import es.ucm.fdi.tp.basecode.bgame.model.TurnRotation;
 import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
+import es.ucm.fdi.tp.basecode.connectN.ConnectNBoard;
 import es.ucm.fdi.tp.basecode.ttt.TicTacToeRules;
 
 /**
@@ -25,7 +27,7 @@ public class AdvancedTTTRules extends TicTacToeRules {
 
 	@Override
 	public Board createBoard(List<Piece> playersPieces) {
-		Board b = new FiniteRectBoard(3, 3);
+		Board b = new ConnectNBoard(3);
 		for (Piece p : playersPieces) {
 			b.setPieceCount(p, 3);
 		}
@@ -34,19 +36,14 @@ public class AdvancedTTTRules extends TicTacToeRules {
 
 	@Override
 	public Piece nextPlayer(Board board, List<Piece> playersPieces, Piece lastPlayer) {
-		List<Piece> pieces = playersPieces;
-		int numPieces = pieces.size();
-
-		int i = pieces.indexOf(lastPlayer);
-		int j = (i + 1) % numPieces;
-		while (i != j && board.getPieceCount(pieces.get(j)) == 0) {
-			j = (j + 1) % numPieces;
-		}
-		if (j != i) {
-			return pieces.get(j);
-		} else {
-			return null;
+		int playable = 0;
+		for (int i = 0; i < playersPieces.size(); i++) {
+			Piece p = playersPieces.get(i);
+			if (p != lastPlayer && canPlace(board, p)) {
+				playable |= 1 << i;
+			}
 		}
+		return TurnRotation.next(playersPieces, lastPlayer, playable);
 	}
 
 	@Override
@@ -61,4 +58,33 @@ public class AdvancedTTTRules extends TicTacToeRules {
 		}
 	}
 
+
+	/**
+	 * A player without pieces left has no moves.
+	 * <p>
+	 * Un jugador al que no le quedan fichas no tiene movimientos.
+	 */
+	@Override
+	protected boolean canPlace(Board board, Piece turn) {
+		return board.getPieceCountValue(turn) > 0;
+	}
+
+	/**
+	 * Each player has at most 3 pieces, so lines that need more pieces than
+	 * the player has left are not counted by the evaluation.
+	 * <p>
+	 * Cada jugador tiene como mucho 3 fichas, por lo que la evaluacion no
+	 * cuenta las lineas que necesitan mas fichas de las que le quedan al
+	 * jugador.
+	 */
+	@Override
+	protected int piecesLeft(Board board, Piece p) {
+		return board.getPieceCountValue(p);
+	}
+
+	@Override
+	protected GameMove createMove(int row, int col, Piece p) {
+		return new AdvancedTTTMove(row, col, p);
+	}
+
 }
@@ -0,0 +1,77 @@
+package es.ucm.fdi.tp.basecode.bgame.control;
+
+import java.util.List;
+
+import es.ucm.fdi.tp.basecode.bgame.model.AIAlgorithm;
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * Class that implements an AI player by delegating its decisions to an
+ * {@link AIAlgorithm} given in the construction, e.g., MinMax. Unlike
+ * {@link DummyAIPlayer}, it does not wait: the time it takes is the time
+ * the algorithm spends searching.
+ *
+ * <p>
+ * Clase que implementa un jugador con IA delegando sus decisiones en un
+ * {@link AIAlgorithm} dado en la constructora, por ejemplo MinMax. A
+ * diferencia de {@link DummyAIPlayer}, no espera: el tiempo que tarda es el
+ * que el algoritmo dedica a buscar.
+ */
+public class AIPlayer extends Player {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The algorithm that chooses the moves.
+	 * <p>
+	 * Algoritmo que elige los movimientos.
+	 */
+	private final AIAlgorithm alg;
+
+	/**
+	 * Constructs an AI player.
+	 * <p>
+	 * Construye un jugador con IA.
+	 *
+	 * @param alg
+	 *            The algorithm that chooses the moves.
+	 *            <p>
+	 *            Algoritmo que elige los movimientos.
+	 */
+	public AIPlayer(AIAlgorithm alg) {
+		this.alg = alg;
+	}
+
+	/**
+	 * Consults the algorithm that chooses the moves.
+	 * <p>
+	 * Devuelve el algoritmo que elige los movimientos.
+	 */
+	public AIAlgorithm getAlgorithm() {
+		return alg;
+	}
+
+	/**
+	 * Asks {@link #alg} for a move for {@code p}. The board is the read-only
+	 * board of the game, the algorithm works on its own copies.
+	 * 
+	 * <p>
+	 * Pide a {@link #alg} un movimiento para {@code p}. El tablero es el
+	 * tablero de solo lectura de la partida, el algoritmo trabaja sobre sus
+	 * propias copias.
+	 * 
+	 * @return The move chosen by the algorithm, or {@code null} if it found
+	 *         none.
+	 *         <p>
+	 *         El movimiento elegido por el algoritmo, o {@code null} si no
+	 *         encontro ninguno.
+	 */
+	@Override
+	public GameMove requestMove(Piece p, Board board, List<Piece> pieces, GameRules rules) {
+		return alg.getMove(p, board, pieces, rules);
+	}
+
+}
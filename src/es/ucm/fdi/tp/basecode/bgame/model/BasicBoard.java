@@ -1,16 +1,20 @@
 package es.ucm.fdi.tp.basecode.bgame.model;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * 
  * An abstract board that implements the piece-count mechanism of the interface
- * {@link Board}.
+ * {@link Board}. The piece-counts are kept in an {@code int} array indexed by
+ * the ordinal of the pieces (see {@link PieceRegistry}), so consulting or
+ * updating a counter neither hashes nor boxes.
  *
  * <p>
  * Tablero abstracto que implementa un mecanismo contador de fichas del interfaz
- * {@link Board} usando un {@link HashMap}.
+ * {@link Board}. Los contadores se guardan en un array de {@code int} indexado
+ * por el ordinal de las fichas (vease {@link PieceRegistry}), por lo que
+ * consultar o modificar un contador no calcula hashes ni crea objetos
+ * {@link Integer}.
  *
  */
 public abstract class BasicBoard implements Board {
@@ -21,11 +25,40 @@ public abstract class BasicBoard implements Board {
 	private static final long serialVersionUID = 1L;
 
 	/**
-	 * A {@link Map} to store the piece-count.
+	 * The value stored in {@link #pieceCount} for pieces whose piece-count has
+	 * been deleted.
+	 * 
+	 * <p>
+	 * Valor que se guarda en {@link #pieceCount} para las fichas cuyo contador
+	 * se ha eliminado.
+	 */
+	private static final int NO_COUNT = Integer.MIN_VALUE;
+
+	/**
+	 * The piece-counts, indexed by {@link Piece#getOrdinal()}. It grows when a
+	 * piece with a larger ordinal gets a piece-count. Ordinals depend on the
+	 * execution, so it is serialized keyed by piece identifier (see
+	 * {@link #writeObject(java.io.ObjectOutputStream)}).
+	 * 
 	 * <p>
-	 * {@link Map} para almacenar los contadores de fichas.
+	 * Los contadores de fichas, indexados por {@link Piece#getOrdinal()}. Crece
+	 * cuando una ficha con un ordinal mayor recibe un contador. Los ordinales
+	 * dependen de la ejecucion, por lo que se serializa por identificador de
+	 * ficha (vease {@link #writeObject(java.io.ObjectOutputStream)}).
 	 */
-	private Map<Piece, Integer> pieceCount;
+	private transient int[] pieceCount;
+
+	/**
+	 * The Zobrist hash of the cells of the board (see {@link Zobrist}).
+	 * Subclasses keep it updated by calling
+	 * {@link #updateZobristKey(int, Piece, Piece)}.
+	 * 
+	 * <p>
+	 * El hash de Zobrist de las casillas del tablero (vease {@link Zobrist}).
+	 * Las subclases lo mantienen actualizado llamando a
+	 * {@link #updateZobristKey(int, Piece, Piece)}.
+	 */
+	private long zobristKey;
 
 	/**
 	 * The default constructor. Should be called by subclasses to initialize the
@@ -36,7 +69,7 @@ public abstract class BasicBoard implements Board {
 	 * inicializar la tabla de contadores de fichas.
 	 */
 	public BasicBoard() {
-		this.pieceCount = new HashMap<Piece, Integer>();
+		this.pieceCount = new int[0];
 	}
 
 	/**
@@ -58,21 +91,241 @@ public abstract class BasicBoard implements Board {
 	 *            Tablero al que se deben copiar los datos.
 	 */
 	protected void copyTo(BasicBoard board) {
-		board.pieceCount = new HashMap<Piece, Integer>(pieceCount);
+		board.pieceCount = pieceCount.clone();
+		board.zobristKey = zobristKey;
+	}
+
+	/**
+	 * Updates the Zobrist hash when the piece at a cell changes. Must be
+	 * called by subclasses every time they modify a cell.
+	 * 
+	 * <p>
+	 * Actualiza el hash de Zobrist cuando cambia la ficha de una casilla. Las
+	 * subclases deben llamarlo cada vez que modifican una casilla.
+	 * 
+	 * @param cell
+	 *            Linear index of the cell ({@code row*cols+col}).
+	 * @param oldPiece
+	 *            The piece that was at the cell, or {@code null}.
+	 * @param newPiece
+	 *            The piece that is now at the cell, or {@code null}.
+	 */
+	protected void updateZobristKey(int cell, Piece oldPiece, Piece newPiece) {
+		if (oldPiece != newPiece) {
+			zobristKey ^= Zobrist.cellKey(oldPiece, cell) ^ Zobrist.cellKey(newPiece, cell);
+		}
+	}
+
+	@Override
+	public long getZobristKey(Piece turn) {
+		return zobristKey ^ Zobrist.turnKey(turn);
+	}
+
+	/**
+	 * Consults the position of a piece in the piece-count table, that is, its
+	 * ordinal (see {@link PieceRegistry}).
+	 * 
+	 * <p>
+	 * Devuelve la posicion de una ficha en la tabla de contadores, es decir,
+	 * su ordinal (vease {@link PieceRegistry}).
+	 * 
+	 * @param p
+	 *            The piece.
+	 * @param add
+	 *            If {@code true}, the table grows when it is too small for the
+	 *            ordinal of {@code p}.
+	 * @return The ordinal of {@code p}, or -1 if it is not in the table and
+	 *         {@code add} is {@code false}.
+	 */
+	private int ordinalOf(Piece p, boolean add) {
+		int i = p.getOrdinal();
+		if (i < pieceCount.length) {
+			return i;
+		}
+		if (!add) {
+			return -1;
+		}
+		int n = pieceCount.length;
+		pieceCount = Arrays.copyOf(pieceCount, i + 1);
+		Arrays.fill(pieceCount, n, pieceCount.length, NO_COUNT);
+		return i;
+	}
+
+	/**
+	 * Writes the piece-counts as pairs of piece identifier and count, since
+	 * the ordinals of the pieces are not the same in another execution.
+	 * 
+	 * <p>
+	 * Escribe los contadores de fichas como pares de identificador de ficha y
+	 * contador, ya que los ordinales de las fichas no son los mismos en otra
+	 * ejecucion.
+	 */
+	private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+		out.defaultWriteObject();
+		int n = 0;
+		for (int c : pieceCount) {
+			if (c != NO_COUNT) {
+				n++;
+			}
+		}
+		out.writeInt(n);
+		for (int i = 0; i < pieceCount.length; i++) {
+			if (pieceCount[i] != NO_COUNT) {
+				out.writeObject(PieceRegistry.idOf(i));
+				out.writeInt(pieceCount[i]);
+			}
+		}
+	}
+
+	/**
+	 * Rebuilds the piece-counts with the ordinals of this execution.
+	 * <p>
+	 * Reconstruye los contadores de fichas con los ordinales de esta
+	 * ejecucion.
+	 */
+	private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		pieceCount = new int[0];
+		int n = in.readInt();
+		for (int k = 0; k < n; k++) {
+			Piece p = new Piece((String) in.readObject());
+			setPieceCount(p, in.readInt());
+		}
 	}
 
 	@Override
 	public void setPieceCount(Piece p, Integer n) {
-		if (n == null)
-			pieceCount.remove(p); // if the pieces count is null we remove it!
-		else
-			pieceCount.put(p, n); // otherwise we update the table
+		if (n == null) {
+			// if the pieces count is null we remove it!
+			int i = ordinalOf(p, false);
+			if (i >= 0)
+				pieceCount[i] = NO_COUNT;
+		} else {
+			// otherwise we update the table (ordinalOf might replace the array,
+			// so it must be called first)
+			int i = ordinalOf(p, true);
+			pieceCount[i] = n;
+		}
 	}
 
 	@Override
 	public Integer getPieceCount(Piece p) {
-		return pieceCount.get(p); // if there is no piece-count the HashMap will
-									// return null
+		int i = ordinalOf(p, false);
+		if (i < 0 || pieceCount[i] == NO_COUNT) {
+			return null;
+		} else {
+			return pieceCount[i];
+		}
+	}
+
+	@Override
+	public int getPieceCountValue(Piece p) {
+		int i = ordinalOf(p, false);
+		if (i < 0 || pieceCount[i] == NO_COUNT) {
+			return 0;
+		} else {
+			return pieceCount[i];
+		}
+	}
+
+	@Override
+	public void addPieceCount(Piece p, int delta) {
+		int i = ordinalOf(p, true);
+		if (pieceCount[i] == NO_COUNT) {
+			pieceCount[i] = delta;
+		} else {
+			pieceCount[i] += delta;
+		}
+	}
+
+	/**
+	 * Counts the empty cells walking the whole board. Subclasses that keep
+	 * track of their empty cells should override it.
+	 * 
+	 * <p>
+	 * Cuenta las casillas vacias recorriendo todo el tablero. Las subclases
+	 * que llevan la cuenta de sus casillas vacias deberian sobrescribirlo.
+	 */
+	@Override
+	public int getNumOfEmptyCells() {
+		int n = 0;
+		for (int r = 0; r < getRows(); r++) {
+			for (int c = 0; c < getCols(); c++) {
+				if (getPosition(r, c) == null) {
+					n++;
+				}
+			}
+		}
+		return n;
+	}
+
+	/**
+	 * Looks for the {@code k}-th empty cell in row order walking the board.
+	 * Subclasses that keep track of their empty cells should override it.
+	 * 
+	 * <p>
+	 * Busca la {@code k}-esima casilla vacia, por filas, recorriendo el
+	 * tablero. Las subclases que llevan la cuenta de sus casillas vacias
+	 * deberian sobrescribirlo.
+	 */
+	@Override
+	public int getEmptyCell(int k) {
+		int n = k;
+		for (int r = 0; r < getRows(); r++) {
+			for (int c = 0; c < getCols(); c++) {
+				if (getPosition(r, c) == null && n-- == 0) {
+					return r * getCols() + c;
+				}
+			}
+		}
+		throw new GameError("There is no empty cell number " + k);
+	}
+
+	/**
+	 * Generates a string that represents the board. The symbols used to print
+	 * the board are the first characters of the piece identifier.
+	 * 
+	 * <p>
+	 * Genera un string que representa el tablero. El simbolo utilizado para
+	 * cada ficha es el primer caracter de su id.
+	 * 
+	 * @return A string representation of the board.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder render = new StringBuilder();
+
+		int height = getRows();
+		int width = getCols();
+
+		for (int r = 0; r < height; ++r) {
+
+			render.append("  +");
+			for (int c = 0; c < width; ++c)
+				render.append("---+");
+			render.append("\n");
+			render.append("" + (r % 10) + " |");
+
+			for (int c = 0; c < width; ++c) {
+				if (getPosition(r, c) == null) {
+					render.append("   |");
+				} else {
+					render.append(" " + getPosition(r, c).toString().charAt(0) + " |");
+				}
+			} // for columns
+			render.append("\n");
+		} // for rows
+
+		render.append("  +");
+		for (int c = 0; c < width; ++c)
+			render.append("---+");
+		render.append("\n");
+		render.append("   ");
+		for (int c = 0; c < width; ++c)
+			render.append(" " + (c % 10) + "  ");
+		render.append("\n");
+
+		return render.toString();
 	}
 
 }
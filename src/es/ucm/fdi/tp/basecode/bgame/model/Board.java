@@ -180,6 +180,47 @@ public interface Board extends java.io.Serializable {
 	 */
 	public Integer getPieceCount(Piece p);
 
+	/**
+	 * Same as {@link #getPieceCount(Piece)}, but returns an {@code int}, which
+	 * avoids boxing in the inner loops of the rules.
+	 * 
+	 * <p>
+	 * Igual que {@link #getPieceCount(Piece)}, pero devuelve un {@code int},
+	 * lo que evita crear objetos {@link Integer} en los bucles internos de las
+	 * reglas.
+	 * 
+	 * @param p
+	 *            The piece whose piece-count is consulted.
+	 *            <p>
+	 *            Ficha para la que se quiere obtener el contador.
+	 * 
+	 * @return The piece-count of {@code p}, or 0 if {@code p} has no
+	 *         piece-count.
+	 *         <p>
+	 *         Valor del contador para {@code p}, o 0 si no se dispone de
+	 *         contador para {@code p}.
+	 */
+	public int getPieceCountValue(Piece p);
+
+	/**
+	 * Adds {@code delta} to the piece-count of {@code p}. If {@code p} has no
+	 * piece-count, it is set to {@code delta}.
+	 * 
+	 * <p>
+	 * Suma {@code delta} al contador de fichas de tipo {@code p}. Si no hay
+	 * contador para {@code p}, se le asigna {@code delta}.
+	 * 
+	 * @param p
+	 *            The piece whose piece-count is modified.
+	 *            <p>
+	 *            Ficha cuyo contador se modifica.
+	 * @param delta
+	 *            The amount to add (it can be negative).
+	 *            <p>
+	 *            Cantidad a sumar (puede ser negativa).
+	 */
+	public void addPieceCount(Piece p, int delta);
+
 	/**
 	 * Generates a fresh copy of the board. This is used when we want simulate
 	 * (in automatic players) what would happen when applying a given move, but
@@ -196,4 +237,70 @@ public interface Board extends java.io.Serializable {
 	 * 
 	 */
 	public Board copy();
+
+	/**
+	 * Consults the Zobrist hash of the board (see {@link Zobrist}), which
+	 * covers the piece at each cell and the player to move. It is maintained
+	 * incrementally when cells change, so this method is O(1). Boards with the
+	 * same pieces at the same cells, and the same player to move, have the same
+	 * hash. It can be used as a key for transposition tables, repetition
+	 * detection, position caches, etc.
+	 * 
+	 * <p>
+	 * Devuelve el hash de Zobrist del tablero (vease {@link Zobrist}), que
+	 * tiene en cuenta la ficha de cada casilla y el jugador al que le toca
+	 * mover. Se mantiene de forma incremental cuando cambian las casillas, por
+	 * lo que este metodo es O(1). Tableros con las mismas fichas en las mismas
+	 * casillas, y el mismo jugador por mover, tienen el mismo hash. Se puede
+	 * utilizar como clave en tablas de transposicion, deteccion de
+	 * repeticiones, caches de posiciones, etc.
+	 * 
+	 * @param turn
+	 *            The piece of the player to move, or {@code null} to hash only
+	 *            the cells.
+	 *            <p>
+	 *            Ficha del jugador al que le toca mover, o {@code null} para
+	 *            tener en cuenta solo las casillas.
+	 * @return The 64-bit hash of the board.
+	 *         <p>
+	 *         El hash de 64 bits del tablero.
+	 */
+	public long getZobristKey(Piece turn);
+
+	/**
+	 * Consults the number of empty cells of the board.
+	 * 
+	 * <p>
+	 * Devuelve el numero de casillas vacias del tablero.
+	 * 
+	 * @return The number of empty cells.
+	 *         <p>
+	 *         Numero de casillas vacias.
+	 */
+	public int getNumOfEmptyCells();
+
+	/**
+	 * Consults the {@code k}-th empty cell of the board, in an order that
+	 * depends on the implementation and may change when the board is
+	 * modified. Calling it with {@code k} chosen uniformly in
+	 * [0,{@link #getNumOfEmptyCells()}) samples the empty cells uniformly,
+	 * which boards that keep a set of empty cells do in O(1).
+	 * 
+	 * <p>
+	 * Devuelve la {@code k}-esima casilla vacia del tablero, en un orden que
+	 * depende de la implementacion y que puede cambiar cuando se modifica el
+	 * tablero. Llamarlo con {@code k} elegido uniformemente en
+	 * [0,{@link #getNumOfEmptyCells()}) elige una casilla vacia de forma
+	 * uniforme, lo que los tableros que mantienen un conjunto de casillas
+	 * vacias hacen en O(1).
+	 * 
+	 * @param k
+	 *            A number between 0 and {@link #getNumOfEmptyCells()} - 1.
+	 *            <p>
+	 *            Un numero entre 0 y {@link #getNumOfEmptyCells()} - 1.
+	 * @return The linear index ({@code row*cols+col}) of the cell.
+	 *         <p>
+	 *         Indice lineal ({@code row*cols+col}) de la casilla.
+	 */
+	public int getEmptyCell(int k);
 }
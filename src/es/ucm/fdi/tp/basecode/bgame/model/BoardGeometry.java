@@ -0,0 +1,267 @@
+package es.ucm.fdi.tp.basecode.bgame.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The neighbourhood of every cell of a rectangular board of a given dimension:
+ * for each cell (as a linear index {@code row*cols+col}) the cells at distance
+ * 1 and at distance 2 in the infinite norm, that is, the targets of Ataxx
+ * clones and jumps. Geometries never change, so there is a single instance
+ * per dimension, obtained with {@link #of(int, int)} and shared by all the
+ * boards, rules, moves and players of that dimension.
+ *
+ * <p>
+ * La vecindad de cada casilla de un tablero rectangular de una dimension
+ * dada: para cada casilla (como indice lineal {@code row*cols+col}) las
+ * casillas a distancia 1 y a distancia 2 en la norma infinito, es decir, los
+ * destinos de las clonaciones y los saltos de Ataxx. Las geometrias no
+ * cambian, por lo que hay una unica instancia por dimension, que se obtiene
+ * con {@link #of(int, int)} y que comparten todos los tableros, reglas,
+ * movimientos y jugadores de esa dimension.
+ */
+public class BoardGeometry implements java.io.Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The geometries created so far, indexed by {@code rows} and {@code cols}
+	 * packed in a {@code long}.
+	 *
+	 * <p>
+	 * Geometrias creadas hasta el momento, indexadas por {@code rows} y
+	 * {@code cols} empaquetados en un {@code long}.
+	 */
+	private static final ConcurrentMap<Long, BoardGeometry> cache = new ConcurrentHashMap<Long, BoardGeometry>();
+
+	private final int rows;
+	private final int cols;
+
+	/**
+	 * The padded layout of the same dimension (see {@link PaddedLayout}).
+	 * <p>
+	 * Disposicion con borde de la misma dimension (vease
+	 * {@link PaddedLayout}).
+	 */
+	private final PaddedLayout layout;
+
+	/**
+	 * For each cell, the cells at distance 1 and 2, in increasing order.
+	 * <p>
+	 * Para cada casilla, las casillas a distancia 1 y 2, en orden creciente.
+	 */
+	private final int[][] ring1;
+	private final int[][] ring2;
+
+	/**
+	 * The same neighbourhoods as bit masks of {@code ceil(rows*cols/64)}
+	 * words, built the first time they are requested.
+	 *
+	 * <p>
+	 * Las mismas vecindades como mascaras de bits de
+	 * {@code ceil(rows*cols/64)} palabras, que se construyen la primera vez
+	 * que se piden.
+	 */
+	private transient volatile long[][] ring1Masks;
+	private transient volatile long[][] ring2Masks;
+
+	/**
+	 * Consults the geometry of a board of {@code rows} x {@code cols}, creating
+	 * it the first time.
+	 *
+	 * <p>
+	 * Devuelve la geometria de un tablero de {@code rows} x {@code cols},
+	 * creandola la primera vez.
+	 */
+	public static BoardGeometry of(int rows, int cols) {
+		Long key = ((long) rows << 32) | (cols & 0xFFFFFFFFL);
+		BoardGeometry g = cache.get(key);
+		if (g == null) {
+			g = new BoardGeometry(rows, cols);
+			BoardGeometry other = cache.putIfAbsent(key, g);
+			if (other != null) {
+				g = other;
+			}
+		}
+		return g;
+	}
+
+	private BoardGeometry(int rows, int cols) {
+		this.layout = new PaddedLayout(rows, cols);
+		this.rows = rows;
+		this.cols = cols;
+		int cells = rows * cols;
+		this.ring1 = new int[cells][];
+		this.ring2 = new int[cells][];
+
+		int[] buf1 = new int[8];
+		int[] buf2 = new int[16];
+		for (int c = 0; c < cells; c++) {
+			int row = c / cols;
+			int col = c % cols;
+			int n1 = 0;
+			int n2 = 0;
+			for (int r = row - 2; r <= row + 2; r++) {
+				for (int k = col - 2; k <= col + 2; k++) {
+					if (r < 0 || r >= rows || k < 0 || k >= cols) {
+						continue;
+					}
+					int d = Math.max(Math.abs(r - row), Math.abs(k - col));
+					if (d == 1) {
+						buf1[n1++] = r * cols + k;
+					} else if (d == 2) {
+						buf2[n2++] = r * cols + k;
+					}
+				}
+			}
+			ring1[c] = Arrays.copyOf(buf1, n1);
+			ring2[c] = Arrays.copyOf(buf2, n2);
+		}
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getCols() {
+		return cols;
+	}
+
+	/**
+	 * Consults the padded layout of this dimension.
+	 * <p>
+	 * Devuelve la disposicion con borde de esta dimension.
+	 */
+	public PaddedLayout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * Consults the cells at distance 1 of {@code cell}. The geometry is shared
+	 * by every board of the same dimension, so this is a copy; loops that run
+	 * on every move should use {@link #ring1Size(int)} and
+	 * {@link #ring1(int, int)}.
+	 *
+	 * <p>
+	 * Devuelve las casillas a distancia 1 de {@code cell}. La geometria la
+	 * comparten todos los tableros de la misma dimension, asi que es una
+	 * copia; los bucles que se ejecutan en cada movimiento deben usar
+	 * {@link #ring1Size(int)} y {@link #ring1(int, int)}.
+	 *
+	 * @param cell
+	 *            Linear index of a cell ({@code row*cols+col}).
+	 * @return Linear indices of its neighbours.
+	 */
+	public int[] ring1(int cell) {
+		return ring1[cell].clone();
+	}
+
+	/**
+	 * Consults the number of cells at distance 1 of {@code cell}.
+	 * <p>
+	 * Devuelve el numero de casillas a distancia 1 de {@code cell}.
+	 */
+	public int ring1Size(int cell) {
+		return ring1[cell].length;
+	}
+
+	/**
+	 * Consults the {@code k}-th cell at distance 1 of {@code cell}, with
+	 * {@code 0 <= k < ring1Size(cell)}.
+	 * <p>
+	 * Devuelve la {@code k}-esima casilla a distancia 1 de {@code cell}, con
+	 * {@code 0 <= k < ring1Size(cell)}.
+	 */
+	public int ring1(int cell, int k) {
+		return ring1[cell][k];
+	}
+
+	/**
+	 * Consults the cells at distance 2 of {@code cell}, as a copy (see
+	 * {@link #ring1(int)}).
+	 *
+	 * <p>
+	 * Devuelve las casillas a distancia 2 de {@code cell}, como una copia
+	 * (vease {@link #ring1(int)}).
+	 *
+	 * @param cell
+	 *            Linear index of a cell ({@code row*cols+col}).
+	 * @return Linear indices of the cells at distance 2.
+	 */
+	public int[] ring2(int cell) {
+		return ring2[cell].clone();
+	}
+
+	/**
+	 * Consults the number of cells at distance 2 of {@code cell}.
+	 * <p>
+	 * Devuelve el numero de casillas a distancia 2 de {@code cell}.
+	 */
+	public int ring2Size(int cell) {
+		return ring2[cell].length;
+	}
+
+	/**
+	 * Consults the {@code k}-th cell at distance 2 of {@code cell}, with
+	 * {@code 0 <= k < ring2Size(cell)}.
+	 * <p>
+	 * Devuelve la {@code k}-esima casilla a distancia 2 de {@code cell}, con
+	 * {@code 0 <= k < ring2Size(cell)}.
+	 */
+	public int ring2(int cell, int k) {
+		return ring2[cell][k];
+	}
+
+	/**
+	 * Consults, for each cell, the mask of the cells at distance 1: bit
+	 * {@code i % 64} of word {@code i / 64} is cell {@code i}. The arrays are
+	 * shared and must not be modified.
+	 *
+	 * <p>
+	 * Devuelve, para cada casilla, la mascara de las casillas a distancia 1:
+	 * el bit {@code i % 64} de la palabra {@code i / 64} es la casilla
+	 * {@code i}. Los arrays son compartidos y no se deben modificar.
+	 */
+	public long[][] ring1Masks() {
+		long[][] m = ring1Masks;
+		if (m == null) {
+			m = ring1Masks = toMasks(ring1);
+		}
+		return m;
+	}
+
+	/**
+	 * Same as {@link #ring1Masks()} for the cells at distance 2.
+	 * <p>
+	 * Igual que {@link #ring1Masks()} para las casillas a distancia 2.
+	 */
+	public long[][] ring2Masks() {
+		long[][] m = ring2Masks;
+		if (m == null) {
+			m = ring2Masks = toMasks(ring2);
+		}
+		return m;
+	}
+
+	/**
+	 * Keeps a single instance per dimension after deserialization.
+	 * <p>
+	 * Mantiene una unica instancia por dimension al deserializar.
+	 */
+	private Object readResolve() {
+		return of(rows, cols);
+	}
+
+	private long[][] toMasks(int[][] lists) {
+		int words = (rows * cols + Long.SIZE - 1) / Long.SIZE;
+		long[][] masks = new long[lists.length][words];
+		for (int c = 0; c < lists.length; c++) {
+			for (int t : lists[c]) {
+				masks[c][t / Long.SIZE] |= 1L << t;
+			}
+		}
+		return masks;
+	}
+
+}
@@ -0,0 +1,138 @@
+package es.ucm.fdi.tp.basecode.bgame.model;
+
+/**
+ * The canonical orientation of a position. Among the {@link Symmetry}s that
+ * map the board onto itself, the canonical one is the one whose transformed
+ * position has the smallest Zobrist hash (see {@link Zobrist}), so all the
+ * positions that are equal up to a symmetry have the same
+ * {@link #getKey()}. Transposition tables, opening books, etc. indexed by
+ * this key are up to 8 times smaller, and moves found for the canonical
+ * position can be mapped back with {@link #fromCanonical(GameMove)}.
+ *
+ * <p>
+ * La orientacion canonica de una posicion. Entre las {@link Symmetry}s que
+ * llevan el tablero sobre si mismo, la canonica es aquella cuya posicion
+ * transformada tiene el menor hash de Zobrist (vease {@link Zobrist}), por lo
+ * que todas las posiciones que son iguales salvo una simetria tienen la misma
+ * {@link #getKey()}. Las tablas de transposicion, libros de aperturas, etc.
+ * indexados por esta clave son hasta 8 veces mas pequenos, y los movimientos
+ * encontrados para la posicion canonica se pueden trasladar a la original con
+ * {@link #fromCanonical(GameMove)}.
+ */
+public class CanonicalForm {
+
+	private static final Symmetry[] symmetries = Symmetry.values();
+
+	/**
+	 * The hash of the canonical position, including the player to move.
+	 * <p>
+	 * Hash de la posicion canonica, incluyendo el jugador al que le toca.
+	 */
+	private final long key;
+
+	/**
+	 * The symmetry that maps the board to the canonical position.
+	 * <p>
+	 * Simetria que lleva el tablero a la posicion canonica.
+	 */
+	private final Symmetry symmetry;
+
+	private final int rows;
+	private final int cols;
+
+	private CanonicalForm(long key, Symmetry symmetry, int rows, int cols) {
+		this.key = key;
+		this.symmetry = symmetry;
+		this.rows = rows;
+		this.cols = cols;
+	}
+
+	/**
+	 * Computes the canonical form of a position, visiting each cell of the
+	 * board once.
+	 *
+	 * <p>
+	 * Calcula la forma canonica de una posicion, visitando una sola vez cada
+	 * casilla del tablero.
+	 *
+	 * @param board
+	 *            The board.
+	 * @param turn
+	 *            The player to move, or {@code null} to leave it out of the
+	 *            key.
+	 * @return The canonical form of the position.
+	 */
+	public static CanonicalForm of(Board board, Piece turn) {
+		int rows = board.getRows();
+		int cols = board.getCols();
+		long[] keys = new long[symmetries.length];
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				Piece p = board.getPosition(r, c);
+				if (p == null) {
+					continue;
+				}
+				for (int s = 0; s < symmetries.length; s++) {
+					Symmetry sym = symmetries[s];
+					if (sym.appliesTo(rows, cols)) {
+						int cell = sym.row(r, c, rows, cols) * cols + sym.col(r, c, rows, cols);
+						keys[s] ^= Zobrist.cellKey(p, cell);
+					}
+				}
+			}
+		}
+
+		// the first symmetry with the smallest key, so that the identity wins
+		// ties and symmetric positions are not transformed
+		int best = 0;
+		for (int s = 1; s < symmetries.length; s++) {
+			if (symmetries[s].appliesTo(rows, cols) && keys[s] < keys[best]) {
+				best = s;
+			}
+		}
+		return new CanonicalForm(keys[best] ^ Zobrist.turnKey(turn), symmetries[best], rows, cols);
+	}
+
+	/**
+	 * Consults the hash of the canonical position. For {@link Symmetry#IDENTITY}
+	 * it is the same as {@link Board#getZobristKey(Piece)}.
+	 *
+	 * <p>
+	 * Devuelve el hash de la posicion canonica. Para
+	 * {@link Symmetry#IDENTITY} es igual que
+	 * {@link Board#getZobristKey(Piece)}.
+	 */
+	public long getKey() {
+		return key;
+	}
+
+	/**
+	 * Consults the symmetry that maps the board to the canonical position.
+	 * <p>
+	 * Devuelve la simetria que lleva el tablero a la posicion canonica.
+	 */
+	public Symmetry getSymmetry() {
+		return symmetry;
+	}
+
+	/**
+	 * Maps a move of the original position to the canonical position.
+	 * <p>
+	 * Traslada un movimiento de la posicion original a la canonica.
+	 */
+	public GameMove toCanonical(GameMove move) {
+		return move.transform(symmetry, rows, cols);
+	}
+
+	/**
+	 * Maps a move of the canonical position back to the original position.
+	 * <p>
+	 * Traslada un movimiento de la posicion canonica a la original.
+	 */
+	public GameMove fromCanonical(GameMove move) {
+		// the canonical board has the axes swapped, if the symmetry swaps them
+		return move.transform(symmetry.inverse(), symmetry.swapsAxes() ? cols : rows,
+				symmetry.swapsAxes() ? rows : cols);
+	}
+
+}
@@ -1,10 +1,25 @@
 package es.ucm.fdi.tp.basecode.bgame.model;
 
+import java.util.Arrays;
+
 /**
- * An implementation of a finite rectangular board.
+ * An implementation of a finite rectangular board. The cells are stored in a
+ * flat array of bytes, each holding the index of its piece in a small palette
+ * of the pieces used in the board (0 is the empty cell). Copying the board is
+ * thus cloning a few arrays, and {@link #getPosition(int, int)} still returns
+ * the same {@link Piece} objects that were placed. The array follows a
+ * {@link PaddedLayout}, so rules can scan the neighbours of a cell with
+ * {@link #getCell(int)} and fixed offsets, without bounds checks.
  * 
  * <p>
- * Implementacion de un tablero rectangular de dimensión finita.
+ * Implementacion de un tablero rectangular de dimensión finita. Las casillas
+ * se guardan en un array de bytes, cada uno con el indice de su ficha en una
+ * pequena paleta de las fichas utilizadas en el tablero (0 es la casilla
+ * vacia). Copiar el tablero es por tanto clonar unos pocos arrays, y
+ * {@link #getPosition(int, int)} sigue devolviendo los mismos objetos
+ * {@link Piece} que se colocaron. El array sigue un {@link PaddedLayout}, por
+ * lo que las reglas pueden recorrer los vecinos de una casilla con
+ * {@link #getCell(int)} y desplazamientos fijos, sin comprobar limites.
  * 
  */
 public class FiniteRectBoard extends BasicBoard {
@@ -12,14 +27,83 @@ public class FiniteRectBoard extends BasicBoard {
 	private static final long serialVersionUID = 1L;
 
 	/**
-	 * The internal representation of the board. Simply a matrix of objects of
-	 * type {@link Piece}.
+	 * The maximum number of different pieces that a board can hold.
+	 * 
+	 * <p>
+	 * Numero maximo de fichas distintas que puede contener un tablero.
+	 */
+	private static final int MAX_PIECES = 254;
+
+	/**
+	 * The value of the sentinel cells of the border, it is not a valid palette
+	 * index.
+	 * 
+	 * <p>
+	 * Valor de las casillas centinela del borde, no es un indice valido de la
+	 * paleta.
+	 */
+	private static final byte SENTINEL = (byte) 0xFF;
+
+	/**
+	 * The internal representation of the board. The cell ({@code row},
+	 * {@code col}) is at position {@code layout.index(row,col)}, and holds the
+	 * index of its piece in {@link #palette}, the cells of the border hold
+	 * {@link #SENTINEL}.
+	 * 
+	 * <p>
+	 * Representacion interna del tablero. La casilla ({@code row},{@code col})
+	 * esta en la posicion {@code layout.index(row,col)}, y contiene el indice
+	 * de su ficha en {@link #palette}, las casillas del borde contienen
+	 * {@link #SENTINEL}.
+	 */
+	private byte[] board;
+
+	/**
+	 * The layout of {@link #board}, it is taken from {@link BoardGeometry} so
+	 * all the boards of the same dimension share it.
+	 * <p>
+	 * Disposicion de {@link #board}, se obtiene de {@link BoardGeometry} por lo
+	 * que todos los tableros de la misma dimension la comparten.
+	 */
+	private PaddedLayout layout;
+
+	/**
+	 * The pieces used in the board, {@code palette[0]} is always {@code null}
+	 * (the empty cell). Copies of a board share it, so it is never modified:
+	 * a new array is created when a new piece is added.
 	 * 
 	 * <p>
-	 * Representacion interna del tablero: una matriz de objetos de tipo
-	 * {@link Piece}.
+	 * Las fichas utilizadas en el tablero, {@code palette[0]} es siempre
+	 * {@code null} (la casilla vacia). Las copias de un tablero lo comparten,
+	 * por lo que nunca se modifica: se crea un nuevo array cuando se anade una
+	 * nueva ficha.
 	 */
-	private Piece[][] board;
+	private Piece[] palette;
+
+	/**
+	 * The empty cells of the board (as {@code row*cols+col}), in the first
+	 * {@code numOfCells - occupied} positions. A cell that gets occupied is
+	 * replaced by the last empty one, so the set is updated in O(1) and
+	 * {@link #getEmptyCell(int)} can sample it uniformly.
+	 * 
+	 * <p>
+	 * Las casillas vacias del tablero (como {@code row*cols+col}), en las
+	 * primeras {@code numOfCells - occupied} posiciones. Una casilla que se
+	 * ocupa se sustituye por la ultima vacia, por lo que el conjunto se
+	 * actualiza en O(1) y {@link #getEmptyCell(int)} puede elegir una de ellas
+	 * de forma uniforme.
+	 */
+	private int[] emptyCells;
+
+	/**
+	 * For each cell (as {@code row*cols+col}), its position in
+	 * {@link #emptyCells}, or -1 if the cell is occupied.
+	 * 
+	 * <p>
+	 * Para cada casilla (como {@code row*cols+col}), su posicion en
+	 * {@link #emptyCells}, o -1 si esta ocupada.
+	 */
+	private int[] emptyIndex;
 
 	/**
 	 * The number of occupied cells in the board.
@@ -70,15 +154,48 @@ public class FiniteRectBoard extends BasicBoard {
 	 *            Numero de columnas.
 	 */
 	public FiniteRectBoard(int rows, int cols) {
-		if (rows <= 0 || cols <= 0) {
-			throw new GameError("Invalid finte rectangular board size  (" + rows + "," + cols + ")");
+		this(BoardGeometry.of(rows, cols).getLayout());
+		for (int i = 0; i < board.length; i++) {
+			if (!layout.isInside(i)) {
+				board[i] = SENTINEL;
+			}
 		}
+	}
 
-		this.rows = rows;
-		this.cols = cols;
-		board = new Piece[rows][cols];
+	/**
+	 * Constructs an empty board with the given layout. The sentinels of
+	 * {@link #board} are left to the caller.
+	 * 
+	 * <p>
+	 * Construye un tablero vacio con la disposicion dada. Los centinelas de
+	 * {@link #board} los pone quien lo llama.
+	 */
+	private FiniteRectBoard(PaddedLayout layout) {
+		this.layout = layout;
+		this.rows = layout.getRows();
+		this.cols = layout.getCols();
+		board = new byte[layout.size()];
+		palette = new Piece[] { null };
 		occupied = 0;
 		numOfCells = rows * cols;
+		emptyCells = new int[numOfCells];
+		emptyIndex = new int[numOfCells];
+		for (int i = 0; i < numOfCells; i++) {
+			emptyCells[i] = i;
+			emptyIndex[i] = i;
+		}
+	}
+
+	/**
+	 * Copy constructor, used by {@link #copy()} here and in the subclasses.
+	 * The arrays are cloned, without filling them first.
+	 * 
+	 * <p>
+	 * Constructor de copia, lo utiliza {@link #copy()} aqui y en las
+	 * subclases. Los arrays se clonan, sin rellenarlos antes.
+	 */
+	protected FiniteRectBoard(FiniteRectBoard other) {
+		other.copyTo(this);
 	}
 
 	@Override
@@ -86,16 +203,82 @@ public class FiniteRectBoard extends BasicBoard {
 		if (row < 0 || row >= rows || col < 0 || col >= cols) {
 			throw new GameError("Trying to access an invalid position (" + row + "," + col + ")");
 		}
+		setCell(layout.index(row, col), p);
+	}
 
-		Piece q = board[row][col]; // we get the current piece at position
-									// (row,col) just to correctly update the
-									// number of occupied cells.
+	/**
+	 * Places a piece at a cell given by its index in {@link #getLayout()}.
+	 * 
+	 * <p>
+	 * Coloca una ficha en una casilla dada por su indice en
+	 * {@link #getLayout()}.
+	 * 
+	 * @param i
+	 *            Padded index of a cell of the board (not a sentinel).
+	 * @param p
+	 *            A piece, or {@code null} to empty the cell.
+	 */
+	public void setCell(int i, Piece p) {
+		byte q = board[i]; // we get the current piece at position (row,col)
+							// just to correctly update the number of
+							// occupied cells.
+		if (q == SENTINEL) {
+			throw new GameError("Trying to access an invalid position (" + layout.row(i) + "," + layout.col(i) + ")");
+		}
 
-		if (p == null && q != null)
+		byte n = paletteIndex(p);
+		int cell = layout.toLinear(i);
+		if (n == 0 && q != 0) {
+			// the cell is added at the end of the empty ones
+			int last = numOfCells - occupied;
+			emptyCells[last] = cell;
+			emptyIndex[cell] = last;
 			occupied--;
-		else if (p != null && q == null)
+		} else if (n != 0 && q == 0) {
+			// the last empty cell takes the place of the cell
+			int last = numOfCells - occupied - 1;
+			int k = emptyIndex[cell];
+			emptyCells[k] = emptyCells[last];
+			emptyIndex[emptyCells[k]] = k;
+			emptyIndex[cell] = -1;
 			occupied++;
-		board[row][col] = p;
+		}
+		board[i] = n;
+		updateZobristKey(cell, palette[q & 0xFF], p);
+	}
+
+	/**
+	 * Consults the index of a piece in the palette, adding it if it is not
+	 * there yet. Pieces are compared by reference, so that
+	 * {@link #getPosition(int, int)} returns exactly the object that was
+	 * placed.
+	 * 
+	 * <p>
+	 * Devuelve el indice de una ficha en la paleta, anadiendola si todavia no
+	 * esta. Las fichas se comparan por referencia, para que
+	 * {@link #getPosition(int, int)} devuelva exactamente el objeto que se
+	 * coloco.
+	 * 
+	 * @param p
+	 *            A piece, or {@code null}.
+	 * @return The index of {@code p} in the palette (0 for {@code null}).
+	 */
+	private byte paletteIndex(Piece p) {
+		if (p == null) {
+			return 0;
+		}
+		for (int i = 1; i < palette.length; i++) {
+			if (palette[i] == p) {
+				return (byte) i;
+			}
+		}
+		if (palette.length > MAX_PIECES) {
+			throw new GameError("Too many different pieces in the board (at most " + MAX_PIECES + ")");
+		}
+		Piece[] newPalette = Arrays.copyOf(palette, palette.length + 1);
+		newPalette[palette.length] = p;
+		palette = newPalette;
+		return (byte) (palette.length - 1);
 	}
 
 	@Override
@@ -103,7 +286,47 @@ public class FiniteRectBoard extends BasicBoard {
 		if (row < 0 || row >= rows || col < 0 || col >= cols) {
 			throw new GameError("Trying to access an invalid position (" + row + "," + col + ")");
 		}
-		return board[row][col];
+		return palette[board[layout.index(row, col)] & 0xFF];
+	}
+
+	/**
+	 * Consults the piece at a cell given by its index in {@link #getLayout()}.
+	 * No bounds are checked, sentinel cells are reported as empty (use
+	 * {@link #isFree(int)} to tell them apart).
+	 * 
+	 * <p>
+	 * Devuelve la ficha de una casilla dada por su indice en
+	 * {@link #getLayout()}. No se comprueban limites, las casillas centinela
+	 * se consideran vacias (se pueden distinguir con {@link #isFree(int)}).
+	 * 
+	 * @param i
+	 *            Padded index.
+	 * @return The piece at the cell, or {@code null}.
+	 */
+	public Piece getCell(int i) {
+		byte q = board[i];
+		return q == SENTINEL ? null : palette[q & 0xFF];
+	}
+
+	/**
+	 * Checks if a padded index is an empty cell of the board, i.e., neither
+	 * occupied nor a sentinel.
+	 * 
+	 * <p>
+	 * Comprueba si un indice con borde es una casilla vacia del tablero, es
+	 * decir, ni ocupada ni centinela.
+	 */
+	public boolean isFree(int i) {
+		return board[i] == 0;
+	}
+
+	/**
+	 * Consults the layout used to store the cells.
+	 * <p>
+	 * Devuelve la disposicion utilizada para guardar las casillas.
+	 */
+	public PaddedLayout getLayout() {
+		return layout;
 	}
 
 	@Override
@@ -121,24 +344,37 @@ public class FiniteRectBoard extends BasicBoard {
 		// ask the super class to copy its stuff first.
 		super.copyTo(newboard);
 
-		// copy the actual board
-		newboard.board = new Piece[rows][cols];
-		for (int i = 0; i < rows; i++)
-			for (int j = 0; j < cols; j++)
-				newboard.board[i][j] = board[i][j];
+		// copy the actual board, the palette is never modified and the layout
+		// is immutable so they can be shared
+		newboard.board = board.clone();
+		newboard.palette = palette;
+		newboard.layout = layout;
 		newboard.cols = cols;
 		newboard.rows = rows;
 
 		// copy cell count information
+		newboard.emptyCells = emptyCells.clone();
+		newboard.emptyIndex = emptyIndex.clone();
 		newboard.occupied = occupied;
 		newboard.numOfCells = numOfCells;
 	}
 
 	@Override
 	public Board copy() {
-		FiniteRectBoard newboard = new FiniteRectBoard(rows, cols);
-		copyTo(newboard);
-		return newboard;
+		return new FiniteRectBoard(this);
+	}
+
+	@Override
+	public int getNumOfEmptyCells() {
+		return numOfCells - occupied;
+	}
+
+	@Override
+	public int getEmptyCell(int k) {
+		if (k < 0 || k >= numOfCells - occupied) {
+			throw new GameError("There is no empty cell number " + k);
+		}
+		return emptyCells[k];
 	}
 
 	@Override
@@ -151,51 +387,4 @@ public class FiniteRectBoard extends BasicBoard {
 		return occupied == 0;
 	}
 
-	/**
-	 * Generates a string that represents the board. The symbols used to print
-	 * the board are the first characters of the piece identifier.
-	 * 
-	 * <p>
-	 * Genera un string que representa el tablero. El simbolo utilizado para
-	 * cada ficha es el primer caracter de su id.
-	 * 
-	 * @return A string representation of the board.
-	 */
-	@Override
-	public String toString() {
-		StringBuilder render = new StringBuilder();
-
-		int height = getRows();
-		int width = getCols();
-
-		for (int r = 0; r < height; ++r) {
-
-			render.append("  +");
-			for (int c = 0; c < width; ++c)
-				render.append("---+");
-			render.append("\n");
-			render.append("" + (r % 10) + " |");
-
-			for (int c = 0; c < width; ++c) {
-				if (getPosition(r, c) == null) {
-					render.append("   |");
-				} else {
-					render.append(" " + getPosition(r, c).toString().charAt(0) + " |");
-				}
-			} // for columns
-			render.append("\n");
-		} // for rows
-
-		render.append("  +");
-		for (int c = 0; c < width; ++c)
-			render.append("---+");
-		render.append("\n");
-		render.append("   ");
-		for (int c = 0; c < width; ++c)
-			render.append(" " + (c % 10) + "  ");
-		render.append("\n");
-
-		return render.toString();
-	}
-
 }
@@ -95,6 +95,77 @@ public abstract class GameMove implements java.io.Serializable {
 	 */
 	public abstract void execute(Board board, List<Piece> pieces);
 
+	/**
+	 * Consults if this move supports {@link #undo(Board, List)}. By default
+	 * moves cannot be undone.
+	 * 
+	 * <p>
+	 * Indica si este movimiento permite {@link #undo(Board, List)}. Por
+	 * defecto los movimientos no se pueden deshacer.
+	 * 
+	 * @return {@code true} if the move can be undone, {@code false} otherwise.
+	 *         <p>
+	 *         {@code true} si el movimiento se puede deshacer, {@code false}
+	 *         en caso contrario.
+	 */
+	public boolean isUndoable() {
+		return false;
+	}
+
+	/**
+	 * Undoes the last execution of this move, so that {@code board}
+	 * (including its piece-counts) is left as it was before calling
+	 * {@link #execute(Board, List)}. This allows automatic players to explore
+	 * moves on a single board instead of copying it for every move. Moves must
+	 * be undone in the reverse order in which they were executed.
+	 * 
+	 * <p>
+	 * Deshace la ultima ejecucion de este movimiento, de forma que
+	 * {@code board} (incluidos sus contadores de fichas) queda como estaba
+	 * antes de llamar a {@link #execute(Board, List)}. Permite que los
+	 * jugadores automaticos exploren movimientos sobre un unico tablero en
+	 * lugar de copiarlo para cada movimiento. Los movimientos se deben
+	 * deshacer en el orden inverso al que se ejecutaron.
+	 * 
+	 * @param board
+	 *            The board on which the move was executed.
+	 * 
+	 *            <p>
+	 *            Tablero sobre el que se realizo el movimiento.
+	 * @param pieces
+	 *            A list of pieces that are involved in the game.
+	 * 
+	 *            <p>
+	 *            Lista de fichas de todos los jugadores
+	 */
+	public void undo(Board board, List<Piece> pieces) {
+		throw new UnsupportedOperationException("The move '" + this + "' cannot be undone");
+	}
+
+	/**
+	 * Creates the move that results from applying a symmetry to this one, that
+	 * is, the same move on the transformed board (see {@link CanonicalForm}).
+	 * Moves that cannot be transformed throw
+	 * {@link UnsupportedOperationException}.
+	 * 
+	 * <p>
+	 * Crea el movimiento que resulta de aplicar una simetria a este, es decir,
+	 * el mismo movimiento sobre el tablero transformado (vease
+	 * {@link CanonicalForm}). Los movimientos que no se pueden transformar
+	 * lanzan {@link UnsupportedOperationException}.
+	 * 
+	 * @param s
+	 *            The symmetry.
+	 * @param rows
+	 *            Number of rows of the board before the transformation.
+	 * @param cols
+	 *            Number of columns of the board before the transformation.
+	 * @return The transformed move.
+	 */
+	public GameMove transform(Symmetry s, int rows, int cols) {
+		throw new UnsupportedOperationException("The move '" + this + "' cannot be transformed");
+	}
+
 	/**
 	 * An abstract method for generating a game move from a string. The string
 	 * format depends on the actual move (@see {@link #help()}).
@@ -251,4 +251,139 @@ public interface GameRules {
 	 *         implementación de {@link GameRules} que corresponda.
 	 */
 	public List<GameMove> validMoves(Board board, List<Piece> playersPieces, Piece turn);
+
+	/**
+	 * Same as {@link #validMoves(Board, List, Piece)}, but the moves are stored
+	 * encoded in {@code moves} (see {@link MoveBuffer}), which is cleared
+	 * first. Reusing the same buffer, moves can be generated without creating
+	 * any object, and {@link #decodeMove(Board, Piece, int)} creates the
+	 * {@link GameMove} of the one finally chosen.
+	 * 
+	 * <p>
+	 * Igual que {@link #validMoves(Board, List, Piece)}, pero los movimientos
+	 * se guardan codificados en {@code moves} (vease {@link MoveBuffer}), que
+	 * primero se vacia. Reutilizando el mismo buffer, se pueden generar
+	 * movimientos sin crear ningun objeto, y
+	 * {@link #decodeMove(Board, Piece, int)} crea el {@link GameMove} del que
+	 * se elija finalmente.
+	 * 
+	 * @param board
+	 *            The current board of the game.
+	 *            <p>
+	 *            El tablero actual.
+	 * @param playersPieces
+	 *            The list of pieces involved in the game.
+	 *            <p>
+	 *            La lista de fichas de todos los jugadores.
+	 * @param turn
+	 *            The piece of the player to move.
+	 *            <p>
+	 *            Ficha del jugador al que le toca mover.
+	 * @param moves
+	 *            The buffer where the encoded moves are stored.
+	 *            <p>
+	 *            Buffer en el que se guardan los movimientos codificados.
+	 */
+	public void validMoves(Board board, List<Piece> playersPieces, Piece turn, MoveBuffer moves);
+
+	/**
+	 * Creates the {@link GameMove} of a move encoded by
+	 * {@link #validMoves(Board, List, Piece, MoveBuffer)}.
+	 * 
+	 * <p>
+	 * Crea el {@link GameMove} de un movimiento codificado por
+	 * {@link #validMoves(Board, List, Piece, MoveBuffer)}.
+	 * 
+	 * @param board
+	 *            The board on which the move was generated.
+	 *            <p>
+	 *            Tablero sobre el que se genero el movimiento.
+	 * @param turn
+	 *            The piece of the player that makes the move.
+	 *            <p>
+	 *            Ficha del jugador que hace el movimiento.
+	 * @param move
+	 *            The encoded move.
+	 *            <p>
+	 *            El movimiento codificado.
+	 * @return The move.
+	 */
+	public GameMove decodeMove(Board board, Piece turn, int move);
+
+	/**
+	 * Generates the valid moves lazily: they are only generated as the
+	 * returned iterator is consumed, in the same order as
+	 * {@link #validMoves(Board, List, Piece, MoveBuffer)}.
+	 * 
+	 * <p>
+	 * Genera los movimientos validos de forma perezosa: solo se generan segun
+	 * se consume el iterador devuelto, en el mismo orden que
+	 * {@link #validMoves(Board, List, Piece, MoveBuffer)}.
+	 * 
+	 * @param board
+	 *            The current board of the game. It must not change while the
+	 *            iterator is used.
+	 *            <p>
+	 *            El tablero actual. No debe cambiar mientras se usa el
+	 *            iterador.
+	 * @param playersPieces
+	 *            The list of pieces involved in the game.
+	 *            <p>
+	 *            La lista de fichas de todos los jugadores.
+	 * @param turn
+	 *            The piece of the player to move.
+	 *            <p>
+	 *            Ficha del jugador al que le toca mover.
+	 * @return An iterator over the valid moves.
+	 */
+	public MoveIterator moveIterator(Board board, List<Piece> playersPieces, Piece turn);
+
+	/**
+	 * Checks if the player has at least one valid move, stopping as soon as
+	 * one is found (or without generating any, if the rules can tell).
+	 * 
+	 * <p>
+	 * Comprueba si el jugador tiene al menos un movimiento valido,
+	 * deteniendose en cuanto encuentra uno (o sin generar ninguno, si las
+	 * reglas pueden saberlo).
+	 * 
+	 * @param board
+	 *            The current board of the game.
+	 *            <p>
+	 *            El tablero actual.
+	 * @param playersPieces
+	 *            The list of pieces involved in the game.
+	 *            <p>
+	 *            La lista de fichas de todos los jugadores.
+	 * @param turn
+	 *            The piece of the player to move.
+	 *            <p>
+	 *            Ficha del jugador al que le toca mover.
+	 * @return {@code true} if {@code turn} can move.
+	 */
+	public boolean hasValidMove(Board board, List<Piece> playersPieces, Piece turn);
+
+	/**
+	 * Chooses one of the valid moves uniformly at random, without building the
+	 * list of all of them (see {@link MoveIterator#sample()}).
+	 * 
+	 * <p>
+	 * Elige uno de los movimientos validos uniformemente al azar, sin
+	 * construir la lista de todos ellos (vease {@link MoveIterator#sample()}).
+	 * 
+	 * @param board
+	 *            The current board of the game.
+	 *            <p>
+	 *            El tablero actual.
+	 * @param playersPieces
+	 *            The list of pieces involved in the game.
+	 *            <p>
+	 *            La lista de fichas de todos los jugadores.
+	 * @param turn
+	 *            The piece of the player to move.
+	 *            <p>
+	 *            Ficha del jugador al que le toca mover.
+	 * @return A random valid move, or {@code null} if there are none.
+	 */
+	public GameMove randomValidMove(Board board, List<Piece> playersPieces, Piece turn);
 }
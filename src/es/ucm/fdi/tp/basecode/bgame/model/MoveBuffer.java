@@ -0,0 +1,142 @@
+package es.ucm.fdi.tp.basecode.bgame.model;
+
+import java.util.Arrays;
+
+/**
+ * A reusable list of moves encoded as {@code int}s, to generate moves without
+ * creating a {@link GameMove} object for each of them (see
+ * {@link GameRules#validMoves(Board, java.util.List, Piece, MoveBuffer)}).
+ * Moves that place a piece are encoded as the linear index
+ * {@code row*cols+col} of the cell, and moves from one cell to another as
+ * {@link #encode(int, int)}. Only the rules of a game know which encoding its
+ * moves use, and {@link GameRules#decodeMove(Board, Piece, int)} turns them
+ * back into {@link GameMove}s.
+ *
+ * <p>
+ * Lista reutilizable de movimientos codificados como {@code int}s, para
+ * generar movimientos sin crear un objeto {@link GameMove} para cada uno de
+ * ellos (vease
+ * {@link GameRules#validMoves(Board, java.util.List, Piece, MoveBuffer)}). Los
+ * movimientos que colocan una ficha se codifican como el indice lineal
+ * {@code row*cols+col} de la casilla, y los movimientos de una casilla a otra
+ * como {@link #encode(int, int)}. Solo las reglas de un juego saben que
+ * codificacion usan sus movimientos, y
+ * {@link GameRules#decodeMove(Board, Piece, int)} los convierte de nuevo en
+ * {@link GameMove}s.
+ */
+public class MoveBuffer {
+
+	private int[] moves;
+	private int size;
+
+	/**
+	 * Creates an empty buffer with room for 64 moves, it grows when needed.
+	 * <p>
+	 * Crea un buffer vacio con espacio para 64 movimientos, crece cuando es
+	 * necesario.
+	 */
+	public MoveBuffer() {
+		this(64);
+	}
+
+	/**
+	 * Creates an empty buffer with room for {@code capacity} moves.
+	 * <p>
+	 * Crea un buffer vacio con espacio para {@code capacity} movimientos.
+	 */
+	public MoveBuffer(int capacity) {
+		this.moves = new int[Math.max(capacity, 1)];
+		this.size = 0;
+	}
+
+	/**
+	 * Encodes a move from cell {@code from} to cell {@code to} (both as linear
+	 * indices, smaller than 65536).
+	 *
+	 * <p>
+	 * Codifica un movimiento de la casilla {@code from} a la casilla
+	 * {@code to} (ambas como indices lineales, menores que 65536).
+	 */
+	public static int encode(int from, int to) {
+		return (from << 16) | to;
+	}
+
+	/**
+	 * Consults the origin of a move encoded with {@link #encode(int, int)}.
+	 * <p>
+	 * Devuelve el origen de un movimiento codificado con
+	 * {@link #encode(int, int)}.
+	 */
+	public static int from(int move) {
+		return move >>> 16;
+	}
+
+	/**
+	 * Consults the destination of a move encoded with
+	 * {@link #encode(int, int)}.
+	 *
+	 * <p>
+	 * Devuelve el destino de un movimiento codificado con
+	 * {@link #encode(int, int)}.
+	 */
+	public static int to(int move) {
+		return move & 0xFFFF;
+	}
+
+	/**
+	 * Removes all the moves, keeping the allocated space.
+	 * <p>
+	 * Elimina todos los movimientos, conservando el espacio reservado.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Adds an encoded move at the end of the buffer.
+	 * <p>
+	 * Anade un movimiento codificado al final del buffer.
+	 */
+	public void add(int move) {
+		if (size == moves.length) {
+			moves = Arrays.copyOf(moves, 2 * moves.length);
+		}
+		moves[size++] = move;
+	}
+
+	/**
+	 * Consults the {@code i}-th encoded move.
+	 * <p>
+	 * Devuelve el {@code i}-esimo movimiento codificado.
+	 */
+	public int get(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+		}
+		return moves[i];
+	}
+
+	/**
+	 * Exchanges two moves, e.g., to sort the moves for a search.
+	 * <p>
+	 * Intercambia dos movimientos, por ejemplo para ordenarlos en una
+	 * busqueda.
+	 */
+	public void swap(int i, int j) {
+		if (i < 0 || i >= size || j < 0 || j >= size) {
+			throw new IndexOutOfBoundsException("Index: " + i + ", " + j + ", Size: " + size);
+		}
+		int m = moves[i];
+		moves[i] = moves[j];
+		moves[j] = m;
+	}
+
+}
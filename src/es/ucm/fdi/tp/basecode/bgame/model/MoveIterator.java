@@ -0,0 +1,150 @@
+package es.ucm.fdi.tp.basecode.bgame.model;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import es.ucm.fdi.tp.basecode.bgame.Utils;
+
+/**
+ * A lazy source of the valid moves of a player (see
+ * {@link GameRules#moveIterator(Board, java.util.List, Piece)}). Moves are
+ * generated in small groups (e.g., the moves to one cell) only as they are
+ * consumed, so a caller that stops at the first move that suits it does not
+ * pay for the rest. Moves can be consumed as {@link GameMove}s with
+ * {@link #next()} or encoded, without creating any object, with
+ * {@link #nextEncoded()}.
+ *
+ * <p>
+ * Fuente perezosa de los movimientos validos de un jugador (vease
+ * {@link GameRules#moveIterator(Board, java.util.List, Piece)}). Los
+ * movimientos se generan en pequenos grupos (por ejemplo, los movimientos a
+ * una casilla) solo segun se consumen, por lo que quien se detiene en el
+ * primer movimiento que le sirve no paga por el resto. Los movimientos se
+ * pueden consumir como {@link GameMove}s con {@link #next()} o codificados,
+ * sin crear ningun objeto, con {@link #nextEncoded()}.
+ */
+public abstract class MoveIterator implements Iterator<GameMove> {
+
+	private final GameRules rules;
+	private final Board board;
+	private final Piece turn;
+
+	/**
+	 * The current group of moves and the position of the next one in it.
+	 * <p>
+	 * Grupo actual de movimientos y posicion del siguiente en el.
+	 */
+	private final MoveBuffer group;
+	private int next;
+
+	private boolean exhausted;
+
+	/**
+	 * Creates an iterator whose moves are decoded with
+	 * {@link GameRules#decodeMove(Board, Piece, int)} of {@code rules}.
+	 *
+	 * <p>
+	 * Crea un iterador cuyos movimientos se decodifican con
+	 * {@link GameRules#decodeMove(Board, Piece, int)} de {@code rules}.
+	 */
+	protected MoveIterator(GameRules rules, Board board, Piece turn) {
+		this.rules = rules;
+		this.board = board;
+		this.turn = turn;
+		this.group = new MoveBuffer(32);
+		this.next = 0;
+		this.exhausted = false;
+	}
+
+	/**
+	 * Generates the next group of moves, encoded as in
+	 * {@link GameRules#validMoves(Board, java.util.List, Piece, MoveBuffer)}.
+	 * The group may be empty.
+	 *
+	 * <p>
+	 * Genera el siguiente grupo de movimientos, codificados como en
+	 * {@link GameRules#validMoves(Board, java.util.List, Piece, MoveBuffer)}.
+	 * El grupo puede estar vacio.
+	 *
+	 * @param moves
+	 *            An empty buffer where the moves are added.
+	 *            <p>
+	 *            Buffer vacio al que se anaden los movimientos.
+	 * @return {@code false} if there were no groups left.
+	 */
+	protected abstract boolean nextGroup(MoveBuffer moves);
+
+	@Override
+	public boolean hasNext() {
+		while (next == group.size() && !exhausted) {
+			group.clear();
+			next = 0;
+			exhausted = !nextGroup(group);
+		}
+		return next < group.size();
+	}
+
+	/**
+	 * Consults the next move, encoded.
+	 * <p>
+	 * Devuelve el siguiente movimiento, codificado.
+	 */
+	public int nextEncoded() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return group.get(next++);
+	}
+
+	@Override
+	public GameMove next() {
+		return rules.decodeMove(board, turn, nextEncoded());
+	}
+
+	/**
+	 * Consumes the remaining moves and chooses one of them uniformly at
+	 * random, by reservoir sampling: the {@code k}-th move replaces the chosen
+	 * one with probability {@code 1/k}. Only the chosen move is decoded.
+	 *
+	 * <p>
+	 * Consume los movimientos restantes y elige uno de ellos uniformemente al
+	 * azar, por muestreo de reservorio: el {@code k}-esimo movimiento
+	 * sustituye al elegido con probabilidad {@code 1/k}. Solo se decodifica
+	 * el movimiento elegido.
+	 *
+	 * @return The chosen move, or {@code null} if there were no moves left.
+	 */
+	public GameMove sample() {
+		int chosen = sampleEncoded();
+		return chosen < 0 ? null : rules.decodeMove(board, turn, chosen);
+	}
+
+	/**
+	 * Like {@link #sample()}, but returns the chosen move encoded, so that the
+	 * caller can build the move itself.
+	 *
+	 * <p>
+	 * Como {@link #sample()}, pero devuelve el movimiento elegido codificado,
+	 * para que quien lo llama pueda construir el movimiento.
+	 *
+	 * @return The chosen move, or {@code -1} if there were no moves left.
+	 */
+	public int sampleEncoded() {
+		int chosen = -1;
+		int seen = 0;
+		while (hasNext()) {
+			int move = nextEncoded();
+			seen++;
+			if (Utils.randomInt(seen) == 0) {
+				chosen = move;
+			}
+		}
+		return chosen;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Moves cannot be removed");
+	}
+
+}
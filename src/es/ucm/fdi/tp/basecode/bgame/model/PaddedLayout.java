@@ -0,0 +1,249 @@
+package es.ucm.fdi.tp.basecode.bgame.model;
+
+/**
+ * The layout of a rectangular board surrounded by a border of
+ * {@link #BORDER} sentinel cells on each side. Cells are numbered row by row,
+ * including the border, so the neighbours of any cell of the board are at
+ * fixed offsets from it, and they are never outside the array: a neighbour
+ * scan only has to check if a cell is a sentinel, instead of checking rows and
+ * columns against the bounds of the board.
+ *
+ * <p>
+ * Disposicion de un tablero rectangular rodeado por un borde de
+ * {@link #BORDER} casillas centinela en cada lado. Las casillas se numeran
+ * fila a fila, incluyendo el borde, por lo que los vecinos de cualquier
+ * casilla del tablero estan a desplazamientos fijos de ella, y nunca quedan
+ * fuera del array: para recorrer los vecinos basta con comprobar si una
+ * casilla es centinela, en lugar de comparar filas y columnas con los limites
+ * del tablero.
+ */
+public class PaddedLayout implements java.io.Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Width of the border, enough for neighbours at distance 2.
+	 * <p>
+	 * Anchura del borde, suficiente para los vecinos a distancia 2.
+	 */
+	public static final int BORDER = 2;
+
+	/**
+	 * Number of cells at distance 1 and 2, the sizes of {@link #ring1()} and
+	 * {@link #ring2()}.
+	 * <p>
+	 * Numero de casillas a distancia 1 y 2, los tamanos de {@link #ring1()} y
+	 * {@link #ring2()}.
+	 */
+	public static final int RING1_SIZE = 8;
+	public static final int RING2_SIZE = 16;
+
+	private final int rows;
+	private final int cols;
+
+	/**
+	 * Number of positions in a padded row, {@code cols + 2*BORDER}.
+	 * <p>
+	 * Numero de posiciones de una fila con borde, {@code cols + 2*BORDER}.
+	 */
+	private final int stride;
+
+	/**
+	 * For each padded index, the linear index {@code row*cols+col} of the cell,
+	 * or -1 for sentinel cells.
+	 *
+	 * <p>
+	 * Para cada indice con borde, el indice lineal {@code row*cols+col} de la
+	 * casilla, o -1 para las casillas centinela.
+	 */
+	private final int[] linear;
+
+	/**
+	 * For each linear index, the padded index of the cell.
+	 * <p>
+	 * Para cada indice lineal, el indice con borde de la casilla.
+	 */
+	private final int[] padded;
+
+	/**
+	 * Offsets of the 8 cells at distance 1, and of the 16 cells at distance 2.
+	 * <p>
+	 * Desplazamientos de las 8 casillas a distancia 1, y de las 16 casillas a
+	 * distancia 2.
+	 */
+	private final int[] ring1;
+	private final int[] ring2;
+
+	/**
+	 * Constructs the layout of a board of {@code rows} x {@code cols}.
+	 *
+	 * <p>
+	 * Construye la disposicion de un tablero de {@code rows} x {@code cols}.
+	 */
+	public PaddedLayout(int rows, int cols) {
+		if (rows <= 0 || cols <= 0) {
+			throw new GameError("Invalid finte rectangular board size  (" + rows + "," + cols + ")");
+		}
+		this.rows = rows;
+		this.cols = cols;
+		this.stride = cols + 2 * BORDER;
+
+		this.linear = new int[(rows + 2 * BORDER) * stride];
+		this.padded = new int[rows * cols];
+		for (int i = 0; i < linear.length; i++) {
+			linear[i] = -1;
+		}
+		for (int r = 0; r < rows; r++) {
+			for (int c = 0; c < cols; c++) {
+				int i = (r + BORDER) * stride + c + BORDER;
+				linear[i] = r * cols + c;
+				padded[r * cols + c] = i;
+			}
+		}
+
+		this.ring1 = new int[RING1_SIZE];
+		this.ring2 = new int[RING2_SIZE];
+		int n1 = 0;
+		int n2 = 0;
+		for (int dr = -2; dr <= 2; dr++) {
+			for (int dc = -2; dc <= 2; dc++) {
+				int d = Math.max(Math.abs(dr), Math.abs(dc));
+				if (d == 1) {
+					ring1[n1++] = dr * stride + dc;
+				} else if (d == 2) {
+					ring2[n2++] = dr * stride + dc;
+				}
+			}
+		}
+	}
+
+	public int getRows() {
+		return rows;
+	}
+
+	public int getCols() {
+		return cols;
+	}
+
+	/**
+	 * Consults the number of padded positions, including the border.
+	 * <p>
+	 * Devuelve el numero de posiciones con borde, incluyendo el borde.
+	 */
+	public int size() {
+		return linear.length;
+	}
+
+	/**
+	 * Consults the padded index of the cell ({@code row},{@code col}), which
+	 * must be in the board.
+	 *
+	 * <p>
+	 * Devuelve el indice con borde de la casilla ({@code row},{@code col}), que
+	 * debe estar dentro del tablero.
+	 */
+	public int index(int row, int col) {
+		return (row + BORDER) * stride + col + BORDER;
+	}
+
+	/**
+	 * Consults the padded index of a cell given its linear index
+	 * {@code row*cols+col}.
+	 *
+	 * <p>
+	 * Devuelve el indice con borde de una casilla dado su indice lineal
+	 * {@code row*cols+col}.
+	 */
+	public int fromLinear(int cell) {
+		return padded[cell];
+	}
+
+	/**
+	 * Consults the linear index {@code row*cols+col} of a padded index.
+	 * <p>
+	 * Devuelve el indice lineal {@code row*cols+col} de un indice con borde.
+	 *
+	 * @return The linear index, or -1 if {@code i} is a sentinel cell.
+	 */
+	public int toLinear(int i) {
+		return linear[i];
+	}
+
+	/**
+	 * Checks if a padded index is a cell of the board (i.e., not a sentinel).
+	 * <p>
+	 * Comprueba si un indice con borde es una casilla del tablero (es decir,
+	 * no es centinela).
+	 */
+	public boolean isInside(int i) {
+		return linear[i] >= 0;
+	}
+
+	/**
+	 * Consults the row of a padded index of the board.
+	 * <p>
+	 * Devuelve la fila de un indice con borde del tablero.
+	 */
+	public int row(int i) {
+		return i / stride - BORDER;
+	}
+
+	/**
+	 * Consults the column of a padded index of the board.
+	 * <p>
+	 * Devuelve la columna de un indice con borde del tablero.
+	 */
+	public int col(int i) {
+		return i % stride - BORDER;
+	}
+
+	/**
+	 * Consults the offsets of the 8 cells at distance 1 (in the infinite norm).
+	 * The layout is shared by every board of the same dimension, so this is a
+	 * copy; loops that run on every move should use {@link #ring1(int)}.
+	 *
+	 * <p>
+	 * Devuelve los desplazamientos de las 8 casillas a distancia 1 (en la norma
+	 * infinito). La disposicion la comparten todos los tableros de la misma
+	 * dimension, asi que es una copia; los bucles que se ejecutan en cada
+	 * movimiento deben usar {@link #ring1(int)}.
+	 */
+	public int[] ring1() {
+		return ring1.clone();
+	}
+
+	/**
+	 * Consults the offset of the {@code k}-th cell at distance 1, with
+	 * {@code 0 <= k < }{@link #RING1_SIZE}.
+	 * <p>
+	 * Devuelve el desplazamiento de la {@code k}-esima casilla a distancia 1,
+	 * con {@code 0 <= k < }{@link #RING1_SIZE}.
+	 */
+	public int ring1(int k) {
+		return ring1[k];
+	}
+
+	/**
+	 * Consults the offsets of the 16 cells at distance 2 (in the infinite
+	 * norm), as a copy (see {@link #ring1()}).
+	 *
+	 * <p>
+	 * Devuelve los desplazamientos de las 16 casillas a distancia 2 (en la
+	 * norma infinito), como una copia (vease {@link #ring1()}).
+	 */
+	public int[] ring2() {
+		return ring2.clone();
+	}
+
+	/**
+	 * Consults the offset of the {@code k}-th cell at distance 2, with
+	 * {@code 0 <= k < }{@link #RING2_SIZE}.
+	 * <p>
+	 * Devuelve el desplazamiento de la {@code k}-esima casilla a distancia 2,
+	 * con {@code 0 <= k < }{@link #RING2_SIZE}.
+	 */
+	public int ring2(int k) {
+		return ring2[k];
+	}
+
+}
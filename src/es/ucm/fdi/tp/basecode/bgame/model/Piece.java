@@ -37,6 +37,26 @@ public class Piece implements java.io.Serializable {
 	 */
 	private String id;
 
+	/**
+	 * The ordinal of the identifier in {@link PieceRegistry}, equal pieces
+	 * have the same ordinal. It is not serialized, since it depends on the
+	 * order in which identifiers are registered in each execution.
+	 * 
+	 * <p>
+	 * Ordinal del identificador en {@link PieceRegistry}, las fichas iguales
+	 * tienen el mismo ordinal. No se serializa, ya que depende del orden en
+	 * que se registran los identificadores en cada ejecucion.
+	 */
+	private transient int ordinal;
+
+	/**
+	 * The hash code of the piece, computed once from the identifier.
+	 * <p>
+	 * Codigo hash de la ficha, calculado una sola vez a partir del
+	 * identificador.
+	 */
+	private transient int hash;
+
 	/**
 	 * A counter to be used for automatically assigning an identifier to a
 	 * piece.
@@ -67,6 +87,7 @@ public class Piece implements java.io.Serializable {
 	 */
 	public Piece() {
 		id = generateId();
+		intern();
 	}
 
 	/**
@@ -88,11 +109,34 @@ public class Piece implements java.io.Serializable {
 
 		if (validPieceId(id)) {
 			this.id = id;
+			intern();
 		} else {
 			throw new GameError("Invalid Piece identifier '" + id + "'. It must be whitespace free.");
 		}
 	}
 
+	/**
+	 * Computes the ordinal and the hash code of the piece from its identifier.
+	 * 
+	 * <p>
+	 * Calcula el ordinal y el codigo hash de la ficha a partir de su
+	 * identificador.
+	 */
+	private void intern() {
+		ordinal = PieceRegistry.ordinalOf(id);
+		hash = 31 + id.hashCode();
+	}
+
+	/**
+	 * Recomputes the transient fields after deserializing the piece.
+	 * <p>
+	 * Vuelve a calcular los campos transitorios al deserializar la ficha.
+	 */
+	private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		intern();
+	}
+
 	/**
 	 * Generates a piece identifier. It first generates A,B,...,Z. Then
 	 * A1,....,Z1. Then A2,...,Z2. Etc.
@@ -158,12 +202,25 @@ public class Piece implements java.io.Serializable {
 		return id;
 	}
 
+	/**
+	 * Consults the ordinal of the piece (see {@link PieceRegistry}). Two pieces
+	 * are equal if and only if they have the same ordinal, and ordinals are
+	 * small and dense, so they can be used to index arrays.
+	 * 
+	 * <p>
+	 * Devuelve el ordinal de la ficha (vease {@link PieceRegistry}). Dos fichas
+	 * son iguales si y solo si tienen el mismo ordinal, y los ordinales son
+	 * pequenos y densos, por lo que se pueden utilizar para indexar arrays.
+	 * 
+	 * @return The ordinal of the piece.
+	 */
+	public int getOrdinal() {
+		return ordinal;
+	}
+
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((id == null) ? 0 : id.hashCode());
-		return result;
+		return hash;
 	}
 
 	@Override
@@ -174,13 +231,8 @@ public class Piece implements java.io.Serializable {
 			return false;
 		if (getClass() != obj.getClass())
 			return false;
-		Piece other = (Piece) obj;
-		if (id == null) {
-			if (other.id != null)
-				return false;
-		} else if (!id.equals(other.id))
-			return false;
-		return true;
+		// same ordinal iff same identifier
+		return ordinal == ((Piece) obj).ordinal;
 	}
 
 	@Override
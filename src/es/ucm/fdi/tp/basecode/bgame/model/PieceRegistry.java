@@ -0,0 +1,136 @@
+package es.ucm.fdi.tp.basecode.bgame.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A registry that gives every piece identifier a dense small-integer ordinal:
+ * 0 for the first identifier ever used, 1 for the next one, and so on. Since
+ * pieces with the same identifier are equal, equal pieces have the same
+ * ordinal, and boards, piece-counters, etc. can index arrays by
+ * {@link Piece#getOrdinal()} instead of hashing identifiers. The obstacle is a
+ * well-known piece with ordinal {@link #OBSTACLE_ORDINAL}.
+ *
+ * <p>
+ * The registry only grows with the number of different identifiers used in
+ * the execution (usually a handful), not with the number of pieces, and
+ * boards only size their arrays by the ordinals of the pieces they hold.
+ * Ordinals are not the same in another execution, so they must not be
+ * serialized.
+ *
+ * <p>
+ * Registro que asigna a cada identificador de ficha un ordinal entero pequeno
+ * y denso: 0 para el primer identificador utilizado, 1 para el siguiente, y
+ * asi sucesivamente. Como las fichas con el mismo identificador son iguales,
+ * las fichas iguales tienen el mismo ordinal, y los tableros, contadores de
+ * fichas, etc. pueden indexar arrays por {@link Piece#getOrdinal()} en lugar
+ * de calcular el hash de los identificadores. El obstaculo es una ficha
+ * conocida con ordinal {@link #OBSTACLE_ORDINAL}.
+ *
+ * <p>
+ * El registro solo crece con el numero de identificadores distintos que se
+ * utilizan en la ejecucion (normalmente unos pocos), no con el numero de
+ * fichas, y los tableros solo dimensionan sus arrays por los ordinales de
+ * las fichas que contienen. Los ordinales no son los mismos en otra
+ * ejecucion, por lo que no se deben serializar.
+ */
+public class PieceRegistry {
+
+	/**
+	 * The ordinal of each registered identifier.
+	 * <p>
+	 * El ordinal de cada identificador registrado.
+	 */
+	private static final Map<String, Integer> ordinals = new HashMap<String, Integer>();
+
+	/**
+	 * The registered identifiers, indexed by their ordinal.
+	 * <p>
+	 * Los identificadores registrados, indexados por su ordinal.
+	 */
+	private static final List<String> ids = new ArrayList<String>();
+
+	/**
+	 * The identifier of the obstacle piece.
+	 * <p>
+	 * Identificador de la ficha de obstaculo.
+	 */
+	public static final String OBSTACLE_ID = "*";
+
+	/**
+	 * The ordinal of the obstacle piece, it is the first registered one.
+	 * <p>
+	 * Ordinal de la ficha de obstaculo, es la primera que se registra.
+	 */
+	public static final int OBSTACLE_ORDINAL = 0;
+
+	/**
+	 * The obstacle piece, to be shared by all the games that need obstacles.
+	 * <p>
+	 * La ficha de obstaculo, para que la compartan todos los juegos que
+	 * utilizan obstaculos.
+	 */
+	public static final Piece OBSTACLE = new Piece(OBSTACLE_ID);
+
+	private PieceRegistry() {
+	}
+
+	/**
+	 * Consults the ordinal of a piece identifier, registering it if it was not
+	 * registered yet.
+	 *
+	 * <p>
+	 * Devuelve el ordinal de un identificador de ficha, registrandolo si no lo
+	 * estaba.
+	 *
+	 * @param id
+	 *            A piece identifier.
+	 * @return The ordinal of {@code id}.
+	 */
+	static synchronized int ordinalOf(String id) {
+		Integer ordinal = ordinals.get(id);
+		if (ordinal == null) {
+			ordinal = ordinals.size();
+			ordinals.put(id, ordinal);
+			ids.add(id);
+		}
+		return ordinal;
+	}
+
+	/**
+	 * Consults the identifier registered with a given ordinal.
+	 * <p>
+	 * Devuelve el identificador registrado con un ordinal dado.
+	 *
+	 * @param ordinal
+	 *            An ordinal smaller than {@link #size()}.
+	 * @return The identifier with ordinal {@code ordinal}.
+	 */
+	static synchronized String idOf(int ordinal) {
+		return ids.get(ordinal);
+	}
+
+	/**
+	 * Consults the number of registered identifiers. All the ordinals given so
+	 * far are smaller than this number.
+	 *
+	 * <p>
+	 * Devuelve el numero de identificadores registrados. Todos los ordinales
+	 * asignados hasta ahora son menores que este numero.
+	 */
+	public static synchronized int size() {
+		return ordinals.size();
+	}
+
+	/**
+	 * Checks if a piece is the obstacle.
+	 * <p>
+	 * Comprueba si una ficha es el obstaculo.
+	 */
+	public static boolean isObstacle(Piece p) {
+		return p != null && p.getOrdinal() == OBSTACLE_ORDINAL;
+	}
+
+}
@@ -49,11 +49,31 @@ public class ReadOnlyBoard implements Board {
 		throw new UnsupportedOperationException("Cannot modify a readonly board");
 	}
 
+	/**
+	 * Consults the encapsulated board, so that code that knows its concrete
+	 * class (e.g., the rules of a game) can read it in place, instead of
+	 * through a copy. The board must not be modified through it.
+	 * 
+	 * <p>
+	 * Devuelve el tablero encapsulado, para que el codigo que conoce su clase
+	 * concreta (por ejemplo, las reglas de un juego) pueda leerlo
+	 * directamente, en lugar de a traves de una copia. El tablero no se debe
+	 * modificar a traves de el.
+	 */
+	public Board getWrappedBoard() {
+		return board;
+	}
+
 	@Override
 	public Integer getPieceCount(Piece p) {
 		return board.getPieceCount(p);
 	}
 
+	@Override
+	public int getPieceCountValue(Piece p) {
+		return board.getPieceCountValue(p);
+	}
+
 	@Override
 	public Board copy() {
 		return board.copy();
@@ -74,6 +94,21 @@ public class ReadOnlyBoard implements Board {
 		return board.getPosition(row, col);
 	}
 
+	@Override
+	public long getZobristKey(Piece turn) {
+		return board.getZobristKey(turn);
+	}
+
+	@Override
+	public int getNumOfEmptyCells() {
+		return board.getNumOfEmptyCells();
+	}
+
+	@Override
+	public int getEmptyCell(int k) {
+		return board.getEmptyCell(k);
+	}
+
 	@Override
 	public boolean isFull() {
 		return board.isFull();
@@ -114,4 +149,17 @@ public class ReadOnlyBoard implements Board {
 	public void setPieceCount(Piece p, Integer n) {
 		error();
 	}
+
+	/**
+	 * No supported in a read only board. It throws
+	 * {@link UnsupportedOperationException}
+	 * 
+	 * <p>
+	 * No permitido en un tablero de solo lectura. Lanza
+	 * {@link UnsupportedOperationException}
+	 */
+	@Override
+	public void addPieceCount(Piece p, int delta) {
+		error();
+	}
 }
@@ -0,0 +1,103 @@
+package es.ucm.fdi.tp.basecode.bgame.model;
+
+/**
+ * The 8 symmetries of a square (the dihedral group of order 8): rotations by
+ * 0, 90, 180 and 270 degrees (clockwise), the two mirrors and the two
+ * diagonal reflections. A symmetry maps the cell ({@code row},{@code col}) of
+ * a board of {@code rows} x {@code cols} to a cell of the transformed board,
+ * which is {@code cols} x {@code rows} when the symmetry swaps the axes.
+ * Rectangular boards only have the symmetries that do not swap the axes.
+ *
+ * <p>
+ * Las 8 simetrias de un cuadrado (el grupo diedrico de orden 8): los giros de
+ * 0, 90, 180 y 270 grados (en el sentido de las agujas del reloj), los dos
+ * espejos y las dos reflexiones diagonales. Una simetria lleva la casilla
+ * ({@code row},{@code col}) de un tablero de {@code rows} x {@code cols} a una
+ * casilla del tablero transformado, que es de {@code cols} x {@code rows}
+ * cuando la simetria intercambia los ejes. Los tableros rectangulares solo
+ * tienen las simetrias que no intercambian los ejes.
+ */
+public enum Symmetry {
+
+	IDENTITY, ROTATE_90, ROTATE_180, ROTATE_270, FLIP_ROWS, FLIP_COLS, TRANSPOSE, ANTI_TRANSPOSE;
+
+	/**
+	 * Consults the row of the image of ({@code row},{@code col}).
+	 * <p>
+	 * Devuelve la fila de la imagen de ({@code row},{@code col}).
+	 */
+	public int row(int row, int col, int rows, int cols) {
+		switch (this) {
+		case ROTATE_90:
+		case TRANSPOSE:
+			return col;
+		case ROTATE_180:
+		case FLIP_ROWS:
+			return rows - 1 - row;
+		case ROTATE_270:
+		case ANTI_TRANSPOSE:
+			return cols - 1 - col;
+		default:
+			return row;
+		}
+	}
+
+	/**
+	 * Consults the column of the image of ({@code row},{@code col}).
+	 * <p>
+	 * Devuelve la columna de la imagen de ({@code row},{@code col}).
+	 */
+	public int col(int row, int col, int rows, int cols) {
+		switch (this) {
+		case ROTATE_90:
+		case ANTI_TRANSPOSE:
+			return rows - 1 - row;
+		case ROTATE_180:
+		case FLIP_COLS:
+			return cols - 1 - col;
+		case ROTATE_270:
+		case TRANSPOSE:
+			return row;
+		default:
+			return col;
+		}
+	}
+
+	/**
+	 * Checks if the symmetry exchanges rows and columns.
+	 * <p>
+	 * Comprueba si la simetria intercambia filas y columnas.
+	 */
+	public boolean swapsAxes() {
+		return this == ROTATE_90 || this == ROTATE_270 || this == TRANSPOSE || this == ANTI_TRANSPOSE;
+	}
+
+	/**
+	 * Checks if the symmetry maps a board of {@code rows} x {@code cols} onto
+	 * itself.
+	 *
+	 * <p>
+	 * Comprueba si la simetria lleva un tablero de {@code rows} x {@code cols}
+	 * sobre si mismo.
+	 */
+	public boolean appliesTo(int rows, int cols) {
+		return rows == cols || !swapsAxes();
+	}
+
+	/**
+	 * Consults the symmetry that undoes this one.
+	 * <p>
+	 * Devuelve la simetria que deshace esta.
+	 */
+	public Symmetry inverse() {
+		switch (this) {
+		case ROTATE_90:
+			return ROTATE_270;
+		case ROTATE_270:
+			return ROTATE_90;
+		default:
+			return this;
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+package es.ucm.fdi.tp.basecode.bgame.model;
+
+import java.util.List;
+
+/**
+ * Turn rotation for games where some players may have to pass (e.g., they
+ * have been eliminated or cannot move). The rules describe the players that
+ * can play as a bit mask, bit {@code i} standing for the {@code i}-th piece of
+ * the list of players, and the next one is found with a couple of bit
+ * operations, so the rotation never loops over the players more than once
+ * and never hangs when nobody can play.
+ *
+ * <p>
+ * Rotacion de turnos para juegos en los que algunos jugadores pueden tener
+ * que pasar (por ejemplo, porque han sido eliminados o no pueden mover). Las
+ * reglas describen los jugadores que pueden jugar como una mascara de bits,
+ * en la que el bit {@code i} representa la {@code i}-esima ficha de la lista
+ * de jugadores, y el siguiente se encuentra con un par de operaciones de bits,
+ * por lo que la rotacion nunca recorre los jugadores mas de una vez y nunca se
+ * queda colgada cuando nadie puede jugar.
+ */
+public class TurnRotation {
+
+	/**
+	 * Maximum number of players supported, the bits of an {@code int}.
+	 * <p>
+	 * Numero maximo de jugadores permitido, los bits de un {@code int}.
+	 */
+	public static final int MAX_PLAYERS = Integer.SIZE;
+
+	private TurnRotation() {
+	}
+
+	/**
+	 * Consults the first player after {@code lastPlayer}, in the order of
+	 * {@code pieces} and wrapping around, whose bit is set in
+	 * {@code playable}. {@code lastPlayer} itself is the last candidate.
+	 *
+	 * <p>
+	 * Devuelve el primer jugador despues de {@code lastPlayer}, en el orden de
+	 * {@code pieces} y volviendo al principio, cuyo bit esta activo en
+	 * {@code playable}. El propio {@code lastPlayer} es el ultimo candidato.
+	 *
+	 * @param pieces
+	 *            The pieces of the players.
+	 *            <p>
+	 *            Las fichas de los jugadores.
+	 * @param lastPlayer
+	 *            The piece that has played last, or {@code null} to start
+	 *            from the first player.
+	 *            <p>
+	 *            La ficha que ha jugado la ultima, o {@code null} para
+	 *            empezar por el primer jugador.
+	 * @param playable
+	 *            The mask of the players that can play.
+	 *            <p>
+	 *            Mascara de los jugadores que pueden jugar.
+	 * @return The next player, or {@code null} if {@code playable} is 0.
+	 */
+	public static Piece next(List<Piece> pieces, Piece lastPlayer, int playable) {
+		if (pieces.size() > MAX_PLAYERS) {
+			throw new GameError("Turn rotation supports at most " + MAX_PLAYERS + " players");
+		}
+		playable &= mask(pieces.size());
+		if (playable == 0) {
+			return null;
+		}
+		int last = pieces.indexOf(lastPlayer);
+		int after = last + 1 < MAX_PLAYERS ? playable & (-1 << (last + 1)) : 0;
+		return pieces.get(Integer.numberOfTrailingZeros(after != 0 ? after : playable));
+	}
+
+	/**
+	 * Consults the mask with the bits of {@code n} players set.
+	 * <p>
+	 * Devuelve la mascara con los bits de {@code n} jugadores activos.
+	 */
+	public static int mask(int n) {
+		return n >= MAX_PLAYERS ? -1 : (1 << n) - 1;
+	}
+
+}
@@ -0,0 +1,92 @@
+package es.ucm.fdi.tp.basecode.bgame.model;
+
+/**
+ * Keys for Zobrist hashing of boards. The hash of a board is the XOR of the key
+ * of every (piece, cell) pair in it, so it can be updated in O(1) each time a
+ * cell changes, and the key of the player to move can be mixed in as well.
+ *
+ * <p>
+ * Instead of a table of random numbers, each key is obtained by scrambling the
+ * hash code of the piece and the index of the cell with the finalizer of
+ * SplitMix64. Thus the keys do not depend on the order in which pieces appear,
+ * and the same position has the same hash in any board and in any game.
+ *
+ * <p>
+ * Claves para el hashing de Zobrist de tableros. El hash de un tablero es el
+ * XOR de la clave de cada par (ficha, casilla) que contiene, por lo que se
+ * puede actualizar en O(1) cada vez que cambia una casilla, y se puede
+ * combinar tambien con la clave del jugador al que le toca mover.
+ *
+ * <p>
+ * En lugar de una tabla de numeros aleatorios, cada clave se obtiene mezclando
+ * el codigo hash de la ficha y el indice de la casilla con el finalizador de
+ * SplitMix64. Asi las claves no dependen del orden en el que aparecen las
+ * fichas, y la misma posicion tiene el mismo hash en cualquier tablero y en
+ * cualquier partida.
+ */
+public class Zobrist {
+
+	/**
+	 * Constant used to separate the keys of the player to move from the keys
+	 * of the cells.
+	 *
+	 * <p>
+	 * Constante para separar las claves del jugador que mueve de las claves de
+	 * las casillas.
+	 */
+	private static final long TURN_SALT = 0x5DEECE66DL;
+
+	private Zobrist() {
+	}
+
+	/**
+	 * Scrambles a 64-bit value (finalizer of SplitMix64).
+	 *
+	 * <p>
+	 * Mezcla un valor de 64 bits (finalizador de SplitMix64).
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Consults the key of piece {@code p} placed at {@code cell}.
+	 *
+	 * <p>
+	 * Devuelve la clave de la ficha {@code p} colocada en la casilla
+	 * {@code cell}.
+	 *
+	 * @param p
+	 *            A piece, if {@code null} (empty cell) the key is 0.
+	 * @param cell
+	 *            Linear index of the cell ({@code row*cols+col}).
+	 * @return The key of the pair.
+	 */
+	public static long cellKey(Piece p, int cell) {
+		if (p == null) {
+			return 0;
+		}
+		return mix(((long) p.hashCode() << 32) + cell + 0x9E3779B97F4A7C15L);
+	}
+
+	/**
+	 * Consults the key of piece {@code p} being the player to move.
+	 *
+	 * <p>
+	 * Devuelve la clave de que le toque mover al jugador de la ficha
+	 * {@code p}.
+	 *
+	 * @param p
+	 *            A piece, if {@code null} the key is 0.
+	 * @return The key of the player to move.
+	 */
+	public static long turnKey(Piece p) {
+		if (p == null) {
+			return 0;
+		}
+		return mix(((long) p.hashCode() << 32) ^ TURN_SALT);
+	}
+
+}
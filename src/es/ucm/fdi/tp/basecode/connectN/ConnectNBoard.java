@@ -0,0 +1,325 @@
+package es.ucm.fdi.tp.basecode.connectN;
+
+import java.util.Arrays;
+
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.FiniteRectBoard;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * A square board for ConnectN that keeps, at any time, the state of every
+ * window of {@code k} consecutive cells (horizontal, vertical or diagonal):
+ * how many pieces of each player it holds. A window is open for a player when
+ * it holds pieces of that player only, and the board keeps how many windows
+ * are open for each player with each number of pieces (its threats). Placing
+ * or removing a piece only updates the windows through its cell, so a win
+ * (an open window with {@code k} pieces) is known in constant time by
+ * {@link #getWinner()}, and evaluation functions can read
+ * {@link #getOpenWindows(Piece, int)} instead of scanning the board. When
+ * {@code k} is the dimension of the board, the windows are just the rows,
+ * columns and the two diagonals. Copies share the window counts, which are
+ * much larger than the cells, until either board changes.
+ *
+ * <p>
+ * Un tablero cuadrado para ConnectN que mantiene en todo momento el estado de
+ * cada ventana de {@code k} casillas consecutivas (horizontal, vertical o
+ * diagonal): cuantas fichas de cada jugador contiene. Una ventana esta
+ * abierta para un jugador cuando solo contiene fichas de ese jugador, y el
+ * tablero mantiene cuantas ventanas estan abiertas para cada jugador con cada
+ * numero de fichas (sus amenazas). Colocar o quitar una ficha solo actualiza
+ * las ventanas que pasan por su casilla, por lo que una victoria (una ventana
+ * abierta con {@code k} fichas) se conoce en tiempo constante con
+ * {@link #getWinner()}, y las funciones de evaluacion pueden leer
+ * {@link #getOpenWindows(Piece, int)} en lugar de recorrer el tablero. Cuando
+ * {@code k} es la dimension del tablero, las ventanas son simplemente las
+ * filas, las columnas y las dos diagonales. Las copias comparten los
+ * contadores de ventanas, mucho mayores que las casillas, hasta que cambia
+ * alguno de los tableros.
+ */
+public class ConnectNBoard extends FiniteRectBoard {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The directions of the windows: horizontal, vertical and the two
+	 * diagonals.
+	 *
+	 * <p>
+	 * Las direcciones de las ventanas: horizontal, vertical y las dos
+	 * diagonales.
+	 */
+	private static final int[] DR = { 0, 1, 1, 1 };
+	private static final int[] DC = { 1, 0, 1, -1 };
+
+	private final int dim;
+
+	/**
+	 * The length of the lines that win.
+	 * <p>
+	 * La longitud de las lineas que ganan.
+	 */
+	private final int k;
+
+	/**
+	 * Size of the window tables: a window is identified by its direction and
+	 * its first cell, as {@code dir*dim*dim+cell}.
+	 *
+	 * <p>
+	 * Tamano de las tablas de ventanas: una ventana se identifica por su
+	 * direccion y su primera casilla, como {@code dir*dim*dim+cell}.
+	 */
+	private final int windows;
+
+	/**
+	 * The pieces placed so far, each one with a slot in {@link #counts} and
+	 * {@link #threats}.
+	 *
+	 * <p>
+	 * Las fichas colocadas hasta el momento, cada una con una posicion en
+	 * {@link #counts} y {@link #threats}.
+	 */
+	private Piece[] owners;
+
+	/**
+	 * The number of pieces of each window, and of each piece in each window
+	 * at {@code slot*windows+window}.
+	 *
+	 * <p>
+	 * Numero de fichas de cada ventana, y de cada ficha en cada ventana en
+	 * {@code slot*windows+window}.
+	 */
+	private int[] total;
+	private int[] counts;
+
+	/**
+	 * Whether {@link #total} and {@link #counts} are shared with a copy of
+	 * this board, or with the board this one is a copy of. They are large
+	 * ({@code 4*dim*dim} ints per piece), so copies share them and the first
+	 * board that changes afterwards clones them (see {@link #unshare()}).
+	 *
+	 * <p>
+	 * Si {@link #total} y {@link #counts} se comparten con una copia de este
+	 * tablero, o con el tablero del que este es una copia. Son grandes
+	 * ({@code 4*dim*dim} enteros por ficha), por lo que las copias los
+	 * comparten y el primer tablero que cambia despues los clona (vease
+	 * {@link #unshare()}).
+	 */
+	private transient boolean shared;
+
+	/**
+	 * The number of windows open for each piece with {@code n} pieces, at
+	 * {@code slot*(k+1)+n}.
+	 *
+	 * <p>
+	 * Numero de ventanas abiertas para cada ficha con {@code n} fichas, en
+	 * {@code slot*(k+1)+n}.
+	 */
+	private int[] threats;
+
+	/**
+	 * Constructs an empty board of {@code dim} x {@code dim} where the lines
+	 * of {@code dim} pieces win.
+	 *
+	 * <p>
+	 * Construye un tablero vacio de {@code dim} x {@code dim} en el que ganan
+	 * las lineas de {@code dim} fichas.
+	 */
+	public ConnectNBoard(int dim) {
+		this(dim, dim);
+	}
+
+	/**
+	 * Constructs an empty board of {@code dim} x {@code dim} where the lines
+	 * of {@code k} pieces win.
+	 *
+	 * <p>
+	 * Construye un tablero vacio de {@code dim} x {@code dim} en el que ganan
+	 * las lineas de {@code k} fichas.
+	 */
+	public ConnectNBoard(int dim, int k) {
+		super(dim, dim);
+		this.dim = dim;
+		this.k = k;
+		this.windows = DR.length * dim * dim;
+		this.owners = new Piece[0];
+		this.total = new int[windows];
+		this.counts = new int[0];
+		this.threats = new int[0];
+	}
+
+	private ConnectNBoard(ConnectNBoard other) {
+		super(other);
+		this.dim = other.dim;
+		this.k = other.k;
+		this.windows = other.windows;
+		this.owners = other.owners.clone();
+		this.total = other.total;
+		this.counts = other.counts;
+		this.shared = true;
+		other.shared = true;
+		this.threats = other.threats.clone();
+	}
+
+	/**
+	 * Consults the length of the lines that win.
+	 * <p>
+	 * Devuelve la longitud de las lineas que ganan.
+	 */
+	public int getLineLength() {
+		return k;
+	}
+
+	@Override
+	public void setCell(int i, Piece p) {
+		Piece old = getCell(i);
+		super.setCell(i, p);
+		if (old != p) {
+			unshare();
+			int cell = getLayout().toLinear(i);
+			if (old != null) {
+				count(slotOf(old), cell, -1);
+			}
+			if (p != null) {
+				count(slotOf(p), cell, 1);
+			}
+		}
+	}
+
+	/**
+	 * Consults the player that has {@code k} pieces in a row, in constant time
+	 * (for a fixed number of players).
+	 *
+	 * <p>
+	 * Devuelve el jugador que tiene {@code k} fichas en linea, en tiempo
+	 * constante (para un numero fijo de jugadores).
+	 *
+	 * @return The piece of the winner, or {@code null} if there is none.
+	 */
+	public Piece getWinner() {
+		for (int s = 0; s < owners.length; s++) {
+			if (threats[s * (k + 1) + k] > 0) {
+				return owners[s];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Consults the number of windows of {@code k} cells that hold exactly
+	 * {@code n} pieces of {@code p} and no other piece, i.e., where {@code p}
+	 * could still make a line and needs {@code k-n} more pieces.
+	 *
+	 * <p>
+	 * Devuelve el numero de ventanas de {@code k} casillas que contienen
+	 * exactamente {@code n} fichas de {@code p} y ninguna otra ficha, es
+	 * decir, en las que {@code p} aun podria hacer una linea y necesita
+	 * {@code k-n} fichas mas.
+	 *
+	 * @param n
+	 *            Between 1 and {@code k}.
+	 */
+	public int getOpenWindows(Piece p, int n) {
+		for (int s = 0; s < owners.length; s++) {
+			if (owners[s] == p) {
+				return threats[s * (k + 1) + n];
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public Board copy() {
+		return new ConnectNBoard(this);
+	}
+
+	/**
+	 * Clones {@link #total} and {@link #counts} if they are shared with
+	 * another board, before changing them.
+	 *
+	 * <p>
+	 * Clona {@link #total} y {@link #counts} si se comparten con otro
+	 * tablero, antes de cambiarlos.
+	 */
+	private void unshare() {
+		if (shared) {
+			total = total.clone();
+			counts = counts.clone();
+			shared = false;
+		}
+	}
+
+	/**
+	 * Adds {@code delta} pieces of the piece in {@code slot} to the windows
+	 * through {@code cell}, moving them between the threat counts.
+	 *
+	 * <p>
+	 * Suma {@code delta} fichas de la ficha de la posicion {@code slot} a las
+	 * ventanas que pasan por {@code cell}, moviendolas entre los contadores
+	 * de amenazas.
+	 */
+	private void count(int slot, int cell, int delta) {
+		int row = cell / dim;
+		int col = cell % dim;
+		for (int d = 0; d < DR.length; d++) {
+			for (int t = 0; t < k; t++) {
+				// the window of direction d that starts t cells before
+				int r = row - t * DR[d];
+				int c = col - t * DC[d];
+				int er = r + (k - 1) * DR[d];
+				int ec = c + (k - 1) * DC[d];
+				if (r < 0 || c < 0 || c >= dim || er >= dim || ec < 0 || ec >= dim) {
+					continue;
+				}
+				int w = d * dim * dim + r * dim + c;
+				track(w, -1);
+				total[w] += delta;
+				counts[slot * windows + w] += delta;
+				track(w, 1);
+			}
+		}
+	}
+
+	/**
+	 * Adds {@code delta} to the threat count of the owner of window
+	 * {@code w}, if it is open for some piece.
+	 *
+	 * <p>
+	 * Suma {@code delta} al contador de amenazas del dueno de la ventana
+	 * {@code w}, si esta abierta para alguna ficha.
+	 */
+	private void track(int w, int delta) {
+		int n = total[w];
+		if (n == 0) {
+			return;
+		}
+		for (int s = 0; s < owners.length; s++) {
+			if (counts[s * windows + w] == n) {
+				threats[s * (k + 1) + n] += delta;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Consults the slot of a piece, adding one if it is new. Pieces are
+	 * compared by reference, as in {@link FiniteRectBoard}.
+	 *
+	 * <p>
+	 * Devuelve la posicion de una ficha, anadiendo una si es nueva. Las fichas
+	 * se comparan por referencia, como en {@link FiniteRectBoard}.
+	 */
+	private int slotOf(Piece p) {
+		for (int s = 0; s < owners.length; s++) {
+			if (owners[s] == p) {
+				return s;
+			}
+		}
+		int s = owners.length;
+		owners = Arrays.copyOf(owners, s + 1);
+		owners[s] = p;
+		counts = Arrays.copyOf(counts, (s + 1) * windows);
+		threats = Arrays.copyOf(threats, (s + 1) * (k + 1));
+		return s;
+	}
+
+}
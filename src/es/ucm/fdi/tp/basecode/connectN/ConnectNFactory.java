@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 
+import es.ucm.fdi.tp.basecode.bgame.control.AIPlayer;
 import es.ucm.fdi.tp.basecode.bgame.control.ConsolePlayer;
 import es.ucm.fdi.tp.basecode.bgame.control.Controller;
 import es.ucm.fdi.tp.basecode.bgame.control.DummyAIPlayer;
@@ -31,21 +32,43 @@ public class ConnectNFactory implements GameFactory {
 
 	private int dim;
 
+	/**
+	 * The number of pieces in a row that win, {@code dim} by default.
+	 * <p>
+	 * Numero de fichas en linea que ganan, {@code dim} por defecto.
+	 */
+	private int k;
+
 	public ConnectNFactory() {
 		this(5);
 	}
 
 	public ConnectNFactory(int dim) {
+		this(dim, dim);
+	}
+
+	/**
+	 * Creates a factory for the k-in-a-row variant (see
+	 * {@link ConnectNRules#ConnectNRules(int, int)}).
+	 * 
+	 * <p>
+	 * Crea una factoria para la variante k en linea (vease
+	 * {@link ConnectNRules#ConnectNRules(int, int)}).
+	 */
+	public ConnectNFactory(int dim, int k) {
 		if (dim < 3) {
 			throw new GameError("Dimension must be at least 3: " + dim);
+		} else if (k < 3 || k > dim) {
+			throw new GameError("The length of the lines must be between 3 and " + dim + ": " + k);
 		} else {
 			this.dim = dim;
+			this.k = k;
 		}
 	}
 
 	@Override
 	public GameRules gameRules() {
-		return new ConnectNRules(dim);
+		return new ConnectNRules(dim, k);
 	}
 
 	@Override
@@ -62,7 +85,11 @@ public class ConnectNFactory implements GameFactory {
 
 	@Override
 	public Player createAIPlayer(AIAlgorithm alg) {
-		return new DummyAIPlayer(createRandomPlayer(), 1000);
+		if (alg != null) {
+			return new AIPlayer(alg);
+		} else {
+			return new DummyAIPlayer(createRandomPlayer(), 1000);
+		}
 	}
 
 	/**
@@ -6,6 +6,7 @@ import es.ucm.fdi.tp.basecode.bgame.model.Board;
 import es.ucm.fdi.tp.basecode.bgame.model.GameError;
 import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
 import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+import es.ucm.fdi.tp.basecode.bgame.model.Symmetry;
 
 /**
  * A Class representing a move for ConnectN.
@@ -38,6 +39,13 @@ public class ConnectNMove extends GameMove {
 	 */
 	protected int col;
 
+	/**
+	 * {@code true} if the move has been executed and not undone yet.
+	 * <p>
+	 * {@code true} si el movimiento se ha ejecutado y aun no se ha deshecho.
+	 */
+	protected transient boolean executed;
+
 	/**
 	 * This constructor should be used ONLY to get an instance of
 	 * {@link ConnectNMove} to generate game moves from strings by calling
@@ -84,11 +92,37 @@ public class ConnectNMove extends GameMove {
 	public void execute(Board board, List<Piece> pieces) {
 		if (board.getPosition(row, col) == null) {
 			board.setPosition(row, col, getPiece());
+			executed = true;
 		} else {
 			throw new GameError("position (" + row + "," + col + ") is already occupied!");
 		}
 	}
 
+	@Override
+	public boolean isUndoable() {
+		return true;
+	}
+
+	/**
+	 * Removes the piece placed by {@link #execute(Board, List)}.
+	 * 
+	 * <p>
+	 * Quita la ficha colocada por {@link #execute(Board, List)}.
+	 */
+	@Override
+	public void undo(Board board, List<Piece> pieces) {
+		if (!executed) {
+			throw new GameError("The move '" + this + "' has not been executed");
+		}
+		board.setPosition(row, col, null);
+		executed = false;
+	}
+
+	@Override
+	public GameMove transform(Symmetry s, int rows, int cols) {
+		return createMove(s.row(row, col, rows, cols), s.col(row, col, rows, cols), getPiece());
+	}
+
 	/**
 	 * This move can be constructed from a string of the form "row SPACE col"
 	 * where row and col are integers representing a position.
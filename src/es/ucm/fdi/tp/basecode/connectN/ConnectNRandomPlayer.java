@@ -30,24 +30,11 @@ public class ConnectNRandomPlayer extends Player {
 			throw new GameError("The board is full, cannot make a random move!!");
 		}
 
-		int rows = board.getRows();
+		// pick an empty cell uniformly, boards keep a set of them so it is
+		// O(1) even when the board is almost full
 		int cols = board.getCols();
-
-		// pick an initial random position
-		int currRow = Utils.randomInt(rows);
-		int currCol = Utils.randomInt(cols);
-
-		// start at (currRow,currColl) and look for the first empty position.
-		while (true) {
-			if (board.getPosition(currRow, currCol) == null) {
-				return createMove(currRow, currCol, p);
-			}
-			currCol = (currCol + 1) % cols;
-			if (currCol == 0) {
-				currRow = (currRow + 1) % rows;
-			}
-		}
-
+		int cell = board.getEmptyCell(Utils.randomInt(board.getNumOfEmptyCells()));
+		return createMove(cell / cols, cell % cols, p);
 	}
 
 	/**
@@ -3,13 +3,16 @@ package es.ucm.fdi.tp.basecode.connectN;
 import java.util.ArrayList;
 import java.util.List;
 
+import es.ucm.fdi.tp.basecode.bgame.Utils;
 import es.ucm.fdi.tp.basecode.bgame.model.Board;
-import es.ucm.fdi.tp.basecode.bgame.model.FiniteRectBoard;
 import es.ucm.fdi.tp.basecode.bgame.model.GameError;
 import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
 import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveBuffer;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveIterator;
 import es.ucm.fdi.tp.basecode.bgame.model.Pair;
 import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+import es.ucm.fdi.tp.basecode.bgame.model.ReadOnlyBoard;
 import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
 
 /**
@@ -20,6 +23,8 @@ import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
  * <li>The player turn in the given order, each placing a piece on an empty
  * cell. The winner is the one who construct a line (horizontal, vertical or
  * diagonal) with N consecutive pieces of the same type.</li>
+ * <li>In the k-in-a-row variant (e.g., gomoku) the line only needs K
+ * consecutive pieces, with 3 <= K <= N.</li>
  * </ul>
  * 
  * <p>
@@ -31,6 +36,8 @@ import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
  * ficha en una casilla vacia. El ganador es el que consigua construir una linea
  * (horizontal, vertical o diagonal) de N fichas consecutivas del mismo tipo.
  * </li>
+ * <li>En la variante k en linea (por ejemplo, gomoku) la linea solo necesita K
+ * fichas consecutivas, con 3 <= K <= N.</li>
  * </ul>
  *
  */
@@ -41,24 +48,61 @@ public class ConnectNRules implements GameRules {
 	//
 	protected final Pair<State, Piece> gameInPlayResult = new Pair<State, Piece>(State.InPlay, null);
 
+	/**
+	 * The directions of the lines: horizontal, vertical and the two
+	 * diagonals.
+	 * 
+	 * <p>
+	 * Las direcciones de las lineas: horizontal, vertical y las dos
+	 * diagonales.
+	 */
+	private static final int[] DR = { 0, 1, 1, 1 };
+	private static final int[] DC = { 1, 0, 1, -1 };
+
 	private int dim;
 
+	/**
+	 * The number of pieces in a row that win.
+	 * <p>
+	 * Numero de fichas en linea que ganan.
+	 */
+	private int k;
+
 	public ConnectNRules(int dim) {
+		this(dim, dim);
+	}
+
+	/**
+	 * Rules of the k-in-a-row variant: the board is {@code dim} x {@code dim}
+	 * and {@code k} pieces in a row win.
+	 * 
+	 * <p>
+	 * Reglas de la variante k en linea: el tablero es de {@code dim} x
+	 * {@code dim} y ganan {@code k} fichas en linea.
+	 */
+	public ConnectNRules(int dim, int k) {
 		if (dim < 3) {
 			throw new GameError("Dimension must be at least 3: " + dim);
+		} else if (k < 3 || k > dim) {
+			throw new GameError("The length of the lines must be between 3 and " + dim + ": " + k);
 		} else {
 			this.dim = dim;
+			this.k = k;
 		}
 	}
 
 	@Override
 	public String gameDesc() {
-		return "ConnectN " + dim + "x" + dim;
+		if (k == dim) {
+			return "ConnectN " + dim + "x" + dim;
+		} else {
+			return "ConnectN " + dim + "x" + dim + " (" + k + " in a row)";
+		}
 	}
 
 	@Override
 	public Board createBoard(List<Piece> pieces) {
-		return new FiniteRectBoard(dim, dim);
+		return new ConnectNBoard(dim, k);
 	}
 
 	@Override
@@ -76,63 +120,71 @@ public class ConnectNRules implements GameRules {
 		return 4;
 	}
 
+	/**
+	 * On a {@link ConnectNBoard} (also behind a {@link ReadOnlyBoard}) the
+	 * winner is known without looking at the cells (see
+	 * {@link ConnectNBoard#getWinner()}), any other board is scanned line by
+	 * line.
+	 * 
+	 * <p>
+	 * En un {@link ConnectNBoard} (tambien detras de un {@link ReadOnlyBoard})
+	 * el ganador se conoce sin mirar las casillas (vease
+	 * {@link ConnectNBoard#getWinner()}), cualquier otro tablero se recorre
+	 * linea a linea.
+	 */
 	@Override
 	public Pair<State, Piece> updateState(Board board, List<Piece> playersPieces, Piece lastPlayer) {
-		int j;
-		Piece p;
-
-		// check rows & cols
-		for (int i = 0; i < dim; i++) {
-			// row i
-			p = board.getPosition(i, 0);
-			if (p != null) {
-				j = 1;
-				while (j < dim && board.getPosition(i, j) == p)
-					j++;
-				if (j == dim)
-					return new Pair<State, Piece>(State.Won, p);
-			}
-
-			// col i
-			p = board.getPosition(0, i);
-			if (p != null) {
-				j = 1;
-				while (j < dim && board.getPosition(j, i) == p)
-					j++;
-				if (j == dim)
-					return new Pair<State, Piece>(State.Won, p);
-			}
+		Piece winner;
+		ConnectNBoard b = asConnectNBoard(board);
+		if (b != null) {
+			winner = b.getWinner();
+		} else {
+			winner = scanWinner(board);
 		}
 
-		// diagonal 1 - left-up to right-bottom
-		p = board.getPosition(0, 0);
-		if (p != null) {
-			j = 1;
-			while (j < dim && board.getPosition(j, j) == p) {
-				j++;
-			}
-			if (j == dim) {
-				return new Pair<State, Piece>(State.Won, p);
-			}
+		if (winner != null) {
+			return new Pair<State, Piece>(State.Won, winner);
+		} else if (board.isFull()) {
+			return new Pair<State, Piece>(State.Draw, null);
+		} else {
+			return gameInPlayResult;
 		}
+	}
 
-		// diagonal 2 - left-bottom to right-up
-		p = board.getPosition(dim - 1, 0);
-		if (p != null) {
-			j = 1;
-			while (j < dim && board.getPosition(dim - j - 1, j) == p) {
-				j++;
-			}
-			if (j == dim) {
-				return new Pair<State, Piece>(State.Won, p);
+	/**
+	 * Looks for a line (row, column or diagonal) with the same piece in all
+	 * its cells.
+	 * 
+	 * <p>
+	 * Busca una linea (fila, columna o diagonal) con la misma ficha en todas
+	 * sus casillas.
+	 * 
+	 * @return The piece of the line, or {@code null} if there is none.
+	 */
+	private Piece scanWinner(Board board) {
+		for (int r = 0; r < dim; r++) {
+			for (int c = 0; c < dim; c++) {
+				Piece p = board.getPosition(r, c);
+				if (p == null) {
+					continue;
+				}
+				for (int d = 0; d < DR.length; d++) {
+					int n = 1;
+					while (n < k && inside(r + n * DR[d], c + n * DC[d])
+							&& board.getPosition(r + n * DR[d], c + n * DC[d]) == p) {
+						n++;
+					}
+					if (n == k) {
+						return p;
+					}
+				}
 			}
 		}
+		return null;
+	}
 
-		if (board.isFull()) {
-			return new Pair<State, Piece>(State.Draw, null);
-		}
-
-		return gameInPlayResult;
+	private boolean inside(int row, int col) {
+		return row >= 0 && row < dim && col >= 0 && col < dim;
 	}
 
 	@Override
@@ -142,23 +194,285 @@ public class ConnectNRules implements GameRules {
 		return pieces.get((i + 1) % pieces.size());
 	}
 
+	/**
+	 * Compares the line potential of {@code turn} with that of its strongest
+	 * opponent. The potential of a player counts its open windows (see
+	 * {@link ConnectNBoard#getOpenWindows(Piece, int)}), each one 4 times as
+	 * much as one with a piece less, leaving out those it cannot complete
+	 * with the pieces it has left (see {@link #piecesLeft(Board, Piece)}).
+	 * The counts are kept by the board as pieces are placed, so the cost does
+	 * not depend on its size (they are read in place, also behind a
+	 * {@link ReadOnlyBoard}); other boards are scanned window by window.
+	 * 
+	 * <p>
+	 * Compara el potencial de lineas de {@code turn} con el de su oponente mas
+	 * fuerte. El potencial de un jugador cuenta sus ventanas abiertas (vease
+	 * {@link ConnectNBoard#getOpenWindows(Piece, int)}), cada una 4 veces mas
+	 * que una con una ficha menos, descartando las que no puede completar con
+	 * las fichas que le quedan (vease {@link #piecesLeft(Board, Piece)}). El
+	 * tablero mantiene los contadores segun se colocan las fichas, por lo que
+	 * el coste no depende de su tamano (se leen directamente, tambien detras
+	 * de un {@link ReadOnlyBoard}); los demas tableros se recorren ventana a
+	 * ventana.
+	 */
 	@Override
 	public double evaluate(Board board, List<Piece> playersPieces, Piece turn) {
-		return 0;
+		ConnectNBoard b = asConnectNBoard(board);
+		int[][] open = b == null ? scanOpenWindows(board, playersPieces) : null;
+
+		double mine = 0;
+		double theirs = 0;
+		for (int i = 0; i < playersPieces.size(); i++) {
+			Piece p = playersPieces.get(i);
+			int[] scanned = open != null ? open[i] : null;
+			if (openWindows(b, scanned, p, k) > 0) {
+				return p.equals(turn) ? 1 : -1;
+			}
+			if (p.equals(turn)) {
+				mine = potential(board, p, b, scanned);
+			} else {
+				theirs = Math.max(theirs, potential(board, p, b, scanned));
+			}
+		}
+		if (mine + theirs == 0) {
+			return 0;
+		}
+		return (mine - theirs) / (mine + theirs);
+	}
+
+	/**
+	 * Weighs the open windows of a player, 4 times more for each piece, that
+	 * it can still complete.
+	 * 
+	 * <p>
+	 * Pondera las ventanas abiertas de un jugador, 4 veces mas por cada ficha,
+	 * que todavia puede completar.
+	 * 
+	 * @param b
+	 *            The {@link ConnectNBoard} behind {@code board}, or
+	 *            {@code null}.
+	 * @param scanned
+	 *            The windows of {@code p} counted by
+	 *            {@link #scanOpenWindows(Board, List)}, when {@code b} is
+	 *            {@code null}.
+	 */
+	private double potential(Board board, Piece p, ConnectNBoard b, int[] scanned) {
+		int left = piecesLeft(board, p);
+		double value = 0;
+		double weight = 1;
+		for (int n = 1; n < k; n++) {
+			weight *= 4;
+			if (k - n <= left) {
+				value += weight * openWindows(b, scanned, p, n);
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Consults the number of open windows of {@code p} with {@code n} pieces,
+	 * straight from the counters of {@code b} or, if it is {@code null}, from
+	 * {@code scanned}.
+	 *
+	 * <p>
+	 * Devuelve el numero de ventanas abiertas de {@code p} con {@code n}
+	 * fichas, directamente de los contadores de {@code b} o, si es
+	 * {@code null}, de {@code scanned}.
+	 */
+	private static int openWindows(ConnectNBoard b, int[] scanned, Piece p, int n) {
+		return b != null ? b.getOpenWindows(p, n) : scanned[n];
+	}
+
+	/**
+	 * Counts the open windows of each player on any board, as
+	 * {@link ConnectNBoard#getOpenWindows(Piece, int)} does on a
+	 * {@link ConnectNBoard}.
+	 * 
+	 * <p>
+	 * Cuenta las ventanas abiertas de cada jugador en cualquier tablero, como
+	 * hace {@link ConnectNBoard#getOpenWindows(Piece, int)} en un
+	 * {@link ConnectNBoard}.
+	 * 
+	 * @return The number of open windows of the {@code i}-th player with
+	 *         {@code n} pieces at {@code [i][n]}.
+	 */
+	private int[][] scanOpenWindows(Board board, List<Piece> playersPieces) {
+		int[][] open = new int[playersPieces.size()][k + 1];
+		for (int r = 0; r < dim; r++) {
+			for (int c = 0; c < dim; c++) {
+				for (int d = 0; d < DR.length; d++) {
+					if (!inside(r + (k - 1) * DR[d], c + (k - 1) * DC[d])) {
+						continue;
+					}
+					Piece owner = null;
+					int n = 0;
+					for (int t = 0; t < k && n >= 0; t++) {
+						Piece q = board.getPosition(r + t * DR[d], c + t * DC[d]);
+						if (q == null) {
+							continue;
+						} else if (owner == null || owner.equals(q)) {
+							owner = q;
+							n++;
+						} else {
+							n = -1;
+						}
+					}
+					int i = owner == null || n < 0 ? -1 : playersPieces.indexOf(owner);
+					if (i >= 0) {
+						open[i][n]++;
+					}
+				}
+			}
+		}
+		return open;
+	}
+
+	/**
+	 * Consults how many more pieces {@code p} can place. There is no limit in
+	 * ConnectN, subclasses where the supply of pieces is limited override it.
+	 * 
+	 * <p>
+	 * Devuelve cuantas fichas mas puede colocar {@code p}. No hay limite en
+	 * ConnectN, las subclases en las que el numero de fichas es limitado lo
+	 * sobrescriben.
+	 */
+	protected int piecesLeft(Board board, Piece p) {
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Gets the {@link ConnectNBoard} behind {@code board}, if any. Players
+	 * receive the board wrapped in a {@link ReadOnlyBoard}, which is unwrapped
+	 * (not copied), so that its counts are only read in place.
+	 * 
+	 * <p>
+	 * Devuelve el {@link ConnectNBoard} que hay detras de {@code board}, si lo
+	 * hay. Los jugadores reciben el tablero encapsulado en un
+	 * {@link ReadOnlyBoard}, que se desencapsula (no se copia), por lo que sus
+	 * contadores solo se leen directamente.
+	 * 
+	 * @return The board, or {@code null} if {@code board} is not a
+	 *         {@link ConnectNBoard}.
+	 */
+	private ConnectNBoard asConnectNBoard(Board board) {
+		while (board instanceof ReadOnlyBoard) {
+			board = ((ReadOnlyBoard) board).getWrappedBoard();
+		}
+		if (board instanceof ConnectNBoard) {
+			return (ConnectNBoard) board;
+		} else {
+			return null;
+		}
 	}
 
 	@Override
 	public List<GameMove> validMoves(Board board, List<Piece> playersPieces, Piece turn) {
-		List<GameMove> moves = new ArrayList<GameMove>();
+		MoveBuffer buffer = new MoveBuffer(board.getNumOfEmptyCells());
+		validMoves(board, playersPieces, turn, buffer);
+		List<GameMove> moves = new ArrayList<GameMove>(buffer.size());
+		for (int i = 0; i < buffer.size(); i++) {
+			moves.add(decodeMove(board, turn, buffer.get(i)));
+		}
+		return moves;
+	}
+
+	/**
+	 * The moves are the empty cells, as {@code row*cols+col}, in row order.
+	 * <p>
+	 * Los movimientos son las casillas vacias, como {@code row*cols+col}, por
+	 * filas.
+	 */
+	@Override
+	public void validMoves(Board board, List<Piece> playersPieces, Piece turn, MoveBuffer moves) {
+		moves.clear();
+		if (canPlace(board, turn)) {
+			for (int i = 0; i < board.getRows(); i++) {
+				addEmptyCells(board, i, moves);
+			}
+		}
+	}
+
+	/**
+	 * Generates the moves one row at a time.
+	 * <p>
+	 * Genera los movimientos fila a fila.
+	 */
+	@Override
+	public MoveIterator moveIterator(final Board board, List<Piece> playersPieces, Piece turn) {
+		final boolean any = canPlace(board, turn);
+		return new MoveIterator(this, board, turn) {
+			private int row = 0;
 
-		for (int i = 0; i < board.getRows(); i++) {
-			for (int j = 0; j < board.getCols(); j++) {
-				if (board.getPosition(i, j) == null) {
-					moves.add(new ConnectNMove(i, j, turn));
+			@Override
+			protected boolean nextGroup(MoveBuffer moves) {
+				if (!any || row == board.getRows()) {
+					return false;
 				}
+				addEmptyCells(board, row++, moves);
+				return true;
 			}
+		};
+	}
+
+	@Override
+	public boolean hasValidMove(Board board, List<Piece> playersPieces, Piece turn) {
+		return canPlace(board, turn) && board.getNumOfEmptyCells() > 0;
+	}
+
+	/**
+	 * Every empty cell is a move, and boards keep an indexable set of them,
+	 * so the move is chosen in constant time instead of sampling the
+	 * iterator.
+	 * 
+	 * <p>
+	 * Cada casilla vacia es un movimiento, y los tableros mantienen un
+	 * conjunto indexable de ellas, por lo que el movimiento se elige en tiempo
+	 * constante en lugar de muestrear el iterador.
+	 */
+	@Override
+	public GameMove randomValidMove(Board board, List<Piece> playersPieces, Piece turn) {
+		if (!hasValidMove(board, playersPieces, turn)) {
+			return null;
 		}
-		return moves;
+		return decodeMove(board, turn, board.getEmptyCell(Utils.randomInt(board.getNumOfEmptyCells())));
+	}
+
+	/**
+	 * Checks if {@code turn} may place a piece at all. Subclasses where
+	 * players can run out of pieces override it.
+	 * 
+	 * <p>
+	 * Comprueba si {@code turn} puede colocar alguna ficha. Las subclases en
+	 * las que los jugadores pueden quedarse sin fichas lo sobrescriben.
+	 */
+	protected boolean canPlace(Board board, Piece turn) {
+		return true;
+	}
+
+	private void addEmptyCells(Board board, int row, MoveBuffer moves) {
+		int cols = board.getCols();
+		for (int j = 0; j < cols; j++) {
+			if (board.getPosition(row, j) == null) {
+				moves.add(row * cols + j);
+			}
+		}
+	}
+
+	@Override
+	public GameMove decodeMove(Board board, Piece turn, int move) {
+		return createMove(move / board.getCols(), move % board.getCols(), turn);
+	}
+
+	/**
+	 * Creates the moves returned by the rules. Subclasses whose moves are a
+	 * subclass of {@link ConnectNMove} override it.
+	 * 
+	 * <p>
+	 * Crea los movimientos que devuelven las reglas. Las subclases cuyos
+	 * movimientos son una subclase de {@link ConnectNMove} lo sobrescriben.
+	 */
+	protected GameMove createMove(int row, int col, Piece p) {
+		return new ConnectNMove(row, col, p);
 	}
 
 }
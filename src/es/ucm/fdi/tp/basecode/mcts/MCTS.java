@@ -0,0 +1,458 @@
+package es.ucm.fdi.tp.basecode.mcts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import es.ucm.fdi.tp.basecode.bgame.model.AIAlgorithm;
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
+import es.ucm.fdi.tp.basecode.bgame.model.GameError;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveBuffer;
+import es.ucm.fdi.tp.basecode.bgame.model.Pair;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * Monte Carlo Tree Search (UCT) that works for any game through its
+ * {@link GameRules}, and runs its playouts on several threads that share a
+ * single tree. Each playout goes down the tree choosing the child with the
+ * best UCB1 bound, expands the node where it stops, plays random moves until
+ * the game ends, and adds the result to the nodes it went through. The chosen
+ * move is the most visited child of the root.
+ *
+ * <p>
+ * The tree needs no locks: the visits and scores of a node are atomic, and
+ * the children of a node are created all at once and published with a single
+ * compare-and-set (if two threads expand a node at the same time, one of the
+ * lists is discarded). A playout counts its visits when it goes down and its
+ * result when it comes back, so while it runs its nodes look like losses to
+ * the other threads (virtual loss), which then spread over other branches.
+ * Moves are generated encoded in {@link MoveBuffer}s, and each thread draws
+ * its random moves from its own generator.
+ *
+ * <p>
+ * Busqueda en arbol Monte Carlo (UCT) que funciona para cualquier juego a
+ * traves de sus {@link GameRules}, y ejecuta sus simulaciones en varios hilos
+ * que comparten un unico arbol. Cada simulacion baja por el arbol eligiendo
+ * el hijo con la mejor cota UCB1, expande el nodo en el que se detiene, juega
+ * movimientos aleatorios hasta que termina la partida, y suma el resultado a
+ * los nodos por los que ha pasado. El movimiento elegido es el hijo de la
+ * raiz mas visitado.
+ *
+ * <p>
+ * El arbol no necesita cerrojos: las visitas y puntuaciones de un nodo son
+ * atomicas, y los hijos de un nodo se crean todos a la vez y se publican con
+ * una unica operacion compare-and-set (si dos hilos expanden un nodo a la
+ * vez, una de las listas se descarta). Una simulacion cuenta sus visitas al
+ * bajar y su resultado al volver, por lo que mientras se ejecuta sus nodos
+ * parecen derrotas para los demas hilos (perdida virtual), que se reparten
+ * asi por otras ramas. Los movimientos se generan codificados en
+ * {@link MoveBuffer}s, y cada hilo obtiene sus movimientos aleatorios de su
+ * propio generador.
+ */
+public class MCTS implements AIAlgorithm, java.io.Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The exploration constant of UCB1.
+	 * <p>
+	 * La constante de exploracion de UCB1.
+	 */
+	public static final double EXPLORATION = Math.sqrt(2);
+
+	/**
+	 * The maximum number of random moves of a playout, after which the game
+	 * counts as a draw.
+	 *
+	 * <p>
+	 * Numero maximo de movimientos aleatorios de una simulacion, tras el que
+	 * la partida cuenta como empate.
+	 */
+	public static final int MAX_PLAYOUT_MOVES = 1000;
+
+	private final int playouts;
+	private final int parallelism;
+
+	private transient ForkJoinPool pool;
+
+	private volatile long lastPlayouts;
+	private volatile long lastTime;
+
+	/**
+	 * Constructs an MCTS with a thread per available processor.
+	 * <p>
+	 * Construye un MCTS con un hilo por procesador disponible.
+	 *
+	 * @param playouts
+	 *            The number of playouts per move, at least 1.
+	 *            <p>
+	 *            Numero de simulaciones por movimiento, al menos 1.
+	 */
+	public MCTS(int playouts) {
+		this(playouts, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructs an MCTS.
+	 * <p>
+	 * Construye un MCTS.
+	 *
+	 * @param playouts
+	 *            The number of playouts per move, at least 1.
+	 *            <p>
+	 *            Numero de simulaciones por movimiento, al menos 1.
+	 * @param parallelism
+	 *            The number of threads, at least 1.
+	 *            <p>
+	 *            Numero de hilos, al menos 1.
+	 */
+	public MCTS(int playouts, int parallelism) {
+		if (playouts < 1) {
+			throw new GameError("The number of playouts must be at least 1: " + playouts);
+		}
+		if (parallelism < 1) {
+			throw new GameError("The number of threads must be at least 1: " + parallelism);
+		}
+		this.playouts = playouts;
+		this.parallelism = parallelism;
+	}
+
+	public int getPlayouts() {
+		return playouts;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Consults the playouts run per second by the last search.
+	 * <p>
+	 * Devuelve las simulaciones ejecutadas por segundo en la ultima busqueda.
+	 */
+	public double getPlayoutsPerSecond() {
+		return lastPlayouts * 1000.0 / Math.max(lastTime, 1);
+	}
+
+	/**
+	 * Consults the time spent by the last search, in milliseconds.
+	 * <p>
+	 * Devuelve el tiempo empleado por la ultima busqueda, en milisegundos.
+	 */
+	public long getSearchTime() {
+		return lastTime;
+	}
+
+	@Override
+	public GameMove getMove(Piece p, Board board, List<Piece> pieces, GameRules rules) {
+		long start = System.currentTimeMillis();
+		Search search = new Search(rules, pieces, p, board.copy());
+		List<Search.Worker> workers = new ArrayList<Search.Worker>(parallelism);
+		for (int i = 0; i < parallelism; i++) {
+			workers.add(search.new Worker());
+		}
+		pool().invoke(search.new Start(workers));
+		lastPlayouts = search.done.get();
+		lastTime = System.currentTimeMillis() - start;
+
+		Node best = null;
+		Node[] children = search.root.children.get();
+		if (children != null) {
+			for (Node child : children) {
+				if (best == null || child.visits.get() > best.visits.get()) {
+					best = child;
+				}
+			}
+		}
+		return best == null ? null : rules.decodeMove(board, p, best.move);
+	}
+
+	/**
+	 * Consults the pool, creating it on the first search.
+	 * <p>
+	 * Devuelve el pool, creandolo en la primera busqueda.
+	 */
+	private synchronized ForkJoinPool pool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(parallelism);
+		}
+		return pool;
+	}
+
+	/**
+	 * Stops the threads of the pool, once the searches in progress finish.
+	 * It should be called when the algorithm is no longer needed; a later
+	 * search creates a new pool.
+	 *
+	 * <p>
+	 * Detiene los hilos del pool, cuando terminan las busquedas en curso. Se
+	 * debe llamar cuando el algoritmo ya no hace falta; una busqueda posterior
+	 * crea un pool nuevo.
+	 */
+	public synchronized void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+	/**
+	 * A node of the tree: the position after {@code mover} plays
+	 * {@code move}. Its score is the sum of the results of its playouts for
+	 * {@code mover}: 2 for a win, 1 for a draw and 0 for a loss.
+	 *
+	 * <p>
+	 * Un nodo del arbol: la posicion tras jugar {@code mover} el movimiento
+	 * {@code move}. Su puntuacion es la suma de los resultados de sus
+	 * simulaciones para {@code mover}: 2 por victoria, 1 por empate y 0 por
+	 * derrota.
+	 */
+	private static final class Node {
+		private final int move;
+		private final Piece mover;
+		private final AtomicInteger visits;
+		private final AtomicLong score;
+
+		/**
+		 * The children, {@code null} until the node is expanded.
+		 * <p>
+		 * Los hijos, {@code null} hasta que se expande el nodo.
+		 */
+		private final AtomicReference<Node[]> children;
+
+		private Node(int move, Piece mover) {
+			this.move = move;
+			this.mover = mover;
+			this.visits = new AtomicInteger();
+			this.score = new AtomicLong();
+			this.children = new AtomicReference<Node[]>();
+		}
+
+		/**
+		 * Consults the UCB1 bound of this node as a child of a node with
+		 * {@code parentVisits} visits.
+		 *
+		 * <p>
+		 * Devuelve la cota UCB1 de este nodo como hijo de un nodo con
+		 * {@code parentVisits} visitas.
+		 */
+		private double bound(double logParentVisits) {
+			int n = visits.get();
+			if (n == 0) {
+				return Double.POSITIVE_INFINITY;
+			}
+			return score.get() / (2.0 * n) + EXPLORATION * Math.sqrt(logParentVisits / n);
+		}
+	}
+
+	/**
+	 * The data shared by all the threads of a search.
+	 * <p>
+	 * Los datos que comparten todos los hilos de una busqueda.
+	 */
+	private final class Search {
+		private final GameRules rules;
+		private final List<Piece> pieces;
+		private final Piece turn;
+		private final Board board;
+		private final Node root;
+
+		/**
+		 * The playouts started and finished so far.
+		 * <p>
+		 * Las simulaciones empezadas y terminadas hasta el momento.
+		 */
+		private final AtomicInteger started;
+		private final AtomicInteger done;
+
+		private Search(GameRules rules, List<Piece> pieces, Piece turn, Board board) {
+			this.rules = rules;
+			this.pieces = pieces;
+			this.turn = turn;
+			this.board = board;
+			this.root = new Node(0, null);
+			this.started = new AtomicInteger();
+			this.done = new AtomicInteger();
+		}
+
+		/**
+		 * Starts the workers from a thread of the pool.
+		 * <p>
+		 * Lanza los trabajadores desde un hilo del pool.
+		 */
+		private final class Start extends RecursiveAction {
+
+			private static final long serialVersionUID = 1L;
+
+			private final List<Worker> workers;
+
+			private Start(List<Worker> workers) {
+				this.workers = workers;
+			}
+
+			@Override
+			protected void compute() {
+				invokeAll(workers);
+			}
+		}
+
+		/**
+		 * A thread of the search, that runs playouts until there are none
+		 * left.
+		 *
+		 * <p>
+		 * Un hilo de la busqueda, que ejecuta simulaciones hasta que no quedan.
+		 */
+		private final class Worker extends RecursiveAction {
+
+			private static final long serialVersionUID = 1L;
+
+			private final Random random;
+			private final MoveBuffer moves;
+			private final List<Node> path;
+
+			private Worker() {
+				this.random = new Random();
+				this.moves = new MoveBuffer();
+				this.path = new ArrayList<Node>();
+			}
+
+			@Override
+			protected void compute() {
+				while (started.getAndIncrement() < playouts) {
+					playout();
+					done.incrementAndGet();
+				}
+			}
+
+			/**
+			 * Runs a playout from the root and adds its result to the nodes
+			 * it went through.
+			 *
+			 * <p>
+			 * Ejecuta una simulacion desde la raiz y suma su resultado a los
+			 * nodos por los que ha pasado.
+			 */
+			private void playout() {
+				Board b = board.copy();
+				Piece turn = Search.this.turn;
+				Node node = root;
+				path.clear();
+				path.add(node);
+				node.visits.incrementAndGet();
+
+				Pair<State, Piece> result = null;
+				while (result == null) {
+					Node[] children = node.children.get();
+					if (children == null) {
+						if (node != root && node.visits.get() <= 1) {
+							break;
+						}
+						children = expand(node, b, turn);
+					}
+					if (children.length == 0) {
+						break;
+					}
+					node = select(children, node.visits.get());
+					node.visits.incrementAndGet();
+					path.add(node);
+					rules.decodeMove(b, turn, node.move).execute(b, pieces);
+					Pair<State, Piece> state = rules.updateState(b, pieces, turn);
+					if (state.getFirst() != State.InPlay) {
+						result = state;
+					} else {
+						turn = rules.nextPlayer(b, pieces, turn);
+						if (turn == null) {
+							result = new Pair<State, Piece>(State.Draw, null);
+						}
+					}
+				}
+				Piece winner = result != null ? result.getSecond() : rollout(b, turn);
+
+				for (Node n : path) {
+					if (n.mover != null) {
+						n.score.addAndGet(winner == null ? 1 : winner.equals(n.mover) ? 2 : 0);
+					}
+				}
+			}
+
+			/**
+			 * Creates the children of {@code node}, one per valid move of
+			 * {@code turn}, unless another thread does it first.
+			 *
+			 * <p>
+			 * Crea los hijos de {@code node}, uno por movimiento valido de
+			 * {@code turn}, salvo que otro hilo lo haga antes.
+			 */
+			private Node[] expand(Node node, Board b, Piece turn) {
+				moves.clear();
+				rules.validMoves(b, pieces, turn, moves);
+				Node[] children = new Node[moves.size()];
+				for (int i = 0; i < children.length; i++) {
+					children[i] = new Node(moves.get(i), turn);
+				}
+				if (!node.children.compareAndSet(null, children)) {
+					children = node.children.get();
+				}
+				return children;
+			}
+
+			private Node select(Node[] children, int parentVisits) {
+				double log = Math.log(Math.max(parentVisits, 1));
+				Node best = children[0];
+				double bestBound = best.bound(log);
+				for (int i = 1; i < children.length; i++) {
+					double bound = children[i].bound(log);
+					if (bound > bestBound) {
+						best = children[i];
+						bestBound = bound;
+					}
+				}
+				return best;
+			}
+
+			/**
+			 * Plays random moves on {@code b} until the game ends.
+			 * <p>
+			 * Juega movimientos aleatorios sobre {@code b} hasta que termina
+			 * la partida.
+			 *
+			 * @return The winner, or {@code null} for a draw.
+			 */
+			private Piece rollout(Board b, Piece turn) {
+				for (int i = 0; i < MAX_PLAYOUT_MOVES; i++) {
+					moves.clear();
+					rules.validMoves(b, pieces, turn, moves);
+					if (moves.isEmpty()) {
+						return null;
+					}
+					int move = moves.get(random.nextInt(moves.size()));
+					rules.decodeMove(b, turn, move).execute(b, pieces);
+					Pair<State, Piece> state = rules.updateState(b, pieces, turn);
+					if (state.getFirst() != State.InPlay) {
+						return state.getSecond();
+					}
+					turn = rules.nextPlayer(b, pieces, turn);
+					if (turn == null) {
+						return null;
+					}
+				}
+				return null;
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "MCTS (" + playouts + " playouts, " + parallelism + " threads)";
+	}
+
+}
@@ -0,0 +1,468 @@
+package es.ucm.fdi.tp.basecode.minmax;
+
+import java.util.List;
+
+import es.ucm.fdi.tp.basecode.bgame.model.AIAlgorithm;
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
+import es.ucm.fdi.tp.basecode.bgame.model.GameError;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveBuffer;
+import es.ucm.fdi.tp.basecode.bgame.model.Pair;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+import es.ucm.fdi.tp.basecode.bgame.model.Zobrist;
+
+/**
+ * MinMax search with alpha-beta pruning that, instead of a fixed depth, is
+ * given a budget per move: a time, a number of nodes, or both. It searches
+ * to depth 1, then 2, and so on, and when the budget runs out in the middle
+ * of an iteration, it stops at once and plays the best move of the last
+ * iteration that was completed. The budget is checked at every node, and the
+ * time also while the moves of a node are ordered, so it is never exceeded by
+ * more than the work of a single node or move. The search stops
+ * before the budget runs out when there is only one move, when a win or a
+ * loss is certain, or when the last iteration reached the end of every line
+ * of play. Each iteration tries first the best moves found by the previous
+ * ones, kept in a {@link TranspositionTable}, so the repeated work is small
+ * and the pruning better.
+ *
+ * <p>
+ * Busqueda MinMax con poda alfa-beta que, en lugar de una profundidad fija,
+ * recibe un presupuesto por movimiento: un tiempo, un numero de nodos, o
+ * ambos. Busca con profundidad 1, despues 2, y asi sucesivamente, y cuando el
+ * presupuesto se acaba en mitad de una iteracion, se detiene inmediatamente y
+ * juega el mejor movimiento de la ultima iteracion completada. El presupuesto
+ * se comprueba en cada nodo, y el tiempo tambien mientras se ordenan los
+ * movimientos de un nodo, por lo que nunca se supera en mas del trabajo de un
+ * solo nodo o movimiento. La busqueda se detiene antes de que se acabe el presupuesto
+ * cuando solo hay un movimiento, cuando una victoria o una derrota es segura,
+ * o cuando la ultima iteracion llego al final de todas las lineas de juego.
+ * Cada iteracion prueba primero los mejores movimientos encontrados por las
+ * anteriores, guardados en una {@link TranspositionTable}, por lo que el
+ * trabajo repetido es pequeno y la poda mejor.
+ */
+public class IterativeDeepening implements AIAlgorithm, java.io.Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The maximum depth of an iteration.
+	 * <p>
+	 * Profundidad maxima de una iteracion.
+	 */
+	public static final int MAX_DEPTH = 64;
+
+	/**
+	 * The size in MB of the transposition table, when none is given.
+	 * <p>
+	 * Tamano en MB de la tabla de transposicion, cuando no se proporciona.
+	 */
+	public static final int DEFAULT_TABLE_SIZE = 16;
+
+	/**
+	 * The budget per move, 0 meaning no limit.
+	 * <p>
+	 * El presupuesto por movimiento, 0 significa sin limite.
+	 */
+	private final long timeBudget;
+	private final long nodeBudget;
+
+	private transient TranspositionTable table;
+
+	private volatile int lastDepth;
+	private volatile long lastNodes;
+	private volatile long lastTime;
+
+	/**
+	 * Constructs an iterative deepening search with a time budget.
+	 * <p>
+	 * Construye una busqueda en profundidad iterativa con un presupuesto de
+	 * tiempo.
+	 *
+	 * @param timeBudget
+	 *            The time per move in milliseconds, at least 1.
+	 *            <p>
+	 *            El tiempo por movimiento en milisegundos, al menos 1.
+	 */
+	public IterativeDeepening(long timeBudget) {
+		this(timeBudget, 0);
+	}
+
+	/**
+	 * Constructs an iterative deepening search with a time budget, a node
+	 * budget, or both.
+	 *
+	 * <p>
+	 * Construye una busqueda en profundidad iterativa con un presupuesto de
+	 * tiempo, de nodos, o ambos.
+	 *
+	 * @param timeBudget
+	 *            The time per move in milliseconds, or 0 for no limit.
+	 *            <p>
+	 *            El tiempo por movimiento en milisegundos, o 0 para no
+	 *            limitarlo.
+	 * @param nodeBudget
+	 *            The nodes per move, or 0 for no limit.
+	 *            <p>
+	 *            Los nodos por movimiento, o 0 para no limitarlos.
+	 */
+	public IterativeDeepening(long timeBudget, long nodeBudget) {
+		this(timeBudget, nodeBudget, null);
+	}
+
+	/**
+	 * Constructs an iterative deepening search that uses a given
+	 * transposition table, which can be shared with other searches.
+	 *
+	 * <p>
+	 * Construye una busqueda en profundidad iterativa que utiliza una tabla
+	 * de transposicion dada, que se puede compartir con otras busquedas.
+	 *
+	 * @param timeBudget
+	 *            The time per move in milliseconds, or 0 for no limit.
+	 *            <p>
+	 *            El tiempo por movimiento en milisegundos, o 0 para no
+	 *            limitarlo.
+	 * @param nodeBudget
+	 *            The nodes per move, or 0 for no limit.
+	 *            <p>
+	 *            Los nodos por movimiento, o 0 para no limitarlos.
+	 * @param table
+	 *            The table, or {@code null} to create one of
+	 *            {@link #DEFAULT_TABLE_SIZE} MB.
+	 *            <p>
+	 *            La tabla, o {@code null} para crear una de
+	 *            {@link #DEFAULT_TABLE_SIZE} MB.
+	 */
+	public IterativeDeepening(long timeBudget, long nodeBudget, TranspositionTable table) {
+		if (timeBudget < 0 || nodeBudget < 0 || (timeBudget == 0 && nodeBudget == 0)) {
+			throw new GameError("Invalid budget: " + timeBudget + " ms and " + nodeBudget + " nodes");
+		}
+		this.timeBudget = timeBudget;
+		this.nodeBudget = nodeBudget;
+		this.table = table;
+	}
+
+	/**
+	 * Consults the depth of the last iteration completed by the last search.
+	 * <p>
+	 * Devuelve la profundidad de la ultima iteracion completada por la ultima
+	 * busqueda.
+	 */
+	public int getSearchedDepth() {
+		return lastDepth;
+	}
+
+	/**
+	 * Consults the number of nodes visited by the last search.
+	 * <p>
+	 * Devuelve el numero de nodos visitados por la ultima busqueda.
+	 */
+	public long getSearchedNodes() {
+		return lastNodes;
+	}
+
+	/**
+	 * Consults the time spent by the last search, in milliseconds.
+	 * <p>
+	 * Devuelve el tiempo empleado por la ultima busqueda, en milisegundos.
+	 */
+	public long getSearchTime() {
+		return lastTime;
+	}
+
+	@Override
+	public GameMove getMove(Piece p, Board board, List<Piece> pieces, GameRules rules) {
+		long start = System.nanoTime();
+		Search search = new Search(rules, pieces, p, board.copy(), start);
+		int best = search.run();
+		search.table.merge(search.stats);
+		lastDepth = search.completed;
+		lastNodes = search.nodes;
+		lastTime = (System.nanoTime() - start) / 1000000;
+		return best == TranspositionTable.NO_MOVE ? null : rules.decodeMove(board, p, best);
+	}
+
+	/**
+	 * Consults the table, creating it on the first search if none was given.
+	 * <p>
+	 * Devuelve la tabla, creandola en la primera busqueda si no se
+	 * proporciono ninguna.
+	 */
+	private synchronized TranspositionTable table() {
+		if (table == null) {
+			table = new TranspositionTable(DEFAULT_TABLE_SIZE);
+		}
+		return table;
+	}
+
+	/**
+	 * The state of a search for one move.
+	 * <p>
+	 * El estado de la busqueda de un movimiento.
+	 */
+	private final class Search {
+		private final GameRules rules;
+		private final List<Piece> pieces;
+		private final Piece root;
+		private final Board board;
+		private final TranspositionTable table;
+		private final TranspositionTable.Statistics stats;
+
+		/**
+		 * The generation of the entries stored by this search.
+		 * <p>
+		 * La generacion de las entradas que guarda esta busqueda.
+		 */
+		private final int generation;
+
+		private final long rootKey;
+		private final long deadline;
+		private final MoveBuffer[] moves;
+
+		private long nodes;
+		private int completed;
+
+		/**
+		 * Whether the budget has run out.
+		 * <p>
+		 * Si se ha acabado el presupuesto.
+		 */
+		private boolean stopped;
+
+		/**
+		 * Whether the current iteration has left some line unfinished
+		 * because of its depth.
+		 *
+		 * <p>
+		 * Si la iteracion actual ha dejado alguna linea sin terminar por su
+		 * profundidad.
+		 */
+		private boolean truncated;
+
+		private int bestMove;
+
+		private Search(GameRules rules, List<Piece> pieces, Piece root, Board board, long start) {
+			this.rules = rules;
+			this.pieces = pieces;
+			this.root = root;
+			this.board = board;
+			this.table = table();
+			this.stats = new TranspositionTable.Statistics();
+			this.generation = table.newGeneration();
+			this.rootKey = Long.rotateLeft(Zobrist.turnKey(root), 32);
+			this.deadline = timeBudget > 0 ? start + timeBudget * 1000000 : Long.MAX_VALUE;
+			this.moves = new MoveBuffer[MAX_DEPTH + 1];
+			for (int i = 0; i < moves.length; i++) {
+				moves[i] = new MoveBuffer();
+			}
+		}
+
+		/**
+		 * Runs the iterations until the budget runs out or there is nothing
+		 * left to learn.
+		 *
+		 * <p>
+		 * Ejecuta las iteraciones hasta que se acaba el presupuesto o no
+		 * queda nada por aprender.
+		 *
+		 * @return The best move of the last completed iteration, encoded.
+		 */
+		private int run() {
+			MoveBuffer rootMoves = moves[0];
+			rules.validMoves(board, pieces, root, rootMoves);
+			if (rootMoves.isEmpty()) {
+				return TranspositionTable.NO_MOVE;
+			}
+			int best = rootMoves.get(0);
+			if (rootMoves.size() == 1) {
+				return best;
+			}
+			MinMax.order(board, pieces, root, rules, rootMoves, deadline);
+			best = rootMoves.get(0);
+
+			for (int depth = 1; depth <= MAX_DEPTH; depth++) {
+				truncated = false;
+				double v = searchRoot(rootMoves, best, depth);
+				if (stopped) {
+					break;
+				}
+				best = bestMove;
+				completed = depth;
+				if (Math.abs(v) >= MinMax.WIN || !truncated) {
+					break;
+				}
+			}
+			return best;
+		}
+
+		/**
+		 * Searches the root to {@code depth}, trying {@code first} first.
+		 * <p>
+		 * Busca desde la raiz hasta {@code depth}, probando {@code first} el
+		 * primero.
+		 */
+		private double searchRoot(MoveBuffer rootMoves, int first, int depth) {
+			for (int i = 0; i < rootMoves.size(); i++) {
+				if (rootMoves.get(i) == first) {
+					for (int j = i; j > 0; j--) {
+						rootMoves.swap(j, j - 1);
+					}
+					break;
+				}
+			}
+			double best = Double.NEGATIVE_INFINITY;
+			double alpha = Double.NEGATIVE_INFINITY;
+			int move = first;
+			for (int i = 0; i < rootMoves.size() && !stopped; i++) {
+				GameMove m = rules.decodeMove(board, root, rootMoves.get(i));
+				Board child = MinMax.play(board, pieces, m);
+				double v = value(child, root, 1, depth, alpha, Double.POSITIVE_INFINITY);
+				MinMax.unplay(child, pieces, m);
+				if (!stopped && v > best) {
+					best = v;
+					move = rootMoves.get(i);
+				}
+				alpha = Math.max(alpha, v);
+			}
+			bestMove = move;
+			return best;
+		}
+
+		/**
+		 * Consults whether the budget has run out, and remembers it.
+		 * <p>
+		 * Devuelve si se ha acabado el presupuesto, y lo recuerda.
+		 */
+		private boolean outOfBudget() {
+			if (!stopped) {
+				stopped = (nodeBudget > 0 && nodes >= nodeBudget) || System.nanoTime() >= deadline;
+			}
+			return stopped;
+		}
+
+		/**
+		 * Values, for the root player, the position reached after
+		 * {@code last} moves on {@code board}, as in {@link MinMax}.
+		 *
+		 * <p>
+		 * Valora, para el jugador raiz, la posicion a la que se llega cuando
+		 * {@code last} mueve sobre {@code board}, como en {@link MinMax}.
+		 */
+		private double value(Board board, Piece last, int ply, int depth, double alpha, double beta) {
+			nodes++;
+			if (outOfBudget()) {
+				return 0;
+			}
+			int depthLeft = depth - ply;
+			Pair<State, Piece> state = rules.updateState(board, pieces, last);
+			switch (state.getFirst()) {
+			case Won:
+				return MinMax.win(root, state.getSecond(), ply);
+			case Draw:
+				return 0;
+			default:
+				break;
+			}
+			if (depthLeft == 0) {
+				truncated = true;
+				return rules.evaluate(board, pieces, root);
+			}
+			Piece turn = rules.nextPlayer(board, pieces, last);
+			if (turn == null) {
+				return rules.evaluate(board, pieces, root);
+			}
+
+			long key = board.getZobristKey(turn) ^ rootKey;
+			long entry = table.probe(key, stats);
+			boolean complete = TranspositionTable.isComplete(entry);
+			if (entry != TranspositionTable.MISS && (complete || TranspositionTable.depth(entry) >= depthLeft)) {
+				if (!complete) {
+					truncated = true;
+				}
+				double stored = MinMax.fromTable(TranspositionTable.value(entry), ply);
+				switch (TranspositionTable.flag(entry)) {
+				case TranspositionTable.EXACT:
+					return stored;
+				case TranspositionTable.LOWER:
+					alpha = Math.max(alpha, stored);
+					break;
+				default:
+					beta = Math.min(beta, stored);
+					break;
+				}
+				if (alpha >= beta) {
+					return stored;
+				}
+			}
+
+			MoveBuffer buffer = moves[ply];
+			buffer.clear();
+			rules.validMoves(board, pieces, turn, buffer);
+			if (buffer.isEmpty()) {
+				return rules.evaluate(board, pieces, root);
+			}
+			if (depthLeft > 1 && !MinMax.order(board, pieces, turn, rules, buffer, deadline)) {
+				stopped = true;
+				return 0;
+			}
+			int hint = entry != TranspositionTable.MISS ? TranspositionTable.move(entry) : TranspositionTable.NO_MOVE;
+			if (hint != TranspositionTable.NO_MOVE) {
+				for (int i = 0; i < buffer.size(); i++) {
+					if (buffer.get(i) == hint) {
+						for (int j = i; j > 0; j--) {
+							buffer.swap(j, j - 1);
+						}
+						break;
+					}
+				}
+			}
+
+			boolean outer = truncated;
+			truncated = false;
+			boolean max = turn.equals(root);
+			double a = alpha;
+			double b = beta;
+			double best = max ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+			int bestMove = TranspositionTable.NO_MOVE;
+			for (int i = 0; i < buffer.size(); i++) {
+				GameMove move = rules.decodeMove(board, turn, buffer.get(i));
+				Board child = MinMax.play(board, pieces, move);
+				double v = value(child, turn, ply + 1, depth, a, b);
+				MinMax.unplay(child, pieces, move);
+				if (stopped) {
+					return 0;
+				}
+				if (bestMove == TranspositionTable.NO_MOVE || (max ? v > best : v < best)) {
+					best = v;
+					bestMove = buffer.get(i);
+				}
+				if (max) {
+					a = Math.max(a, best);
+				} else {
+					b = Math.min(b, best);
+				}
+				if (a >= b) {
+					break;
+				}
+			}
+			int flag = best <= alpha ? TranspositionTable.UPPER
+					: best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+			// a value that reached the end of every line holds for any depth
+			if (!truncated) {
+				flag |= TranspositionTable.COMPLETE;
+			}
+			table.store(key, truncated ? depthLeft : TranspositionTable.MAX_DEPTH, flag, MinMax.toTable(best, ply),
+					bestMove, generation);
+			truncated |= outer;
+			return best;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Iterative deepening MinMax with alpha-beta (" + timeBudget + " ms, " + nodeBudget + " nodes)";
+	}
+
+}
@@ -0,0 +1,388 @@
+package es.ucm.fdi.tp.basecode.minmax;
+
+import java.util.List;
+
+import es.ucm.fdi.tp.basecode.bgame.model.AIAlgorithm;
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
+import es.ucm.fdi.tp.basecode.bgame.model.GameError;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveBuffer;
+import es.ucm.fdi.tp.basecode.bgame.model.Pair;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * MinMax search, with optional alpha-beta pruning, that works for any game
+ * through its {@link GameRules}. Positions are valued from the point of view
+ * of the player that asks for a move: it maximizes the value in its turns
+ * and every other player minimizes it (for two players, this is the usual
+ * negamax). The leaves of the tree are valued with
+ * {@link GameRules#evaluate(Board, List, Piece)}, and finished games with
+ * {@link #WIN} (preferring the quickest wins and the slowest losses) or 0 for
+ * a draw.
+ *
+ * <p>
+ * The search plays the moves on a single copy of the board and undoes them
+ * afterwards when they are undoable (see {@link GameMove#isUndoable()}), and
+ * generates them encoded in a {@link MoveBuffer} per level, so it does not
+ * create a board or a list per node. When pruning, the moves of each node
+ * (except at the last level) are tried first in the order of their static
+ * value for the player that makes them, which makes the cuts happen earlier.
+ *
+ * <p>
+ * Busqueda MinMax, con poda alfa-beta opcional, que funciona para cualquier
+ * juego a traves de sus {@link GameRules}. Las posiciones se valoran desde el
+ * punto de vista del jugador que pide un movimiento: este maximiza el valor
+ * en sus turnos y los demas jugadores lo minimizan (para dos jugadores, es el
+ * negamax habitual). Las hojas del arbol se valoran con
+ * {@link GameRules#evaluate(Board, List, Piece)}, y las partidas terminadas
+ * con {@link #WIN} (prefiriendo las victorias mas rapidas y las derrotas mas
+ * lentas) o 0 para un empate.
+ *
+ * <p>
+ * La busqueda juega los movimientos sobre una unica copia del tablero y los
+ * deshace despues cuando se pueden deshacer (vease
+ * {@link GameMove#isUndoable()}), y los genera codificados en un
+ * {@link MoveBuffer} por nivel, por lo que no crea un tablero ni una lista
+ * por nodo. Cuando poda, los movimientos de cada nodo (salvo en el ultimo
+ * nivel) se prueban primero en el orden de su valor estatico para el jugador
+ * que los hace, lo que adelanta los cortes.
+ */
+public class MinMax implements AIAlgorithm, java.io.Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The value of a won game, above any value of
+	 * {@link GameRules#evaluate(Board, List, Piece)}.
+	 *
+	 * <p>
+	 * El valor de una partida ganada, por encima de cualquier valor de
+	 * {@link GameRules#evaluate(Board, List, Piece)}.
+	 */
+	public static final double WIN = 1000.0;
+
+	/**
+	 * The largest number of moves from the root that the searches that keep
+	 * values in a {@link TranspositionTable} can look ahead (see
+	 * {@link #win(Piece, Piece, int)}).
+	 *
+	 * <p>
+	 * El mayor numero de movimientos desde la raiz que pueden mirar las
+	 * busquedas que guardan valores en una {@link TranspositionTable} (vease
+	 * {@link #win(Piece, Piece, int)}).
+	 */
+	static final int MAX_PLY = 512;
+
+	/**
+	 * The number of moves (of any player) that the search looks ahead.
+	 * <p>
+	 * Numero de movimientos (de cualquier jugador) que mira la busqueda.
+	 */
+	private final int depth;
+
+	private final boolean useAlphaBeta;
+
+	/**
+	 * Constructs a MinMax with alpha-beta pruning.
+	 * <p>
+	 * Construye un MinMax con poda alfa-beta.
+	 *
+	 * @param depth
+	 *            The number of moves to look ahead, at least 1.
+	 *            <p>
+	 *            Numero de movimientos que se miran, al menos 1.
+	 */
+	public MinMax(int depth) {
+		this(depth, true);
+	}
+
+	/**
+	 * Constructs a MinMax.
+	 * <p>
+	 * Construye un MinMax.
+	 *
+	 * @param depth
+	 *            The number of moves to look ahead, at least 1.
+	 *            <p>
+	 *            Numero de movimientos que se miran, al menos 1.
+	 * @param useAlphaBeta
+	 *            Whether to prune with alpha-beta.
+	 *            <p>
+	 *            Si se poda con alfa-beta.
+	 */
+	public MinMax(int depth, boolean useAlphaBeta) {
+		if (depth < 1) {
+			throw new GameError("The depth of MinMax must be at least 1: " + depth);
+		}
+		this.depth = depth;
+		this.useAlphaBeta = useAlphaBeta;
+	}
+
+	/**
+	 * Consults the number of moves that the search looks ahead.
+	 * <p>
+	 * Devuelve el numero de movimientos que mira la busqueda.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Consults whether the search prunes with alpha-beta.
+	 * <p>
+	 * Devuelve si la busqueda poda con alfa-beta.
+	 */
+	public boolean isUsingAlphaBeta() {
+		return useAlphaBeta;
+	}
+
+	@Override
+	public GameMove getMove(Piece p, Board board, List<Piece> pieces, GameRules rules) {
+		Board copy = board.copy();
+		MoveBuffer[] moves = new MoveBuffer[depth];
+		for (int i = 0; i < depth; i++) {
+			moves[i] = new MoveBuffer();
+		}
+
+		MoveBuffer root = moves[0];
+		rules.validMoves(copy, pieces, p, root);
+		if (root.isEmpty()) {
+			return null;
+		}
+		if (useAlphaBeta && depth > 1) {
+			order(copy, pieces, p, rules, root);
+		}
+
+		GameMove best = null;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		double alpha = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < root.size(); i++) {
+			GameMove move = rules.decodeMove(copy, p, root.get(i));
+			Board child = play(copy, pieces, move);
+			double v = value(child, pieces, rules, p, p, moves, 1, alpha, Double.POSITIVE_INFINITY);
+			unplay(child, pieces, move);
+			if (best == null || v > bestValue) {
+				best = move;
+				bestValue = v;
+			}
+			alpha = Math.max(alpha, v);
+		}
+		return best;
+	}
+
+	/**
+	 * Values the position reached after {@code last} moves on {@code board},
+	 * {@code ply} moves after the root, for {@code root}.
+	 *
+	 * <p>
+	 * Valora la posicion a la que se llega cuando {@code last} mueve sobre
+	 * {@code board}, {@code ply} movimientos despues de la raiz, para
+	 * {@code root}.
+	 */
+	private double value(Board board, List<Piece> pieces, GameRules rules, Piece root, Piece last,
+			MoveBuffer[] moves, int ply, double alpha, double beta) {
+		int depthLeft = depth - ply;
+		Pair<State, Piece> state = rules.updateState(board, pieces, last);
+		switch (state.getFirst()) {
+		case Won:
+			return root.equals(state.getSecond()) ? WIN + depthLeft : -(WIN + depthLeft);
+		case Draw:
+			return 0;
+		default:
+			break;
+		}
+		if (depthLeft == 0) {
+			return rules.evaluate(board, pieces, root);
+		}
+		Piece turn = rules.nextPlayer(board, pieces, last);
+		if (turn == null) {
+			return rules.evaluate(board, pieces, root);
+		}
+
+		MoveBuffer buffer = moves[ply];
+		buffer.clear();
+		rules.validMoves(board, pieces, turn, buffer);
+		if (buffer.isEmpty()) {
+			return rules.evaluate(board, pieces, root);
+		}
+		if (useAlphaBeta && depthLeft > 1) {
+			order(board, pieces, turn, rules, buffer);
+		}
+
+		boolean max = turn.equals(root);
+		double best = max ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+		for (int i = 0; i < buffer.size(); i++) {
+			GameMove move = rules.decodeMove(board, turn, buffer.get(i));
+			Board child = play(board, pieces, move);
+			double v = value(child, pieces, rules, root, turn, moves, ply + 1, alpha, beta);
+			unplay(child, pieces, move);
+			if (max) {
+				best = Math.max(best, v);
+				alpha = Math.max(alpha, best);
+			} else {
+				best = Math.min(best, v);
+				beta = Math.min(beta, best);
+			}
+			if (useAlphaBeta && alpha >= beta) {
+				break;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Sorts {@code moves} by the static value, for {@code turn}, of the
+	 * position after each of them, best first (a shell sort, as the lists
+	 * are short).
+	 *
+	 * <p>
+	 * Ordena {@code moves} por el valor estatico, para {@code turn}, de la
+	 * posicion tras cada uno de ellos, el mejor primero (con shell sort, ya que
+	 * las listas son cortas).
+	 */
+	static void order(Board board, List<Piece> pieces, Piece turn, GameRules rules, MoveBuffer moves) {
+		order(board, pieces, turn, rules, moves, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Same as {@link #order(Board, List, Piece, GameRules, MoveBuffer)}, but
+	 * giving up, and leaving {@code moves} as they were, if
+	 * {@link System#nanoTime()} reaches {@code deadline} while the moves are
+	 * evaluated (with hundreds of moves, that can take long).
+	 *
+	 * <p>
+	 * Igual que {@link #order(Board, List, Piece, GameRules, MoveBuffer)},
+	 * pero abandonando, y dejando {@code moves} como estaban, si
+	 * {@link System#nanoTime()} llega a {@code deadline} mientras se valoran
+	 * los movimientos (con cientos de movimientos, puede tardar).
+	 *
+	 * @return Whether the moves were sorted before the deadline.
+	 */
+	static boolean order(Board board, List<Piece> pieces, Piece turn, GameRules rules, MoveBuffer moves,
+			long deadline) {
+		int n = moves.size();
+		double[] scores = new double[n];
+		for (int i = 0; i < n; i++) {
+			if (deadline != Long.MAX_VALUE && System.nanoTime() >= deadline) {
+				return false;
+			}
+			GameMove move = rules.decodeMove(board, turn, moves.get(i));
+			Board child = play(board, pieces, move);
+			scores[i] = rules.evaluate(child, pieces, turn);
+			unplay(child, pieces, move);
+		}
+		for (int gap = n / 2; gap > 0; gap /= 2) {
+			for (int i = gap; i < n; i++) {
+				for (int j = i; j >= gap && scores[j - gap] < scores[j]; j -= gap) {
+					double s = scores[j];
+					scores[j] = scores[j - gap];
+					scores[j - gap] = s;
+					moves.swap(j, j - gap);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Values, for {@code root}, a game won by {@code winner} {@code ply} moves
+	 * after the root: {@link #WIN} plus the moves left to {@link #MAX_PLY},
+	 * so quicker wins (and slower losses) are preferred. Unlike the
+	 * {@code depthLeft} used by {@link MinMax}, it does not depend on the
+	 * depth of the search, so values of searches of different depths can be
+	 * compared.
+	 *
+	 * <p>
+	 * Valora, para {@code root}, una partida ganada por {@code winner}
+	 * {@code ply} movimientos despues de la raiz: {@link #WIN} mas los
+	 * movimientos que faltan hasta {@link #MAX_PLY}, por lo que se prefieren
+	 * las victorias mas rapidas (y las derrotas mas lentas). A diferencia del
+	 * {@code depthLeft} que usa {@link MinMax}, no depende de la profundidad
+	 * de la busqueda, por lo que se pueden comparar valores de busquedas de
+	 * profundidades distintas.
+	 */
+	static double win(Piece root, Piece winner, int ply) {
+		double value = WIN + MAX_PLY - ply;
+		return root.equals(winner) ? value : -value;
+	}
+
+	/**
+	 * Converts a value found {@code ply} moves after the root, as returned by
+	 * {@link #win(Piece, Piece, int)}, to the value to keep in a
+	 * {@link TranspositionTable}: wins and losses count the moves from the
+	 * position, not from the root, so the entry holds wherever the position
+	 * is reached again (at another ply, or in the search of another move).
+	 *
+	 * <p>
+	 * Convierte un valor encontrado {@code ply} movimientos despues de la
+	 * raiz, como los devuelve {@link #win(Piece, Piece, int)}, al valor que se
+	 * guarda en una {@link TranspositionTable}: las victorias y derrotas
+	 * cuentan los movimientos desde la posicion, no desde la raiz, por lo que
+	 * la entrada vale donde se vuelva a llegar a la posicion (en otro nivel, o
+	 * en la busqueda de otro movimiento).
+	 */
+	static double toTable(double value, int ply) {
+		if (value >= WIN) {
+			return value + ply;
+		} else if (value <= -WIN) {
+			return value - ply;
+		} else {
+			return value;
+		}
+	}
+
+	/**
+	 * Converts a value read from a {@link TranspositionTable} for a position
+	 * {@code ply} moves after the root back to a value from the root (the
+	 * inverse of {@link #toTable(double, int)}).
+	 *
+	 * <p>
+	 * Convierte un valor leido de una {@link TranspositionTable} para una
+	 * posicion {@code ply} movimientos despues de la raiz de vuelta a un
+	 * valor desde la raiz (la inversa de {@link #toTable(double, int)}).
+	 */
+	static double fromTable(double value, int ply) {
+		if (value >= WIN) {
+			return value - ply;
+		} else if (value <= -WIN) {
+			return value + ply;
+		} else {
+			return value;
+		}
+	}
+
+	/**
+	 * Executes {@code move} on {@code board} if it can be undone, or on a copy
+	 * of it otherwise.
+	 *
+	 * <p>
+	 * Ejecuta {@code move} sobre {@code board} si se puede deshacer, o sobre
+	 * una copia suya en otro caso.
+	 *
+	 * @return The board where the move was executed.
+	 */
+	static Board play(Board board, List<Piece> pieces, GameMove move) {
+		Board target = move.isUndoable() ? board : board.copy();
+		move.execute(target, pieces);
+		return target;
+	}
+
+	/**
+	 * Undoes a move executed with {@link #play(Board, List, GameMove)}.
+	 * <p>
+	 * Deshace un movimiento ejecutado con {@link #play(Board, List, GameMove)}.
+	 */
+	static void unplay(Board board, List<Piece> pieces, GameMove move) {
+		if (move.isUndoable()) {
+			move.undo(board, pieces);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return (useAlphaBeta ? "MinMax with alpha-beta" : "MinMax") + " (depth " + depth + ")";
+	}
+
+}
@@ -0,0 +1,606 @@
+package es.ucm.fdi.tp.basecode.minmax;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+import es.ucm.fdi.tp.basecode.bgame.model.AIAlgorithm;
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
+import es.ucm.fdi.tp.basecode.bgame.model.GameError;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveBuffer;
+import es.ucm.fdi.tp.basecode.bgame.model.Pair;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+import es.ucm.fdi.tp.basecode.bgame.model.Zobrist;
+
+/**
+ * MinMax search with alpha-beta pruning that splits the tree over the
+ * threads of a {@link ForkJoinPool} ("Young Brothers Wait"). The positions
+ * are valued as in {@link MinMax}. At each node with at least
+ * {@link #SPLIT_DEPTH} moves left, the first move (the eldest brother, the
+ * best one after move ordering) is searched alone to get a good bound, and
+ * then the rest of moves are searched in parallel with that bound, each one
+ * on its own copy of the board. When one of them causes a cut, the searches
+ * of its brothers are abandoned. All the threads share a
+ * {@link TranspositionTable}, that keeps the values and best moves of the
+ * positions already searched (also from previous moves), and the best move of
+ * a position is always tried first.
+ *
+ * <p>
+ * The number of nodes searched and the time spent in the last search are
+ * kept, so that the speedup of several threads over one can be measured
+ * (with {@link #getNodesPerSecond()} or by comparing
+ * {@link #getSearchTime()}), as {@link SpeedupBenchmark} does.
+ *
+ * <p>
+ * Busqueda MinMax con poda alfa-beta que reparte el arbol entre los hilos de
+ * un {@link ForkJoinPool} ("Young Brothers Wait"). Las posiciones se valoran
+ * como en {@link MinMax}. En cada nodo al que le quedan al menos
+ * {@link #SPLIT_DEPTH} movimientos, el primer movimiento (el hermano mayor,
+ * el mejor tras ordenar los movimientos) se busca solo para obtener una buena
+ * cota, y despues el resto de movimientos se buscan en paralelo con esa cota,
+ * cada uno sobre su propia copia del tablero. Cuando uno de ellos provoca un
+ * corte, las busquedas de sus hermanos se abandonan. Todos los hilos
+ * comparten una {@link TranspositionTable}, que guarda los valores y mejores
+ * movimientos de las posiciones ya buscadas (tambien en movimientos
+ * anteriores), y el mejor movimiento de una posicion siempre se prueba el
+ * primero.
+ *
+ * <p>
+ * Se guardan el numero de nodos buscados y el tiempo empleado en la ultima
+ * busqueda, para que se pueda medir la aceleracion de varios hilos respecto a
+ * uno (con {@link #getNodesPerSecond()} o comparando
+ * {@link #getSearchTime()}), como hace {@link SpeedupBenchmark}.
+ */
+public class ParallelMinMax implements AIAlgorithm, java.io.Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The minimum number of moves left for a node to search its moves in
+	 * parallel. Below it, tasks would be too small to pay for their copies of
+	 * the board.
+	 *
+	 * <p>
+	 * Numero minimo de movimientos restantes para que un nodo busque sus
+	 * movimientos en paralelo. Por debajo, las tareas serian demasiado
+	 * pequenas para compensar sus copias del tablero.
+	 */
+	public static final int SPLIT_DEPTH = 2;
+
+	/**
+	 * The size in MB of the transposition table, when none is given.
+	 * <p>
+	 * Tamano en MB de la tabla de transposicion, cuando no se proporciona.
+	 */
+	public static final int DEFAULT_TABLE_SIZE = 16;
+
+	private final int depth;
+	private final int parallelism;
+
+	private transient ForkJoinPool pool;
+	private transient TranspositionTable table;
+
+	private volatile long lastNodes;
+	private volatile long lastTime;
+
+	/**
+	 * Constructs a parallel MinMax with a thread per available processor.
+	 * <p>
+	 * Construye un MinMax paralelo con un hilo por procesador disponible.
+	 *
+	 * @param depth
+	 *            The number of moves to look ahead, at least 1.
+	 *            <p>
+	 *            Numero de movimientos que se miran, al menos 1.
+	 */
+	public ParallelMinMax(int depth) {
+		this(depth, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructs a parallel MinMax.
+	 * <p>
+	 * Construye un MinMax paralelo.
+	 *
+	 * @param depth
+	 *            The number of moves to look ahead, at least 1.
+	 *            <p>
+	 *            Numero de movimientos que se miran, al menos 1.
+	 * @param parallelism
+	 *            The number of threads, at least 1.
+	 *            <p>
+	 *            Numero de hilos, al menos 1.
+	 */
+	public ParallelMinMax(int depth, int parallelism) {
+		this(depth, parallelism, null);
+	}
+
+	/**
+	 * Constructs a parallel MinMax that uses a given transposition table,
+	 * which can be shared with other searches.
+	 *
+	 * <p>
+	 * Construye un MinMax paralelo que utiliza una tabla de transposicion
+	 * dada, que se puede compartir con otras busquedas.
+	 *
+	 * @param depth
+	 *            The number of moves to look ahead, at least 1.
+	 *            <p>
+	 *            Numero de movimientos que se miran, al menos 1.
+	 * @param parallelism
+	 *            The number of threads, at least 1.
+	 *            <p>
+	 *            Numero de hilos, al menos 1.
+	 * @param table
+	 *            The table, or {@code null} to create one of
+	 *            {@link #DEFAULT_TABLE_SIZE} MB.
+	 *            <p>
+	 *            La tabla, o {@code null} para crear una de
+	 *            {@link #DEFAULT_TABLE_SIZE} MB.
+	 */
+	public ParallelMinMax(int depth, int parallelism, TranspositionTable table) {
+		if (depth < 1 || depth > MinMax.MAX_PLY) {
+			throw new GameError("The depth of MinMax must be between 1 and " + MinMax.MAX_PLY + ": " + depth);
+		}
+		if (parallelism < 1) {
+			throw new GameError("The number of threads must be at least 1: " + parallelism);
+		}
+		this.depth = depth;
+		this.parallelism = parallelism;
+		this.table = table;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Consults the number of nodes visited by the last search.
+	 * <p>
+	 * Devuelve el numero de nodos visitados por la ultima busqueda.
+	 */
+	public long getSearchedNodes() {
+		return lastNodes;
+	}
+
+	/**
+	 * Consults the time spent by the last search, in milliseconds.
+	 * <p>
+	 * Devuelve el tiempo empleado por la ultima busqueda, en milisegundos.
+	 */
+	public long getSearchTime() {
+		return lastTime;
+	}
+
+	/**
+	 * Consults the nodes visited per second by the last search.
+	 * <p>
+	 * Devuelve los nodos visitados por segundo en la ultima busqueda.
+	 */
+	public double getNodesPerSecond() {
+		return lastNodes * 1000.0 / Math.max(lastTime, 1);
+	}
+
+	@Override
+	public GameMove getMove(Piece p, Board board, List<Piece> pieces, GameRules rules) {
+		long start = System.currentTimeMillis();
+		ForkJoinPool pool = pool();
+		Search search = new Search(rules, pieces, p);
+		Search.Worker root = search.new Worker(board.copy(), null, 0, Double.NEGATIVE_INFINITY,
+				Double.POSITIVE_INFINITY, null, TranspositionTable.NO_MOVE);
+		pool.invoke(root);
+		lastNodes = search.nodes.get();
+		lastTime = System.currentTimeMillis() - start;
+		return root.bestMove == TranspositionTable.NO_MOVE ? null : rules.decodeMove(board, p, root.bestMove);
+	}
+
+	/**
+	 * Consults the pool, creating it (and the table, if none was given) on the
+	 * first search.
+	 *
+	 * <p>
+	 * Devuelve el pool, creandolo (y la tabla, si no se proporciono ninguna)
+	 * en la primera busqueda.
+	 */
+	private synchronized ForkJoinPool pool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(parallelism);
+		}
+		if (table == null) {
+			table = new TranspositionTable(DEFAULT_TABLE_SIZE);
+		}
+		return pool;
+	}
+
+	/**
+	 * Stops the threads of the pool, once the searches in progress finish.
+	 * It should be called when the algorithm is no longer needed; a later
+	 * search creates a new pool.
+	 *
+	 * <p>
+	 * Detiene los hilos del pool, cuando terminan las busquedas en curso. Se
+	 * debe llamar cuando el algoritmo ya no hace falta; una busqueda posterior
+	 * crea un pool nuevo.
+	 */
+	public synchronized void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+	/**
+	 * A node whose moves are being searched in parallel. The results of its
+	 * children are gathered here as they finish, and its window narrows with
+	 * them.
+	 *
+	 * <p>
+	 * Un nodo cuyos movimientos se estan buscando en paralelo. Los resultados
+	 * de sus hijos se reunen aqui segun terminan, y su ventana se estrecha con
+	 * ellos.
+	 */
+	private static final class Node {
+		private final Node parent;
+		private final boolean max;
+
+		private double alpha;
+		private double beta;
+		private double best;
+		private int bestMove;
+
+		/**
+		 * Whether a child has caused a cut, so the others can stop.
+		 * <p>
+		 * Si un hijo ha provocado un corte, por lo que los demas pueden parar.
+		 */
+		private volatile boolean cut;
+
+		private Node(Node parent, boolean max, double alpha, double beta) {
+			this.parent = parent;
+			this.max = max;
+			this.alpha = alpha;
+			this.beta = beta;
+			this.best = max ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+			this.bestMove = TranspositionTable.NO_MOVE;
+		}
+
+		/**
+		 * Consults whether the result of this node, or of any of its
+		 * ancestors, is no longer needed.
+		 *
+		 * <p>
+		 * Devuelve si el resultado de este nodo, o de alguno de sus
+		 * antecesores, ya no hace falta.
+		 */
+		private boolean aborted() {
+			for (Node n = this; n != null; n = n.parent) {
+				if (n.cut) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private synchronized void report(double v, int move) {
+			if (bestMove == TranspositionTable.NO_MOVE || (max ? v > best : v < best)) {
+				best = v;
+				bestMove = move;
+			}
+			if (max) {
+				alpha = Math.max(alpha, v);
+			} else {
+				beta = Math.min(beta, v);
+			}
+			if (alpha >= beta) {
+				cut = true;
+			}
+		}
+
+		private synchronized double getAlpha() {
+			return alpha;
+		}
+
+		private synchronized double getBeta() {
+			return beta;
+		}
+	}
+
+	/**
+	 * The data shared by all the tasks of a search.
+	 * <p>
+	 * Los datos que comparten todas las tareas de una busqueda.
+	 */
+	private final class Search {
+		private final GameRules rules;
+		private final List<Piece> pieces;
+		private final Piece root;
+
+		/**
+		 * Mixed into the keys of the table, as values depend on the player
+		 * that searches.
+		 *
+		 * <p>
+		 * Se mezcla con las claves de la tabla, ya que los valores dependen
+		 * del jugador que busca.
+		 */
+		private final long rootKey;
+
+		private final AtomicLong nodes;
+
+		/**
+		 * The generation of the entries stored by this search.
+		 * <p>
+		 * La generacion de las entradas que guarda esta busqueda.
+		 */
+		private final int generation;
+
+		private Search(GameRules rules, List<Piece> pieces, Piece root) {
+			this.rules = rules;
+			this.pieces = pieces;
+			this.root = root;
+			this.rootKey = Long.rotateLeft(Zobrist.turnKey(root), 32);
+			this.nodes = new AtomicLong();
+			this.generation = table.newGeneration();
+		}
+
+		/**
+		 * A task that searches the position reached after {@code last} plays
+		 * {@code move} (or the root, when there is no parent), with its own
+		 * move buffers.
+		 *
+		 * <p>
+		 * Una tarea que busca la posicion a la que se llega cuando
+		 * {@code last} juega {@code move} (o la raiz, cuando no hay padre),
+		 * con sus propios buffers de movimientos.
+		 */
+		private final class Worker extends RecursiveAction {
+
+			private static final long serialVersionUID = 1L;
+
+			private final Board board;
+			private final Piece last;
+			private final int ply;
+			private final double alpha;
+			private final double beta;
+			private final Node parent;
+			private final int move;
+
+			private final MoveBuffer[] moves;
+			private long count;
+			private final TranspositionTable.Statistics stats;
+
+			/**
+			 * The best move of the last node searched by this task.
+			 * <p>
+			 * El mejor movimiento del ultimo nodo buscado por esta tarea.
+			 */
+			private int bestMove;
+
+			private Worker(Board board, Piece last, int ply, double alpha, double beta, Node parent, int move) {
+				this.board = board;
+				this.last = last;
+				this.ply = ply;
+				this.alpha = alpha;
+				this.beta = beta;
+				this.parent = parent;
+				this.move = move;
+				this.moves = new MoveBuffer[depth + 1];
+				this.stats = new TranspositionTable.Statistics();
+				this.bestMove = TranspositionTable.NO_MOVE;
+			}
+
+			@Override
+			protected void compute() {
+				if (parent == null) {
+					searchRoot();
+				} else {
+					double v = value(board, last, ply, alpha, beta, parent);
+					if (!parent.aborted()) {
+						parent.report(v, move);
+					}
+				}
+				nodes.addAndGet(count);
+				table.merge(stats);
+			}
+
+			private MoveBuffer buffer(int ply) {
+				if (moves[ply] == null) {
+					moves[ply] = new MoveBuffer();
+				}
+				MoveBuffer buffer = moves[ply];
+				buffer.clear();
+				return buffer;
+			}
+
+			private void searchRoot() {
+				MoveBuffer buffer = buffer(0);
+				rules.validMoves(board, pieces, root, buffer);
+				if (buffer.isEmpty()) {
+					return;
+				}
+				prepare(board, root, buffer, table.probe(board.getZobristKey(root) ^ rootKey, stats), depth);
+				split(board, root, 0, alpha, beta, null, buffer);
+			}
+
+			/**
+			 * Values, for the root player, the position reached after
+			 * {@code last} moves on {@code board}, as in {@link MinMax}.
+			 *
+			 * <p>
+			 * Valora, para el jugador raiz, la posicion a la que se llega
+			 * cuando {@code last} mueve sobre {@code board}, como en
+			 * {@link MinMax}.
+			 *
+			 * @param split
+			 *            The closest ancestor searched in parallel, to know
+			 *            when the search is no longer needed.
+			 *            <p>
+			 *            El antecesor mas cercano buscado en paralelo, para
+			 *            saber cuando la busqueda ya no hace falta.
+			 */
+			private double value(Board board, Piece last, int ply, double alpha, double beta, Node split) {
+				count++;
+				if (split.aborted()) {
+					return 0;
+				}
+				int depthLeft = depth - ply;
+				Pair<State, Piece> state = rules.updateState(board, pieces, last);
+				switch (state.getFirst()) {
+				case Won:
+					return MinMax.win(root, state.getSecond(), ply);
+				case Draw:
+					return 0;
+				default:
+					break;
+				}
+				if (depthLeft == 0) {
+					return rules.evaluate(board, pieces, root);
+				}
+				Piece turn = rules.nextPlayer(board, pieces, last);
+				if (turn == null) {
+					return rules.evaluate(board, pieces, root);
+				}
+
+				long key = board.getZobristKey(turn) ^ rootKey;
+				long entry = table.probe(key, stats);
+				if (entry != TranspositionTable.MISS && TranspositionTable.depth(entry) >= depthLeft) {
+					double stored = MinMax.fromTable(TranspositionTable.value(entry), ply);
+					switch (TranspositionTable.flag(entry)) {
+					case TranspositionTable.EXACT:
+						return stored;
+					case TranspositionTable.LOWER:
+						alpha = Math.max(alpha, stored);
+						break;
+					default:
+						beta = Math.min(beta, stored);
+						break;
+					}
+					if (alpha >= beta) {
+						return stored;
+					}
+				}
+
+				MoveBuffer buffer = buffer(ply);
+				rules.validMoves(board, pieces, turn, buffer);
+				if (buffer.isEmpty()) {
+					return rules.evaluate(board, pieces, root);
+				}
+				prepare(board, turn, buffer, entry, depthLeft);
+
+				double best;
+				if (depthLeft >= SPLIT_DEPTH && buffer.size() > 1) {
+					best = split(board, turn, ply, alpha, beta, split, buffer);
+				} else {
+					best = sequential(board, turn, ply, alpha, beta, split, buffer);
+				}
+				if (split.aborted()) {
+					return 0;
+				}
+				int flag = best <= alpha ? TranspositionTable.UPPER
+						: best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+				table.store(key, depthLeft, flag, MinMax.toTable(best, ply), bestMove, generation);
+				return best;
+			}
+
+			/**
+			 * Orders the moves of a node: the best move in the table first,
+			 * then by static value.
+			 *
+			 * <p>
+			 * Ordena los movimientos de un nodo: el mejor movimiento de la
+			 * tabla primero, despues por valor estatico.
+			 */
+			private void prepare(Board board, Piece turn, MoveBuffer buffer, long entry, int depthLeft) {
+				if (depthLeft > 1) {
+					MinMax.order(board, pieces, turn, rules, buffer);
+				}
+				int hint = entry != TranspositionTable.MISS ? TranspositionTable.move(entry) : TranspositionTable.NO_MOVE;
+				if (hint != TranspositionTable.NO_MOVE) {
+					for (int i = 0; i < buffer.size(); i++) {
+						if (buffer.get(i) == hint) {
+							for (int j = i; j > 0; j--) {
+								buffer.swap(j, j - 1);
+							}
+							break;
+						}
+					}
+				}
+			}
+
+			private double sequential(Board board, Piece turn, int ply, double alpha, double beta, Node split,
+					MoveBuffer buffer) {
+				boolean max = turn.equals(root);
+				double best = max ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+				int bestMove = TranspositionTable.NO_MOVE;
+				for (int i = 0; i < buffer.size(); i++) {
+					GameMove move = rules.decodeMove(board, turn, buffer.get(i));
+					Board child = MinMax.play(board, pieces, move);
+					double v = value(child, turn, ply + 1, alpha, beta, split);
+					MinMax.unplay(child, pieces, move);
+					if (bestMove == TranspositionTable.NO_MOVE || (max ? v > best : v < best)) {
+						best = v;
+						bestMove = buffer.get(i);
+					}
+					if (max) {
+						alpha = Math.max(alpha, best);
+					} else {
+						beta = Math.min(beta, best);
+					}
+					if (alpha >= beta) {
+						break;
+					}
+				}
+				this.bestMove = bestMove;
+				return best;
+			}
+
+			/**
+			 * Searches the first move alone and then the rest in parallel.
+			 * <p>
+			 * Busca el primer movimiento solo y despues el resto en paralelo.
+			 */
+			private double split(Board board, Piece turn, int ply, double alpha, double beta, Node split,
+					MoveBuffer buffer) {
+				Node node = new Node(split, turn.equals(root), alpha, beta);
+
+				GameMove first = rules.decodeMove(board, turn, buffer.get(0));
+				Board child = MinMax.play(board, pieces, first);
+				double v = value(child, turn, ply + 1, alpha, beta, node);
+				MinMax.unplay(child, pieces, first);
+				node.report(v, buffer.get(0));
+
+				if (!node.aborted()) {
+					List<Worker> brothers = new ArrayList<Worker>(buffer.size() - 1);
+					double a = node.getAlpha();
+					double b = node.getBeta();
+					for (int i = 1; i < buffer.size(); i++) {
+						Board copy = board.copy();
+						rules.decodeMove(copy, turn, buffer.get(i)).execute(copy, pieces);
+						brothers.add(new Worker(copy, turn, ply + 1, a, b, node, buffer.get(i)));
+					}
+					invokeAll(brothers);
+				}
+
+				synchronized (node) {
+					this.bestMove = node.bestMove;
+					return node.best;
+				}
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Parallel MinMax with alpha-beta (depth " + depth + ", " + parallelism + " threads)";
+	}
+
+}
@@ -0,0 +1,172 @@
+package es.ucm.fdi.tp.basecode.minmax;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
+import es.ucm.fdi.tp.basecode.bgame.model.GameError;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+import es.ucm.fdi.tp.basecode.connectN.ConnectNRules;
+
+/**
+ * Measures the speedup of {@link ParallelMinMax}: it searches the same
+ * position with 1 thread and with N threads, each time with a new
+ * transposition table, and reports the times, the nodes searched and the
+ * ratio of the times. Each search is repeated a few times and the fastest
+ * one is kept, after a few searches to warm up the JVM. With more threads
+ * the search usually visits more nodes (the brothers searched in parallel do
+ * not have the bounds they would get one after the other), so the speedup is
+ * smaller than the ratio of nodes per second.
+ *
+ * <p>
+ * Mide la aceleracion de {@link ParallelMinMax}: busca la misma posicion con
+ * 1 hilo y con N hilos, cada vez con una tabla de transposicion nueva, e
+ * informa de los tiempos, los nodos buscados y la proporcion entre los
+ * tiempos. Cada busqueda se repite unas pocas veces y se queda la mas rapida,
+ * tras unas pocas busquedas para calentar la JVM. Con mas hilos la busqueda
+ * suele visitar mas nodos (los hermanos que se buscan en paralelo no tienen
+ * las cotas que tendrian uno detras de otro), por lo que la aceleracion es
+ * menor que la proporcion de nodos por segundo.
+ */
+public class SpeedupBenchmark {
+
+	/**
+	 * The number of searches, with each number of threads, to warm up the
+	 * JVM before timing them.
+	 *
+	 * <p>
+	 * Numero de busquedas, con cada numero de hilos, para calentar la JVM
+	 * antes de cronometrarlas.
+	 */
+	private static final int WARM_UP = 3;
+
+	private SpeedupBenchmark() {
+	}
+
+	/**
+	 * Measures the speedup of {@code parallelism} threads over 1 when
+	 * searching a move for {@code p} on {@code board}.
+	 *
+	 * <p>
+	 * Mide la aceleracion de {@code parallelism} hilos respecto a 1 al buscar
+	 * un movimiento para {@code p} en {@code board}.
+	 *
+	 * @param runs
+	 *            The number of timed searches with each number of threads, at
+	 *            least 1.
+	 *            <p>
+	 *            Numero de busquedas cronometradas con cada numero de hilos,
+	 *            al menos 1.
+	 * @param out
+	 *            Where the results are reported, or {@code null}.
+	 *            <p>
+	 *            Donde se informa de los resultados, o {@code null}.
+	 * @return The time with 1 thread divided by the time with
+	 *         {@code parallelism} threads.
+	 */
+	public static double measure(Piece p, Board board, List<Piece> pieces, GameRules rules, int depth,
+			int parallelism, int runs, PrintStream out) {
+		if (runs < 1) {
+			throw new GameError("The number of runs must be at least 1: " + runs);
+		}
+		// the searches alternate, so that both get the same warm up
+		long[] sequential = null;
+		long[] parallel = null;
+		for (int i = 0; i < WARM_UP + runs; i++) {
+			sequential = fastest(sequential, i, p, board, pieces, rules, depth, 1);
+			parallel = fastest(parallel, i, p, board, pieces, rules, depth, parallelism);
+		}
+		double speedup = (double) sequential[0] / Math.max(parallel[0], 1);
+		if (out != null) {
+			report(out, 1, sequential);
+			report(out, parallelism, parallel);
+			out.printf("Speedup of %d threads: %.2f (%.2f times the nodes)%n", parallelism, speedup,
+					(double) parallel[1] / Math.max(sequential[1], 1));
+		}
+		return speedup;
+	}
+
+	/**
+	 * Times a search with a number of threads.
+	 * <p>
+	 * Cronometra una busqueda con un numero de hilos.
+	 *
+	 * @param best
+	 *            The fastest search so far, or {@code null}.
+	 * @param round
+	 *            The number of the search, the first {@link #WARM_UP} ones
+	 *            are not kept.
+	 * @return The time of the fastest search in nanoseconds, and its nodes.
+	 */
+	private static long[] fastest(long[] best, int round, Piece p, Board board, List<Piece> pieces,
+			GameRules rules, int depth, int parallelism) {
+		ParallelMinMax alg = new ParallelMinMax(depth, parallelism, new TranspositionTable(16));
+		try {
+			long start = System.nanoTime();
+			alg.getMove(p, board, pieces, rules);
+			long time = System.nanoTime() - start;
+			if (round >= WARM_UP && (best == null || time < best[0])) {
+				best = new long[] { time, alg.getSearchedNodes() };
+			}
+		} finally {
+			alg.shutdown();
+		}
+		return best;
+	}
+
+	private static void report(PrintStream out, int parallelism, long[] result) {
+		double ms = result[0] / 1e6;
+		out.printf("%d thread(s): %.1f ms, %d nodes, %.0f nodes/s%n", parallelism, ms, result[1],
+				result[1] * 1000 / Math.max(ms, 1e-3));
+	}
+
+	/**
+	 * Measures the speedup on a fixed position of ConnectN: a board of
+	 * {@code dim} x {@code dim} where {@code k} in a row win, after
+	 * {@code dim} moves chosen with a fixed seed. The arguments are
+	 * {@code [dim [k [depth [threads [runs]]]]]}, by default 7, 4, 5, the
+	 * number of processors and 3.
+	 *
+	 * <p>
+	 * Mide la aceleracion en una posicion fija de ConnectN: un tablero de
+	 * {@code dim} x {@code dim} en el que ganan {@code k} en linea, tras
+	 * {@code dim} movimientos elegidos con una semilla fija. Los argumentos son
+	 * {@code [dim [k [depth [threads [runs]]]]]}, por defecto 7, 4, 5, el
+	 * numero de procesadores y 3.
+	 */
+	public static void main(String[] args) {
+		int dim = args.length > 0 ? Integer.parseInt(args[0]) : 7;
+		int k = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		int depth = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		int runs = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+
+		GameRules rules = new ConnectNRules(dim, k);
+		List<Piece> pieces = new ArrayList<Piece>();
+		pieces.add(new Piece("X"));
+		pieces.add(new Piece("O"));
+		Board board = rules.createBoard(pieces);
+		Piece turn = rules.initialPlayer(board, pieces);
+		Random random = new Random(1);
+		for (int i = 0; i < dim; i++) {
+			List<GameMove> moves = rules.validMoves(board, pieces, turn);
+			GameMove move = moves.get(random.nextInt(moves.size()));
+			move.execute(board, pieces);
+			if (rules.updateState(board, pieces, turn).getFirst() != State.InPlay) {
+				move.undo(board, pieces);
+				break;
+			}
+			turn = rules.nextPlayer(board, pieces, turn);
+		}
+
+		System.out.println(rules.gameDesc() + ", depth " + depth + ", " + turn + " to move:");
+		System.out.println(board);
+		measure(turn, board, pieces, rules, depth, threads, runs, System.out);
+	}
+
+}
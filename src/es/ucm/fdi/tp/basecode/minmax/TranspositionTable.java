@@ -0,0 +1,515 @@
+package es.ucm.fdi.tp.basecode.minmax;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import es.ucm.fdi.tp.basecode.bgame.model.GameError;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveBuffer;
+
+/**
+ * A transposition table of fixed size that any number of search threads, of
+ * any number of games, can share without locks. It keeps, for positions
+ * identified by a 64-bit key (see
+ * {@link es.ucm.fdi.tp.basecode.bgame.model.Board#getZobristKey}), the value
+ * found by a search of some depth, whether that value is exact or a bound,
+ * and the best move found.
+ *
+ * <p>
+ * Each entry is packed in a {@code long} (see {@link #probe(long)}) and
+ * stored in a plain array next to the XOR of the key and the entry. A
+ * reader recomputes that XOR, so an entry that another thread was writing at
+ * the same time (and is therefore torn) does not match its key and is
+ * treated as a miss: no locks or atomic operations are needed. Each position
+ * can only go to one bucket (the low bits of its key), of two slots. A new
+ * entry replaces the one in the first slot if that one was searched to a
+ * smaller or equal depth, or by an older search, and the one in the second
+ * slot otherwise, so deep entries survive while recent ones still find a
+ * place, and the deep entries of past moves do not hold their slot forever.
+ * Each root search takes a generation with {@link #newGeneration()} and
+ * passes it to {@link #store}; entries of any other generation count as old.
+ * The generation is not global state read by the stores, so the searches of
+ * a game do not change how old the entries of the others look while they
+ * run.
+ *
+ * <p>
+ * The table does not count its probes: searches count them in their own
+ * {@link Statistics}, that are not shared, and add them to the table with
+ * {@link #merge(Statistics)} when they end.
+ *
+ * <p>
+ * Una tabla de transposicion de tamano fijo que cualquier numero de hilos de
+ * busqueda, de cualquier numero de partidas, pueden compartir sin cerrojos.
+ * Guarda, para posiciones identificadas por una clave de 64 bits (vease
+ * {@link es.ucm.fdi.tp.basecode.bgame.model.Board#getZobristKey}), el valor
+ * encontrado por una busqueda de cierta profundidad, si ese valor es exacto o
+ * una cota, y el mejor movimiento encontrado.
+ *
+ * <p>
+ * Cada entrada se empaqueta en un {@code long} (vease {@link #probe(long)}) y
+ * se guarda en un array normal junto al XOR de la clave y la entrada. Un
+ * lector vuelve a calcular ese XOR, por lo que una entrada que otro hilo
+ * estaba escribiendo a la vez (y que esta por tanto rota) no coincide con su
+ * clave y se trata como un fallo: no hacen falta cerrojos ni operaciones
+ * atomicas. Cada posicion solo puede ir a un grupo (los bits bajos de su
+ * clave), de dos huecos. Una entrada nueva sustituye a la del primer hueco si
+ * esta se busco a una profundidad menor o igual, o en una busqueda anterior,
+ * y a la del segundo hueco en otro caso, por lo que las entradas profundas
+ * sobreviven mientras que las recientes siguen encontrando sitio, y las
+ * entradas profundas de movimientos pasados no ocupan su hueco para siempre.
+ * Cada busqueda desde la raiz toma una generacion con
+ * {@link #newGeneration()} y la pasa a {@link #store}; las entradas de
+ * cualquier otra generacion cuentan como viejas. La generacion no es un
+ * estado global que lean las escrituras, por lo que las busquedas de una
+ * partida no cambian lo viejas que parecen las entradas de las demas
+ * mientras se ejecutan.
+ *
+ * <p>
+ * La tabla no cuenta sus consultas: las busquedas las cuentan en sus propias
+ * {@link Statistics}, que no se comparten, y las suman a la tabla con
+ * {@link #merge(Statistics)} cuando terminan.
+ */
+public class TranspositionTable {
+
+	/**
+	 * The value is exact.
+	 * <p>
+	 * El valor es exacto.
+	 */
+	public static final int EXACT = 0;
+
+	/**
+	 * The value is a lower bound (the search failed high).
+	 * <p>
+	 * El valor es una cota inferior (la busqueda fallo por arriba).
+	 */
+	public static final int LOWER = 1;
+
+	/**
+	 * The value is an upper bound (the search failed low).
+	 * <p>
+	 * El valor es una cota superior (la busqueda fallo por abajo).
+	 */
+	public static final int UPPER = 2;
+
+	/**
+	 * Added to the flag of an entry whose value reached the end of every line
+	 * of play, so it holds for any depth. {@link #flag(long)} does not
+	 * include it, {@link #isComplete(long)} consults it.
+	 *
+	 * <p>
+	 * Se suma al indicador de una entrada cuyo valor llego al final de todas
+	 * las lineas de juego, por lo que vale para cualquier profundidad.
+	 * {@link #flag(long)} no lo incluye, {@link #isComplete(long)} lo
+	 * consulta.
+	 */
+	public static final int COMPLETE = 4;
+
+	/**
+	 * The move of entries without a best move.
+	 * <p>
+	 * El movimiento de las entradas sin mejor movimiento.
+	 */
+	public static final int NO_MOVE = -1;
+
+	/**
+	 * The result of {@link #probe(long)} when the position is not in the
+	 * table. It is never a valid entry, as their depth is at least 1.
+	 *
+	 * <p>
+	 * El resultado de {@link #probe(long)} cuando la posicion no esta en la
+	 * tabla. Nunca es una entrada valida, ya que su profundidad es al menos 1.
+	 */
+	public static final long MISS = 0;
+
+	/**
+	 * The maximum depth that an entry can keep.
+	 * <p>
+	 * La profundidad maxima que puede guardar una entrada.
+	 */
+	public static final int MAX_DEPTH = 127;
+
+	/**
+	 * The layout of an entry: the value as a {@code float} in the low 32
+	 * bits, then the move (20 bits), the depth (7 bits), the flag with
+	 * {@link #COMPLETE} (3 bits) and the generation (2 bits). Moves are kept
+	 * as 10 bits for the source cell and 10 for the destination, so boards of
+	 * more than 1024 cells keep no moves.
+	 *
+	 * <p>
+	 * La distribucion de una entrada: el valor como {@code float} en los 32
+	 * bits bajos, despues el movimiento (20 bits), la profundidad (7 bits), el
+	 * indicador con {@link #COMPLETE} (3 bits) y la generacion (2 bits). Los
+	 * movimientos se guardan como 10 bits para la casilla de origen y 10 para
+	 * la de destino, por lo que los tableros de mas de 1024 casillas no
+	 * guardan movimientos.
+	 */
+	private static final int MOVE_SHIFT = 32;
+	private static final int MOVE_BITS = 20;
+	private static final int CELL_BITS = MOVE_BITS / 2;
+	private static final int NO_PACKED_MOVE = (1 << MOVE_BITS) - 1;
+	private static final int DEPTH_SHIFT = MOVE_SHIFT + MOVE_BITS;
+	private static final int FLAG_SHIFT = DEPTH_SHIFT + 7;
+	private static final int GENERATION_SHIFT = FLAG_SHIFT + 3;
+	private static final int GENERATION_MASK = 3;
+
+	/**
+	 * The bytes used by an entry: the entry and its check.
+	 * <p>
+	 * Los bytes que ocupa una entrada: la entrada y su comprobacion.
+	 */
+	private static final int ENTRY_BYTES = 16;
+
+	/**
+	 * The buckets: the bucket {@code b} takes the {@code long}s from
+	 * {@code 4*b}, the XOR of the key and the entry of the depth-preferred
+	 * slot, its entry, and the same for the always-replace slot.
+	 *
+	 * <p>
+	 * Los grupos: el grupo {@code b} ocupa los {@code long} desde {@code 4*b},
+	 * el XOR de la clave y la entrada del hueco que prefiere profundidad, su
+	 * entrada, y lo mismo para el hueco que siempre se sustituye.
+	 */
+	private final long[] slots;
+	private final int mask;
+
+	/**
+	 * The last generation given by {@link #newGeneration()}.
+	 * <p>
+	 * La ultima generacion dada por {@link #newGeneration()}.
+	 */
+	private final AtomicInteger generation;
+
+	/**
+	 * The statistics merged by the searches, guarded by the table.
+	 * <p>
+	 * Las estadisticas que han sumado las busquedas, protegidas por la tabla.
+	 */
+	private long probes;
+	private long hits;
+	private long collisions;
+
+	/**
+	 * Counters of the probes of a single search or thread. They are plain
+	 * fields, not shared with other threads, so counting costs nothing; they
+	 * are added to the table with {@link TranspositionTable#merge(Statistics)}
+	 * when the search ends.
+	 *
+	 * <p>
+	 * Contadores de las consultas de una unica busqueda o hilo. Son campos
+	 * normales, que no se comparten con otros hilos, por lo que contar no
+	 * cuesta nada; se suman a la tabla con
+	 * {@link TranspositionTable#merge(Statistics)} cuando termina la busqueda.
+	 */
+	public static final class Statistics {
+		private long probes;
+		private long hits;
+		private long collisions;
+	}
+
+	/**
+	 * Creates an empty table that uses at most {@code megabytes} MB (the
+	 * number of entries is the largest power of two that fits).
+	 *
+	 * <p>
+	 * Crea una tabla vacia que ocupa como mucho {@code megabytes} MB (el
+	 * numero de entradas es la mayor potencia de dos que cabe).
+	 *
+	 * @param megabytes
+	 *            At least 1.
+	 */
+	public TranspositionTable(int megabytes) {
+		if (megabytes < 1) {
+			throw new GameError("The size of the transposition table must be at least 1 MB: " + megabytes);
+		}
+		long buckets = Long.highestOneBit((long) megabytes * 1024 * 1024 / (2 * ENTRY_BYTES));
+		int size = (int) Math.min(buckets, 1 << 28);
+		this.slots = new long[4 * size];
+		this.mask = size - 1;
+		this.generation = new AtomicInteger();
+	}
+
+	/**
+	 * Consults the number of entries of the table.
+	 * <p>
+	 * Devuelve el numero de entradas de la tabla.
+	 */
+	public int getSize() {
+		return 2 * (mask + 1);
+	}
+
+	/**
+	 * Consults the entry of the position with key {@code key}. Its fields are
+	 * read with {@link #depth(long)}, {@link #flag(long)},
+	 * {@link #value(long)} and {@link #move(long)}.
+	 *
+	 * <p>
+	 * Devuelve la entrada de la posicion con clave {@code key}. Sus campos se
+	 * leen con {@link #depth(long)}, {@link #flag(long)}, {@link #value(long)}
+	 * y {@link #move(long)}.
+	 *
+	 * @return The entry, or {@link #MISS} if the position is not in the table.
+	 */
+	public long probe(long key) {
+		return probe(key, null);
+	}
+
+	/**
+	 * Same as {@link #probe(long)}, counting the probe in {@code stats}.
+	 * <p>
+	 * Igual que {@link #probe(long)}, contando la consulta en {@code stats}.
+	 *
+	 * @param stats
+	 *            The counters of the caller, or {@code null}.
+	 */
+	public long probe(long key, Statistics stats) {
+		int i = 4 * ((int) key & mask);
+		long deep = slots[i + 1];
+		long deepCheck = slots[i];
+		long recent = slots[i + 3];
+		long recentCheck = slots[i + 2];
+		long entry = MISS;
+		if (deep != MISS && (deepCheck ^ deep) == key) {
+			entry = deep;
+		}
+		if (recent != MISS && (recentCheck ^ recent) == key && (entry == MISS || depth(recent) > depth(entry))) {
+			entry = recent;
+		}
+		if (stats != null) {
+			stats.probes++;
+			if (entry != MISS) {
+				stats.hits++;
+			} else if (deep != MISS || recent != MISS) {
+				stats.collisions++;
+			}
+		}
+		return entry;
+	}
+
+	/**
+	 * Starts a new generation, to be used by the stores of a root search.
+	 * It wraps around after a few searches, which is harmless: generations are
+	 * only compared for equality.
+	 *
+	 * <p>
+	 * Empieza una generacion nueva, que usaran las escrituras de una busqueda
+	 * desde la raiz. Vuelve a empezar tras unas pocas busquedas, lo que no
+	 * importa: las generaciones solo se comparan por igualdad.
+	 */
+	public int newGeneration() {
+		return generation.incrementAndGet() & GENERATION_MASK;
+	}
+
+	/**
+	 * Stores the result of searching the position with key {@code key}.
+	 * <p>
+	 * Guarda el resultado de buscar la posicion con clave {@code key}.
+	 *
+	 * @param depth
+	 *            The depth of the search, at least 1 (larger depths are kept
+	 *            as {@link #MAX_DEPTH}).
+	 * @param flag
+	 *            {@link #EXACT}, {@link #LOWER} or {@link #UPPER}, plus
+	 *            {@link #COMPLETE} if the value reached the end of every line.
+	 * @param value
+	 *            The value found.
+	 * @param move
+	 *            The best move found, encoded, or {@link #NO_MOVE}.
+	 * @param generation
+	 *            The generation of the search, see {@link #newGeneration()}.
+	 */
+	public void store(long key, int depth, int flag, double value, int move, int generation) {
+		int i = 4 * ((int) key & mask);
+		depth = Math.min(depth, MAX_DEPTH);
+		generation &= GENERATION_MASK;
+		long old = slots[i + 1];
+		if (old != MISS && generation(old) == generation && depth(old) > depth) {
+			// the deep entry stays, the new one goes to the always-replace slot
+			i += 2;
+		}
+		long entry = (Float.floatToRawIntBits((float) value) & 0xFFFFFFFFL) | ((long) pack(move) << MOVE_SHIFT)
+				| ((long) depth << DEPTH_SHIFT) | ((long) flag << FLAG_SHIFT)
+				| ((long) generation << GENERATION_SHIFT);
+		slots[i] = key ^ entry;
+		slots[i + 1] = entry;
+	}
+
+	/**
+	 * Consults the depth of the search that found the value of an entry.
+	 * <p>
+	 * Devuelve la profundidad de la busqueda que encontro el valor de una
+	 * entrada.
+	 */
+	public static int depth(long entry) {
+		return (int) (entry >>> DEPTH_SHIFT) & MAX_DEPTH;
+	}
+
+	/**
+	 * Consults whether the value of an entry is {@link #EXACT},
+	 * {@link #LOWER} or {@link #UPPER}.
+	 *
+	 * <p>
+	 * Devuelve si el valor de una entrada es {@link #EXACT}, {@link #LOWER} o
+	 * {@link #UPPER}.
+	 */
+	public static int flag(long entry) {
+		return (int) (entry >>> FLAG_SHIFT) & 3;
+	}
+
+	/**
+	 * Consults whether the value of an entry reached the end of every line
+	 * of play (see {@link #COMPLETE}).
+	 *
+	 * <p>
+	 * Devuelve si el valor de una entrada llego al final de todas las lineas
+	 * de juego (vease {@link #COMPLETE}).
+	 */
+	public static boolean isComplete(long entry) {
+		return ((entry >>> FLAG_SHIFT) & COMPLETE) != 0;
+	}
+
+	/**
+	 * Consults the generation of the search that stored an entry.
+	 * <p>
+	 * Devuelve la generacion de la busqueda que guardo una entrada.
+	 */
+	public static int generation(long entry) {
+		return (int) (entry >>> GENERATION_SHIFT) & GENERATION_MASK;
+	}
+
+	/**
+	 * Consults the value of an entry (with the precision of a {@code float}).
+	 * <p>
+	 * Devuelve el valor de una entrada (con la precision de un {@code float}).
+	 */
+	public static double value(long entry) {
+		return Float.intBitsToFloat((int) entry);
+	}
+
+	/**
+	 * Consults the best move of an entry, encoded, or {@link #NO_MOVE}.
+	 * <p>
+	 * Devuelve el mejor movimiento de una entrada, codificado, o
+	 * {@link #NO_MOVE}.
+	 */
+	public static int move(long entry) {
+		int packed = (int) (entry >>> MOVE_SHIFT) & NO_PACKED_MOVE;
+		if (packed == NO_PACKED_MOVE) {
+			return NO_MOVE;
+		}
+		return MoveBuffer.encode(packed >>> CELL_BITS, packed & ((1 << CELL_BITS) - 1));
+	}
+
+	/**
+	 * Packs a move in {@link #MOVE_BITS} bits, if its cells fit.
+	 * <p>
+	 * Empaqueta un movimiento en {@link #MOVE_BITS} bits, si sus casillas
+	 * caben.
+	 */
+	private static int pack(int move) {
+		int from = MoveBuffer.from(move);
+		int to = MoveBuffer.to(move);
+		if (move == NO_MOVE || from >= (1 << CELL_BITS) || to >= (1 << CELL_BITS)) {
+			return NO_PACKED_MOVE;
+		}
+		return (from << CELL_BITS) | to;
+	}
+
+	/**
+	 * Adds the counters of a search (or thread) to the statistics of the
+	 * table, and sets them to 0.
+	 *
+	 * <p>
+	 * Suma los contadores de una busqueda (o hilo) a las estadisticas de la
+	 * tabla, y los pone a 0.
+	 */
+	public synchronized void merge(Statistics stats) {
+		probes += stats.probes;
+		hits += stats.hits;
+		collisions += stats.collisions;
+		stats.probes = 0;
+		stats.hits = 0;
+		stats.collisions = 0;
+	}
+
+	/**
+	 * Consults the number of probes merged so far (see
+	 * {@link #merge(Statistics)}).
+	 *
+	 * <p>
+	 * Devuelve el numero de consultas sumadas hasta el momento (vease
+	 * {@link #merge(Statistics)}).
+	 */
+	public synchronized long getProbes() {
+		return probes;
+	}
+
+	/**
+	 * Consults the number of probes that found their position.
+	 * <p>
+	 * Devuelve el numero de consultas que encontraron su posicion.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Consults the number of probes that found another position (or a torn
+	 * entry) in the slot of theirs.
+	 *
+	 * <p>
+	 * Devuelve el numero de consultas que encontraron otra posicion (o una
+	 * entrada rota) en su posicion de la tabla.
+	 */
+	public synchronized long getCollisions() {
+		return collisions;
+	}
+
+	/**
+	 * Consults the fraction of the table in use, from a sample of 1000
+	 * entries spread evenly over the whole table.
+	 *
+	 * <p>
+	 * Devuelve la fraccion de la tabla en uso, a partir de una muestra de
+	 * 1000 entradas repartidas por igual por toda la tabla.
+	 */
+	public double getFill() {
+		int size = getSize();
+		int sample = Math.min(1000, size);
+		int stride = size / sample;
+		int used = 0;
+		for (int i = 0; i < sample; i++) {
+			if (slots[2 * (i * stride) + 1] != MISS) {
+				used++;
+			}
+		}
+		return (double) used / sample;
+	}
+
+	/**
+	 * Sets the statistics to 0.
+	 * <p>
+	 * Pone las estadisticas a 0.
+	 */
+	public synchronized void resetStatistics() {
+		probes = 0;
+		hits = 0;
+		collisions = 0;
+	}
+
+	/**
+	 * Removes all the entries.
+	 * <p>
+	 * Elimina todas las entradas.
+	 */
+	public void clear() {
+		for (int i = 0; i < slots.length; i++) {
+			slots[i] = 0;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Transposition table (" + getSize() + " entries, " + getHits() + "/" + getProbes() + " hits, "
+				+ getCollisions() + " collisions)";
+	}
+
+}
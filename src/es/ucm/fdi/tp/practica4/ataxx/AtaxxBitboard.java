@@ -0,0 +1,716 @@
+package es.ucm.fdi.tp.practica4.ataxx;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import es.ucm.fdi.tp.basecode.bgame.model.BasicBoard;
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.BoardGeometry;
+import es.ucm.fdi.tp.basecode.bgame.model.GameError;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveBuffer;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * A board for Ataxx that stores the position as bitmasks: one layer per player
+ * plus one layer for the obstacles. Cell ({@code row},{@code col}) is bit
+ * {@code row*cols+col} of every layer. Move generation and captures are done
+ * with shifts and masks instead of walking the board cell by cell, while the
+ * {@link Board} interface keeps working for views and controllers.
+ *
+ * <p>
+ * Tablero de Ataxx que almacena la posicion como mascaras de bits: una capa
+ * por jugador y otra para los obstaculos. La casilla ({@code row},{@code col})
+ * es el bit {@code row*cols+col} de cada capa. La generacion de movimientos y
+ * las capturas se hacen con desplazamientos y mascaras en lugar de recorrer el
+ * tablero casilla a casilla, y el interfaz {@link Board} sigue funcionando para
+ * vistas y controladores.
+ *
+ * <p>
+ * The board also keeps, for each player, the cells within distance 2 of any
+ * of its pieces (its reach). The empty cells of the reach are the frontier of
+ * the player, the only cells where it can move to, so moves are generated
+ * from the frontier instead of from every piece.
+ *
+ * <p>
+ * El tablero tambien mantiene, para cada jugador, las casillas a distancia 2
+ * o menos de alguna de sus fichas (su alcance). Las casillas vacias del
+ * alcance son la frontera del jugador, las unicas a las que puede mover, por
+ * lo que los movimientos se generan a partir de la frontera en lugar de a
+ * partir de cada ficha.
+ *
+ */
+public abstract class AtaxxBitboard extends BasicBoard {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Number of rows in the board.
+	 * <p>
+	 * Numero de filas del tablero.
+	 */
+	protected final int rows;
+
+	/**
+	 * Number of columns in the board.
+	 * <p>
+	 * Numero de columnas del tablero.
+	 */
+	protected final int cols;
+
+	/**
+	 * The neighbourhoods of the cells, shared by all the boards of the same
+	 * dimension.
+	 * <p>
+	 * Las vecindades de las casillas, compartidas por todos los tableros de
+	 * la misma dimension.
+	 */
+	protected final BoardGeometry geometry;
+
+	/**
+	 * Pieces of the players, the index of a piece in this list is its layer.
+	 * <p>
+	 * Fichas de los jugadores, el indice de una ficha en esta lista es su capa.
+	 */
+	protected final List<Piece> players;
+
+	/**
+	 * The piece used for obstacles, stored in the layer
+	 * {@code players.size()}.
+	 * <p>
+	 * Ficha utilizada para los obstaculos, que se guarda en la capa
+	 * {@code players.size()}.
+	 */
+	protected final Piece obstacle;
+
+	/**
+	 * The layer of each piece, indexed by {@link Piece#getOrdinal()}, -1 for
+	 * pieces not used in the board. It never changes, so copies share it.
+	 * Ordinals depend on the execution, so it is rebuilt when the board is
+	 * deserialized.
+	 * 
+	 * <p>
+	 * La capa de cada ficha, indexada por {@link Piece#getOrdinal()}, -1 para
+	 * las fichas que no se usan en el tablero. No cambia, por lo que las
+	 * copias lo comparten. Los ordinales dependen de la ejecucion, por lo que
+	 * se reconstruye al deserializar el tablero.
+	 */
+	private transient int[] layers;
+
+	/**
+	 * The number of pieces that each player lost in the last call to
+	 * {@link #capture(int, int, int[], Piece[])}.
+	 * 
+	 * <p>
+	 * Numero de fichas que perdio cada jugador en la ultima llamada a
+	 * {@link #capture(int, int, int[], Piece[])}.
+	 */
+	protected int[] lost;
+
+	/**
+	 * For each player and each cell, the number of pieces of the player at
+	 * distance 1 or 2 of the cell, at position {@code layer*rows*cols+cell}.
+	 * A cell is in the reach of the player when its count is not 0.
+	 *
+	 * <p>
+	 * Para cada jugador y cada casilla, el numero de fichas del jugador a
+	 * distancia 1 o 2 de la casilla, en la posicion
+	 * {@code layer*rows*cols+cell}. Una casilla esta en el alcance del jugador
+	 * si su contador no es 0.
+	 */
+	private byte[] reachCount;
+
+	/**
+	 * For each player, the number of cells of its frontier (see
+	 * {@link #frontierSize(int)}), kept up to date as the reach and the empty
+	 * cells change.
+	 *
+	 * <p>
+	 * Para cada jugador, el numero de casillas de su frontera (vease
+	 * {@link #frontierSize(int)}), que se mantiene al dia segun cambian el
+	 * alcance y las casillas vacias.
+	 */
+	private int[] frontier;
+
+	/**
+	 * For each cell, the number of empty cells at distance 1.
+	 * <p>
+	 * Para cada casilla, el numero de casillas vacias a distancia 1.
+	 */
+	private byte[] freeAround;
+
+	/**
+	 * For each player, the number of its pieces with no empty cell at
+	 * distance 1. They cannot be captured while all their neighbours stay
+	 * occupied (only a jump empties a cell).
+	 *
+	 * <p>
+	 * Para cada jugador, el numero de sus fichas sin ninguna casilla vacia a
+	 * distancia 1. No pueden ser capturadas mientras todas sus vecinas sigan
+	 * ocupadas (solo un salto vacia una casilla).
+	 */
+	private int[] safe;
+
+	/**
+	 * The number of occupied cells in the board.
+	 * <p>
+	 * Numero de casillas ocupadas en el tablero.
+	 */
+	private int occupied;
+
+	/**
+	 * Creates the bitboard that best fits the given dimension: a single
+	 * {@code long} per layer when the board has at most 64 cells, and several
+	 * words per layer otherwise.
+	 *
+	 * <p>
+	 * Crea el tablero de bits mas adecuado para la dimension dada: un solo
+	 * {@code long} por capa si el tablero tiene como mucho 64 casillas, y
+	 * varias palabras por capa en otro caso.
+	 *
+	 * @param rows
+	 *            Number of rows.
+	 * @param cols
+	 *            Number of columns.
+	 * @param players
+	 *            Pieces of the players (the order is important).
+	 * @param obstacle
+	 *            Piece used for obstacles.
+	 * @return An empty Ataxx board.
+	 */
+	public static AtaxxBitboard create(int rows, int cols, List<Piece> players, Piece obstacle) {
+		if (rows <= 0 || cols <= 0) {
+			throw new GameError("Invalid finte rectangular board size  (" + rows + "," + cols + ")");
+		}
+		if (rows * cols <= Long.SIZE) {
+			return new AtaxxSmallBitboard(rows, cols, players, obstacle);
+		} else {
+			return new AtaxxLargeBitboard(rows, cols, players, obstacle);
+		}
+	}
+
+	protected AtaxxBitboard(int rows, int cols, List<Piece> players, Piece obstacle) {
+		this.rows = rows;
+		this.cols = cols;
+		this.geometry = BoardGeometry.of(rows, cols);
+		this.players = new ArrayList<Piece>(players);
+		this.obstacle = obstacle;
+		this.lost = new int[players.size()];
+		this.occupied = 0;
+		this.reachCount = new byte[players.size() * rows * cols];
+		this.frontier = new int[players.size()];
+		this.safe = new int[players.size()];
+		this.freeAround = new byte[rows * cols];
+		for (int c = 0; c < rows * cols; c++) {
+			freeAround[c] = (byte) geometry.ring1Size(c);
+		}
+
+		this.layers = layers(this.players, obstacle);
+	}
+
+	/**
+	 * Builds the table of the layer of each piece (see {@link #layers}).
+	 * <p>
+	 * Construye la tabla de la capa de cada ficha (vease {@link #layers}).
+	 */
+	private static int[] layers(List<Piece> players, Piece obstacle) {
+		int maxOrdinal = obstacle.getOrdinal();
+		for (Piece p : players) {
+			maxOrdinal = Math.max(maxOrdinal, p.getOrdinal());
+		}
+		int[] layers = new int[maxOrdinal + 1];
+		Arrays.fill(layers, -1);
+		layers[obstacle.getOrdinal()] = players.size();
+		for (int i = players.size() - 1; i >= 0; i--) {
+			layers[players.get(i).getOrdinal()] = i;
+		}
+		return layers;
+	}
+
+	/**
+	 * Rebuilds {@link #layers} with the ordinals of this execution.
+	 * <p>
+	 * Reconstruye {@link #layers} con los ordinales de esta ejecucion.
+	 */
+	private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		layers = layers(players, obstacle);
+	}
+
+	/**
+	 * Copy constructor, used by {@link #copy()} of the subclasses. The list of
+	 * players is immutable so it is shared.
+	 *
+	 * <p>
+	 * Constructor de copia, utilizado por {@link #copy()} en las subclases. La
+	 * lista de jugadores no cambia, por lo que se comparte.
+	 */
+	protected AtaxxBitboard(AtaxxBitboard other) {
+		this.rows = other.rows;
+		this.cols = other.cols;
+		this.geometry = other.geometry;
+		this.players = other.players;
+		this.obstacle = other.obstacle;
+		this.layers = other.layers;
+		this.lost = new int[players.size()];
+		this.occupied = other.occupied;
+		this.reachCount = other.reachCount.clone();
+		this.frontier = other.frontier.clone();
+		this.safe = other.safe.clone();
+		this.freeAround = other.freeAround.clone();
+		other.copyTo(this);
+	}
+
+	/**
+	 * Consults the layer used for a piece.
+	 *
+	 * <p>
+	 * Devuelve la capa utilizada para una ficha.
+	 *
+	 * @param p
+	 *            A piece of a player, the obstacle, or {@code null}.
+	 * @return The layer of {@code p}, or -1 if {@code p} is {@code null}.
+	 */
+	public int layerOf(Piece p) {
+		if (p == null) {
+			return -1;
+		}
+		int i = p.getOrdinal();
+		if (i < layers.length && layers[i] >= 0) {
+			return layers[i];
+		}
+		throw new GameError("The piece " + p + " is not used in this board");
+	}
+
+	/**
+	 * Consults the piece stored in a layer.
+	 *
+	 * <p>
+	 * Devuelve la ficha que se guarda en una capa.
+	 */
+	public Piece pieceOf(int layer) {
+		if (layer < 0) {
+			return null;
+		} else if (layer < players.size()) {
+			return players.get(layer);
+		} else {
+			return obstacle;
+		}
+	}
+
+	/**
+	 * Consults the linear index of a cell, checking that it is in the board.
+	 *
+	 * <p>
+	 * Devuelve el indice lineal de una casilla, comprobando que esta dentro
+	 * del tablero.
+	 */
+	protected int cellOf(int row, int col) {
+		if (row < 0 || row >= rows || col < 0 || col >= cols) {
+			throw new GameError("Trying to access an invalid position (" + row + "," + col + ")");
+		}
+		return row * cols + col;
+	}
+
+	/**
+	 * Consults the geometry of the board.
+	 * <p>
+	 * Devuelve la geometria del tablero.
+	 */
+	public BoardGeometry getGeometry() {
+		return geometry;
+	}
+
+	@Override
+	public int getRows() {
+		return rows;
+	}
+
+	@Override
+	public int getCols() {
+		return cols;
+	}
+
+	@Override
+	public Piece getPosition(int row, int col) {
+		return pieceOf(layerAt(cellOf(row, col)));
+	}
+
+	@Override
+	public void setPosition(int row, int col, Piece p) {
+		int cell = cellOf(row, col);
+		int oldLayer = layerAt(cell);
+		int newLayer = layerOf(p);
+
+		if (oldLayer >= 0) {
+			clearBit(oldLayer, cell);
+			updateReach(oldLayer, cell, -1);
+		}
+		if (newLayer >= 0) {
+			setBit(newLayer, cell);
+			updateReach(newLayer, cell, 1);
+		}
+
+		if (p == null && oldLayer >= 0) {
+			occupied--;
+			updateFrontier(cell, 1);
+		} else if (p != null && oldLayer < 0) {
+			occupied++;
+			updateFrontier(cell, -1);
+		}
+		updateSafety(cell, oldLayer, newLayer);
+		updateZobristKey(cell, pieceOf(oldLayer), pieceOf(newLayer));
+	}
+
+	@Override
+	public boolean isFull() {
+		return occupied == rows * cols;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return occupied == 0;
+	}
+
+	@Override
+	public int getNumOfEmptyCells() {
+		return rows * cols - occupied;
+	}
+
+	@Override
+	public int getEmptyCell(int k) {
+		if (k < 0 || k >= rows * cols - occupied) {
+			throw new GameError("There is no empty cell number " + k);
+		}
+		return nthEmpty(k);
+	}
+
+	/**
+	 * Looks for the {@code k}-th empty cell, in increasing order, in the mask
+	 * of empty cells.
+	 *
+	 * <p>
+	 * Busca la {@code k}-esima casilla vacia, en orden creciente, en la
+	 * mascara de casillas vacias.
+	 */
+	protected abstract int nthEmpty(int k);
+
+	/**
+	 * Updates the reach of a player when one of its pieces is placed at or
+	 * removed from {@code cell}: the count of the 24 cells around it changes,
+	 * and the ones that reach or leave 0 enter or leave the reach mask.
+	 *
+	 * <p>
+	 * Actualiza el alcance de un jugador cuando se coloca o se quita una de
+	 * sus fichas de {@code cell}: cambia el contador de las 24 casillas de
+	 * alrededor, y las que llegan a 0 o dejan de estar a 0 salen o entran en
+	 * la mascara de alcance.
+	 *
+	 * @param layer
+	 *            The layer of the piece, nothing is done for the obstacles.
+	 * @param cell
+	 *            The cell of the piece.
+	 * @param delta
+	 *            1 if the piece is placed, -1 if it is removed.
+	 */
+	private void updateReach(int layer, int cell, int delta) {
+		if (layer >= players.size()) {
+			return;
+		}
+		int base = layer * rows * cols;
+		for (int k = 0, n = geometry.ring1Size(cell); k < n; k++) {
+			bumpReach(layer, base, geometry.ring1(cell, k), delta);
+		}
+		for (int k = 0, n = geometry.ring2Size(cell); k < n; k++) {
+			bumpReach(layer, base, geometry.ring2(cell, k), delta);
+		}
+	}
+
+	private void bumpReach(int layer, int base, int t, int delta) {
+		int n = reachCount[base + t] + delta;
+		reachCount[base + t] = (byte) n;
+		if (n == 0) {
+			setReachBit(layer, t, false);
+			if (layerAt(t) < 0) {
+				frontier[layer]--;
+			}
+		} else if (n == 1 && delta > 0) {
+			setReachBit(layer, t, true);
+			if (layerAt(t) < 0) {
+				frontier[layer]++;
+			}
+		}
+	}
+
+	/**
+	 * Updates the frontiers when {@code cell} becomes empty ({@code delta} 1)
+	 * or occupied ({@code delta} -1): it enters or leaves the frontier of the
+	 * players that reach it. The reach of a cell does not depend on its own
+	 * content, so the order with respect to {@link #updateReach(int, int, int)}
+	 * does not matter.
+	 *
+	 * <p>
+	 * Actualiza las fronteras cuando {@code cell} queda vacia ({@code delta}
+	 * 1) u ocupada ({@code delta} -1): entra en o sale de la frontera de los
+	 * jugadores que la alcanzan. El alcance de una casilla no depende de su
+	 * contenido, por lo que el orden respecto a
+	 * {@link #updateReach(int, int, int)} no importa.
+	 */
+	private void updateFrontier(int cell, int delta) {
+		int cells = rows * cols;
+		for (int l = 0; l < frontier.length; l++) {
+			if (reachCount[l * cells + cell] != 0) {
+				frontier[l] += delta;
+			}
+		}
+	}
+
+	/**
+	 * Sets or clears the bit of {@code cell} in the reach mask of the player
+	 * in {@code layer}.
+	 *
+	 * <p>
+	 * Activa o desactiva el bit de {@code cell} en la mascara de alcance del
+	 * jugador de la capa {@code layer}.
+	 */
+	protected abstract void setReachBit(int layer, int cell, boolean on);
+
+	/**
+	 * Updates {@link #freeAround} and the safe pieces when the content of
+	 * {@code cell} changes from {@code oldLayer} to {@code newLayer} (-1 for
+	 * empty). If the cell becomes empty or occupied, its neighbours may become
+	 * unsafe or safe, and if the cell itself is safe it changes hands.
+	 *
+	 * <p>
+	 * Actualiza {@link #freeAround} y las fichas seguras cuando el contenido
+	 * de {@code cell} cambia de {@code oldLayer} a {@code newLayer} (-1 para
+	 * vacia). Si la casilla queda vacia u ocupada, sus vecinas pueden dejar de
+	 * estar o pasar a estar seguras, y si la propia casilla es segura cambia
+	 * de manos.
+	 */
+	private void updateSafety(int cell, int oldLayer, int newLayer) {
+		if ((oldLayer < 0) != (newLayer < 0)) {
+			int delta = newLayer < 0 ? 1 : -1;
+			for (int k = 0, size = geometry.ring1Size(cell); k < size; k++) {
+				int t = geometry.ring1(cell, k);
+				int n = freeAround[t] + delta;
+				freeAround[t] = (byte) n;
+				if (n == 0 || (n == 1 && delta > 0)) {
+					int l = layerAt(t);
+					if (l >= 0 && l < players.size()) {
+						safe[l] += n == 0 ? 1 : -1;
+					}
+				}
+			}
+		}
+		if (freeAround[cell] == 0) {
+			if (oldLayer >= 0 && oldLayer < players.size()) {
+				safe[oldLayer]--;
+			}
+			if (newLayer >= 0 && newLayer < players.size()) {
+				safe[newLayer]++;
+			}
+		}
+	}
+
+	/**
+	 * Consults the number of pieces of the player in {@code layer} that have
+	 * no empty cell around them and so cannot be captured. It is kept
+	 * incrementally.
+	 *
+	 * <p>
+	 * Devuelve el numero de fichas del jugador de la capa {@code layer} que no
+	 * tienen ninguna casilla vacia alrededor y por tanto no pueden ser
+	 * capturadas. Se mantiene de forma incremental.
+	 */
+	public int safeCount(int layer) {
+		return safe[layer];
+	}
+
+	/**
+	 * Consults the number of cells in the frontier of the player in
+	 * {@code layer}: the empty cells within distance 2 of its pieces, that
+	 * is, the cells where it can move to. It is kept incrementally, so
+	 * consulting it costs nothing.
+	 *
+	 * <p>
+	 * Devuelve el numero de casillas de la frontera del jugador de la capa
+	 * {@code layer}: las casillas vacias a distancia 2 o menos de sus fichas,
+	 * es decir, las casillas a las que puede mover. Se mantiene de forma
+	 * incremental, por lo que no cuesta nada consultarlo.
+	 */
+	public int frontierSize(int layer) {
+		return frontier[layer];
+	}
+
+	/**
+	 * Consults the layer that has the bit of {@code cell} set.
+	 *
+	 * <p>
+	 * Devuelve la capa que tiene activo el bit de la casilla {@code cell}.
+	 *
+	 * @return The layer, or -1 if the cell is empty.
+	 */
+	protected abstract int layerAt(int cell);
+
+	/**
+	 * Sets the bit of {@code cell} in {@code layer}.
+	 * <p>
+	 * Activa el bit de {@code cell} en la capa {@code layer}.
+	 */
+	protected abstract void setBit(int layer, int cell);
+
+	/**
+	 * Clears the bit of {@code cell} in {@code layer}.
+	 * <p>
+	 * Desactiva el bit de {@code cell} en la capa {@code layer}.
+	 */
+	protected abstract void clearBit(int layer, int cell);
+
+	/**
+	 * Adds to {@code moves} all the valid moves of the player in
+	 * {@code layer}, encoded with {@link MoveBuffer#encode(int, int)}: for
+	 * every cell of its frontier, a single clone (from the first piece of the
+	 * player at distance 1, since all of them lead to the same position) and
+	 * one jump from each piece at distance 2. The cost is proportional to the
+	 * frontier, not to the area of the board.
+	 *
+	 * <p>
+	 * Anade a {@code moves} todos los movimientos validos del jugador de la
+	 * capa {@code layer}, codificados con {@link MoveBuffer#encode(int, int)}:
+	 * para cada casilla de su frontera, una sola clonacion (desde la primera
+	 * ficha del jugador a distancia 1, ya que todas llevan a la misma
+	 * posicion) y un salto desde cada ficha a distancia 2. El coste es
+	 * proporcional a la frontera, no al area del tablero.
+	 *
+	 * @return The number of clones left out because they repeat another one.
+	 */
+	public abstract int addValidMoves(int layer, MoveBuffer moves);
+
+	/**
+	 * Adds to {@code moves} the valid moves of the player in {@code layer}
+	 * to the cell {@code to}, the same ones that
+	 * {@link #addValidMoves(int, MoveBuffer)} adds for it.
+	 *
+	 * <p>
+	 * Anade a {@code moves} los movimientos validos del jugador de la capa
+	 * {@code layer} a la casilla {@code to}, los mismos que
+	 * {@link #addValidMoves(int, MoveBuffer)} anade para ella.
+	 *
+	 * @return The number of clones left out because they repeat another one.
+	 */
+	public abstract int addMovesTo(int layer, int to, MoveBuffer moves);
+
+	/**
+	 * Looks for the first cell of the frontier of the player in {@code layer}
+	 * (see {@link #frontierSize(int)}) not smaller than {@code from}.
+	 *
+	 * <p>
+	 * Busca la primera casilla de la frontera del jugador de la capa
+	 * {@code layer} (vease {@link #frontierSize(int)}) no menor que
+	 * {@code from}.
+	 *
+	 * @return The cell, or -1 if there are none.
+	 */
+	public abstract int nextFrontierCell(int layer, int from);
+
+	/**
+	 * Turns into pieces of {@code layer} all the pieces of other players that
+	 * surround {@code cell}. The piece-counts are not modified, the number of
+	 * pieces that each player lost can be consulted with {@link #lost(int)}.
+	 *
+	 * <p>
+	 * Convierte en fichas de la capa {@code layer} todas las fichas de otros
+	 * jugadores que rodean a la casilla {@code cell}. No se modifican los
+	 * contadores de fichas, el numero de fichas que perdio cada jugador se
+	 * puede consultar con {@link #lost(int)}.
+	 *
+	 * @param layer
+	 *            The layer of the capturing player.
+	 * @param cell
+	 *            The cell where the player has just placed a piece.
+	 * @param cells
+	 *            An array of at least 8 positions where the captured cells are
+	 *            stored (to undo the capture).
+	 * @param owners
+	 *            An array of at least 8 positions where the previous pieces of
+	 *            the captured cells are stored (to undo the capture).
+	 * @return The total number of captured pieces.
+	 */
+	public abstract int capture(int layer, int cell, int[] cells, Piece[] owners);
+
+	/**
+	 * Consults the number of pieces that the player in {@code layer} lost in
+	 * the last call to {@link #capture(int, int, int[], Piece[])}.
+	 *
+	 * <p>
+	 * Devuelve el numero de fichas que perdio el jugador de la capa
+	 * {@code layer} en la ultima llamada a {@link #capture(int, int, int[], Piece[])}.
+	 */
+	public int lost(int layer) {
+		return lost[layer];
+	}
+
+	/**
+	 * Consults the number of players of the board.
+	 * <p>
+	 * Devuelve el numero de jugadores del tablero.
+	 */
+	public int numOfPlayers() {
+		return players.size();
+	}
+
+	/**
+	 * Stores the cells of a mask word, all of them taken by the player in
+	 * {@code to} from the player in {@code from}, in the arrays given to
+	 * {@link #capture(int, int, int[], Piece[])}, and updates the Zobrist hash
+	 * of the board accordingly.
+	 *
+	 * <p>
+	 * Guarda las casillas de una palabra de la mascara, todas ellas quitadas
+	 * por el jugador de la capa {@code to} al de la capa {@code from}, en los
+	 * arrays pasados a {@link #capture(int, int, int[], Piece[])}, y actualiza
+	 * el hash de Zobrist del tablero.
+	 *
+	 * @return The position of the arrays after the last stored cell.
+	 */
+	protected int storeCaptured(long flipped, int base, int from, int to, int[] cells, Piece[] owners, int n) {
+		Piece loser = pieceOf(from);
+		Piece winner = pieceOf(to);
+		while (flipped != 0) {
+			int cell = base + Long.numberOfTrailingZeros(flipped);
+			cells[n] = cell;
+			owners[n] = loser;
+			updateZobristKey(cell, loser, winner);
+			updateReach(from, cell, -1);
+			updateReach(to, cell, 1);
+			if (freeAround[cell] == 0) {
+				safe[from]--;
+				safe[to]++;
+			}
+			flipped &= flipped - 1;
+			n++;
+		}
+		return n;
+	}
+
+	/**
+	 * Adds the moves to {@code to} from every cell in a mask word, encoded
+	 * with {@link MoveBuffer#encode(int, int)}.
+	 *
+	 * <p>
+	 * Anade los movimientos a {@code to} desde cada casilla de una palabra de
+	 * la mascara, codificados con {@link MoveBuffer#encode(int, int)}.
+	 *
+	 * @param base
+	 *            Index of the first cell covered by {@code sources}.
+	 */
+	protected void addMoves(long sources, int base, int to, MoveBuffer moves) {
+		while (sources != 0) {
+			int from = base + Long.numberOfTrailingZeros(sources);
+			sources &= sources - 1;
+			moves.add(MoveBuffer.encode(from, to));
+		}
+	}
+
+}
@@ -0,0 +1,231 @@
+package es.ucm.fdi.tp.practica4.ataxx;
+
+import java.util.List;
+
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.BoardGeometry;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveBuffer;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * An Ataxx bitboard for boards with more than 64 cells (e.g., 9x9 or 15x15),
+ * each layer is an array of {@code long} words. Bit {@code i} of a layer is bit
+ * {@code i % 64} of the word {@code i / 64}.
+ *
+ * <p>
+ * Tablero de bits de Ataxx para tableros de mas de 64 casillas (por ejemplo,
+ * 9x9 o 15x15), cada capa es un array de palabras {@code long}. El bit
+ * {@code i} de una capa es el bit {@code i % 64} de la palabra {@code i / 64}.
+ */
+class AtaxxLargeBitboard extends AtaxxBitboard {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The layers, one per player and the last one for the obstacles.
+	 * <p>
+	 * Las capas, una por jugador y la ultima para los obstaculos.
+	 */
+	private long[][] bits;
+
+	/**
+	 * Number of words of each layer.
+	 * <p>
+	 * Numero de palabras de cada capa.
+	 */
+	private final int words;
+
+	/**
+	 * Mask of the cells that belong to the board.
+	 * <p>
+	 * Mascara de las casillas que pertenecen al tablero.
+	 */
+	private final long[] all;
+
+	/**
+	 * For each cell, the mask of the cells at distance 1 (clones) and 2
+	 * (jumps). They are taken from the {@link BoardGeometry} of the board, so
+	 * all the boards of the same dimension share them.
+	 *
+	 * <p>
+	 * Para cada casilla, la mascara de las casillas a distancia 1 (clonar) y 2
+	 * (saltar). Se obtienen de la {@link BoardGeometry} del tablero, por lo que
+	 * todos los tableros de la misma dimension las comparten.
+	 */
+	private final long[][] near;
+	private final long[][] far;
+
+	/**
+	 * The reach of each player (see {@link AtaxxBitboard}).
+	 * <p>
+	 * El alcance de cada jugador (vease {@link AtaxxBitboard}).
+	 */
+	private long[][] reach;
+
+	AtaxxLargeBitboard(int rows, int cols, List<Piece> players, Piece obstacle) {
+		super(rows, cols, players, obstacle);
+		int cells = rows * cols;
+		this.words = (cells + Long.SIZE - 1) / Long.SIZE;
+		this.bits = new long[players.size() + 1][words];
+		this.all = new long[words];
+		for (int i = 0; i < cells; i++) {
+			all[i / Long.SIZE] |= 1L << i;
+		}
+		this.reach = new long[players.size()][words];
+		this.near = geometry.ring1Masks();
+		this.far = geometry.ring2Masks();
+	}
+
+	private AtaxxLargeBitboard(AtaxxLargeBitboard other) {
+		super(other);
+		this.words = other.words;
+		this.bits = new long[other.bits.length][];
+		for (int i = 0; i < bits.length; i++) {
+			bits[i] = other.bits[i].clone();
+		}
+		this.all = other.all;
+		this.reach = new long[other.reach.length][];
+		for (int i = 0; i < reach.length; i++) {
+			reach[i] = other.reach[i].clone();
+		}
+		this.near = other.near;
+		this.far = other.far;
+	}
+
+	@Override
+	protected int layerAt(int cell) {
+		int w = cell / Long.SIZE;
+		long bit = 1L << cell;
+		for (int i = 0; i < bits.length; i++) {
+			if ((bits[i][w] & bit) != 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	protected void setBit(int layer, int cell) {
+		bits[layer][cell / Long.SIZE] |= 1L << cell;
+	}
+
+	@Override
+	protected void clearBit(int layer, int cell) {
+		bits[layer][cell / Long.SIZE] &= ~(1L << cell);
+	}
+
+	@Override
+	protected int nthEmpty(int k) {
+		for (int w = 0; w < words; w++) {
+			long empty = emptyWord(w);
+			int n = Long.bitCount(empty);
+			if (k < n) {
+				for (int i = 0; i < k; i++) {
+					empty &= empty - 1;
+				}
+				return w * Long.SIZE + Long.numberOfTrailingZeros(empty);
+			}
+			k -= n;
+		}
+		return -1;
+	}
+
+	/**
+	 * Consults a word of the mask of empty cells.
+	 * <p>
+	 * Devuelve una palabra de la mascara de casillas vacias.
+	 */
+	private long emptyWord(int w) {
+		long occ = 0;
+		for (long[] b : bits) {
+			occ |= b[w];
+		}
+		return all[w] & ~occ;
+	}
+
+	@Override
+	protected void setReachBit(int layer, int cell, boolean on) {
+		if (on) {
+			reach[layer][cell / Long.SIZE] |= 1L << cell;
+		} else {
+			reach[layer][cell / Long.SIZE] &= ~(1L << cell);
+		}
+	}
+
+	@Override
+	public int addValidMoves(int layer, MoveBuffer moves) {
+		int merged = 0;
+		for (int fw = 0; fw < words; fw++) {
+			long frontier = reach[layer][fw] & emptyWord(fw);
+			while (frontier != 0) {
+				int to = fw * Long.SIZE + Long.numberOfTrailingZeros(frontier);
+				frontier &= frontier - 1;
+				merged += addMovesTo(layer, to, moves);
+			}
+		}
+		return merged;
+	}
+
+	@Override
+	public int addMovesTo(int layer, int to, MoveBuffer moves) {
+		long[] mine = bits[layer];
+		long[] n = near[to];
+		long[] f = far[to];
+		// only the words around the row of the target can have sources
+		int first = Math.max(0, to - 2 * cols - 2) / Long.SIZE;
+		int last = Math.min(words - 1, (to + 2 * cols + 2) / Long.SIZE);
+		int clones = 0;
+		for (int w = first; w <= last; w++) {
+			long c = n[w] & mine[w];
+			if (c != 0 && clones == 0) {
+				moves.add(MoveBuffer.encode(w * Long.SIZE + Long.numberOfTrailingZeros(c), to));
+			}
+			clones += Long.bitCount(c);
+			addMoves(f[w] & mine[w], w * Long.SIZE, to, moves);
+		}
+		return Math.max(0, clones - 1);
+	}
+
+	@Override
+	public int nextFrontierCell(int layer, int from) {
+		for (int w = from / Long.SIZE; w < words; w++) {
+			long frontier = reach[layer][w] & emptyWord(w);
+			if (w == from / Long.SIZE) {
+				frontier &= -1L << from;
+			}
+			if (frontier != 0) {
+				return w * Long.SIZE + Long.numberOfTrailingZeros(frontier);
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int capture(int layer, int cell, int[] cells, Piece[] owners) {
+		long[] ring = near[cell];
+		long[] mine = bits[layer];
+		int total = 0;
+		for (int i = 0; i < players.size(); i++) {
+			lost[i] = 0;
+			if (i == layer)
+				continue;
+			long[] theirs = bits[i];
+			for (int w = 0; w < words; w++) {
+				long flipped = theirs[w] & ring[w];
+				if (flipped != 0) {
+					theirs[w] &= ~flipped;
+					mine[w] |= flipped;
+					lost[i] += Long.bitCount(flipped);
+					total = storeCaptured(flipped, w * Long.SIZE, i, layer, cells, owners, total);
+				}
+			}
+		}
+		return total;
+	}
+
+	@Override
+	public Board copy() {
+		return new AtaxxLargeBitboard(this);
+	}
+
+}
@@ -3,9 +3,14 @@ package es.ucm.fdi.tp.practica4.ataxx;
 import java.util.List;
 
 import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.BoardGeometry;
+import es.ucm.fdi.tp.basecode.bgame.model.FiniteRectBoard;
 import es.ucm.fdi.tp.basecode.bgame.model.GameError;
 import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.PaddedLayout;
 import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+import es.ucm.fdi.tp.basecode.bgame.model.PieceRegistry;
+import es.ucm.fdi.tp.basecode.bgame.model.Symmetry;
 
 /**
  * A Class representing a move for Ataxx.
@@ -18,8 +23,6 @@ public class AtaxxMove extends GameMove {
 
 	private static final long serialVersionUID = 1L;
 
-	private static final String OBSTACLE = "*";
-
 	/**
 	 * The row where to place the piece return by {@link GameMove#getPiece()}.
 	 * <p>
@@ -53,6 +56,41 @@ public class AtaxxMove extends GameMove {
 	 */
 	protected int oldCol;
 
+	/**
+	 * The cells (as {@code row*cols+col}) captured by the last execution of
+	 * the move, and the pieces they had before, so that it can be undone.
+	 * 
+	 * <p>
+	 * Casillas (como {@code row*cols+col}) capturadas en la ultima ejecucion
+	 * del movimiento, y las fichas que tenian antes, para poder deshacerlo.
+	 */
+	private transient int[] capturedCells;
+	private transient Piece[] capturedPieces;
+
+	/**
+	 * Number of cells captured by the last execution of the move.
+	 * <p>
+	 * Numero de casillas capturadas en la ultima ejecucion del movimiento.
+	 */
+	private transient int numCaptured;
+
+	/**
+	 * {@code true} if the last execution of the move was a jump, which leaves
+	 * the original cell empty.
+	 * 
+	 * <p>
+	 * {@code true} si la ultima ejecucion del movimiento fue un salto, que
+	 * deja vacia la casilla de origen.
+	 */
+	private transient boolean vacated;
+
+	/**
+	 * {@code true} if the move has been executed and not undone yet.
+	 * <p>
+	 * {@code true} si el movimiento se ha ejecutado y aun no se ha deshecho.
+	 */
+	private transient boolean executed;
+
 	/**
 	 * This constructor should be used ONLY to get an instance of
 	 * {@link AtaxxMove} to generate game moves from strings by calling
@@ -103,10 +141,19 @@ public class AtaxxMove extends GameMove {
 		if (board.getPosition(oldRow, oldCol) == getPiece()) {
 			/* When we move to an empty position... */
 			if (board.getPosition(row, col) == null) {
+				if (capturedCells == null) {
+					capturedCells = new int[8];
+					capturedPieces = new Piece[8];
+				}
+				numCaptured = 0;
 				if (infiniteDistance() == 1) {
 					moveToAdjacent(board, pieces);
+					vacated = false;
+					executed = true;
 				} else if (infiniteDistance() == 2) {
 					moveFar(board, pieces);
+					vacated = true;
+					executed = true;
 				} else {
 					throw new GameError("Position (" + row + "," + col + ") is illegal!");
 				}
@@ -118,6 +165,49 @@ public class AtaxxMove extends GameMove {
 		}
 	}
 
+	@Override
+	public boolean isUndoable() {
+		return true;
+	}
+
+	/**
+	 * Gives back the captured cells to their previous owners, removes the
+	 * placed piece and, for jumps, puts the piece back in its original cell.
+	 * 
+	 * <p>
+	 * Devuelve las casillas capturadas a sus antiguos duenos, quita la ficha
+	 * colocada y, en los saltos, vuelve a poner la ficha en su casilla de
+	 * origen.
+	 */
+	@Override
+	public void undo(Board board, List<Piece> pieces) {
+		if (!executed) {
+			throw new GameError("The move '" + this + "' has not been executed");
+		}
+		Piece p = getPiece();
+		int cols = board.getCols();
+		for (int i = 0; i < numCaptured; i++) {
+			Piece q = capturedPieces[i];
+			board.setPosition(capturedCells[i] / cols, capturedCells[i] % cols, q);
+			board.addPieceCount(q, 1);
+			capturedPieces[i] = null;
+		}
+		board.addPieceCount(p, -numCaptured);
+		board.setPosition(row, col, null);
+		if (vacated) {
+			board.setPosition(oldRow, oldCol, p);
+		} else {
+			board.addPieceCount(p, -1);
+		}
+		executed = false;
+	}
+
+	@Override
+	public GameMove transform(Symmetry s, int rows, int cols) {
+		return createMove(s.row(oldRow, oldCol, rows, cols), s.col(oldRow, oldCol, rows, cols),
+				s.row(row, col, rows, cols), s.col(row, col, rows, cols), getPiece());
+	}
+
 	/**
 	 * @return the infinite distance between the original piece and the
 	 *         destination one.
@@ -137,7 +227,7 @@ public class AtaxxMove extends GameMove {
 	 */
 	private void moveToAdjacent(Board board, List<Piece> pieces) {
 		board.setPosition(row, col, getPiece());
-		board.setPieceCount(getPiece(), board.getPieceCount(getPiece()) + 1);
+		board.addPieceCount(getPiece(), 1);
 		transformAdjacents(board, pieces, row, col);
 	}
 
@@ -156,51 +246,91 @@ public class AtaxxMove extends GameMove {
 		transformAdjacents(board, pieces, row, col);
 	}
 
-	private static final int deltas[][] = { { 0, 1 }, { 1, 1 }, { 1, 0 }, { 1, -1 }, { 0, -1 }, { -1, 1 }, { -1, 0 },
-			{ -1, -1 }, };
-
-	/**
-	 * Given a position and the dimension of the squared board, decides if the
-	 * position is in or out of the board.
-	 * 
-	 * @param x
-	 *            row
-	 * @param y
-	 *            column
-	 * @param dim
-	 *            dimension
-	 * @return {@code true} if in, {@code false} if not.
-	 */
-	private boolean inBoard(int x, int y, int dim) {
-		return x >= 0 && y >= 0 && x < dim && y < dim;
-	}
-
 	private void transformAdjacents(Board board, List<Piece> pieces, int oldRow, int oldCol) {
-		for (int[] ds : deltas) {
-			int x = oldRow + ds[0];
-			int y = oldCol + ds[1];
+		if (board instanceof AtaxxBitboard) {
+			captureOnBitboard((AtaxxBitboard) board, oldRow, oldCol);
+			return;
+		}
+		if (board instanceof FiniteRectBoard) {
+			captureOnPadded((FiniteRectBoard) board, oldRow, oldCol);
+			return;
+		}
+		int cols = board.getCols();
+		BoardGeometry geometry = BoardGeometry.of(board.getRows(), cols);
+		int center = oldRow * cols + oldCol;
+		for (int k = 0, n = geometry.ring1Size(center); k < n; k++) {
+			int cell = geometry.ring1(center, k);
+			int x = cell / cols;
+			int y = cell % cols;
 			/*
-			 * If is in, the position is not empty an is not an obstacle or a
-			 * piece of yours.
+			 * If the position is not empty an is not an obstacle or a piece
+			 * of yours.
 			 */
 			Piece p;
-			if (inBoard(x, y, board.getRows()) && (p = board.getPosition(x, y)) != null && !isObstacle(p) && p.getId() != getPiece().getId()) {
-				board.setPieceCount(p, board.getPieceCount(p) - 1);
-				board.setPieceCount(getPiece(), board.getPieceCount(getPiece()) + 1);
+			if ((p = board.getPosition(x, y)) != null && !PieceRegistry.isObstacle(p) && p.getOrdinal() != getPiece().getOrdinal()) {
+				board.addPieceCount(p, -1);
+				board.addPieceCount(getPiece(), 1);
 				board.setPosition(x, y, getPiece());
+				capturedCells[numCaptured] = cell;
+				capturedPieces[numCaptured] = p;
+				numCaptured++;
 			}
 		}
 	}
 
 	/**
-	 * Decides is a piece is an obstacle or not.
+	 * Same as {@link #transformAdjacents(Board, List, int, int)}, but the
+	 * neighbours are visited with the offsets of the {@link PaddedLayout} of
+	 * the board, which has sentinels instead of bounds.
 	 * 
-	 * @param p
-	 *            Piece to check.
-	 * @return {@code true} if is and obstacle, {@code false} if not.
+	 * @param board
+	 *            The game board.
+	 * @param row
+	 *            row where the piece was placed.
+	 * @param col
+	 *            column where the piece was placed.
+	 */
+	private void captureOnPadded(FiniteRectBoard board, int row, int col) {
+		PaddedLayout layout = board.getLayout();
+		int center = layout.index(row, col);
+		Piece mine = getPiece();
+		for (int k = 0; k < PaddedLayout.RING1_SIZE; k++) {
+			int i = center + layout.ring1(k);
+			Piece p = board.getCell(i);
+			if (p != null && !PieceRegistry.isObstacle(p) && p.getOrdinal() != mine.getOrdinal()) {
+				board.addPieceCount(p, -1);
+				board.addPieceCount(mine, 1);
+				board.setCell(i, mine);
+				capturedCells[numCaptured] = layout.toLinear(i);
+				capturedPieces[numCaptured] = p;
+				numCaptured++;
+			}
+		}
+	}
+
+	/**
+	 * Same as {@link #transformAdjacents(Board, List, int, int)}, but all the
+	 * surrounding pieces are captured at once with the masks of the bitboard.
+	 * 
+	 * @param board
+	 *            The game board.
+	 * @param row
+	 *            row where the piece was placed.
+	 * @param col
+	 *            column where the piece was placed.
 	 */
-	private boolean isObstacle(Piece p) {
-		return p.getId() == OBSTACLE;
+	private void captureOnBitboard(AtaxxBitboard board, int row, int col) {
+		int layer = board.layerOf(getPiece());
+		int total = board.capture(layer, row * board.getCols() + col, capturedCells, capturedPieces);
+		numCaptured = total;
+		if (total > 0) {
+			for (int i = 0; i < board.numOfPlayers(); i++) {
+				if (board.lost(i) != 0) {
+					board.addPieceCount(board.pieceOf(i), -board.lost(i));
+				}
+			}
+			board.addPieceCount(getPiece(), total);
+		}
 	}
 
 	/**
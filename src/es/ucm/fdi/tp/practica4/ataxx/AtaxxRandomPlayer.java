@@ -2,14 +2,13 @@ package es.ucm.fdi.tp.practica4.ataxx;
 
 
 
-import java.util.ArrayList;
 import java.util.List;
 
-import es.ucm.fdi.tp.basecode.bgame.Utils;
 import es.ucm.fdi.tp.basecode.bgame.control.Player;
 import es.ucm.fdi.tp.basecode.bgame.model.Board;
 import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
 import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveBuffer;
 import es.ucm.fdi.tp.basecode.bgame.model.Piece;
 
 
@@ -26,14 +25,15 @@ public class AtaxxRandomPlayer extends Player {
 
 	@Override
 	public GameMove requestMove(Piece p, Board board, List<Piece> pieces, GameRules rules) {
-		List<GameMove> moves = new ArrayList<GameMove>();
-		moves = rules.validMoves(board, pieces, p);
-		if(moves.size()!=0){
-			int random=Utils.randomInt(moves.size());
-		return moves.get(random);
-		}
-		else 
+		// sampled while the moves are generated, only the chosen one is created
+		int move = rules.moveIterator(board, pieces, p).sampleEncoded();
+		if (move < 0) {
 			return null;
+		}
+		int cols = board.getCols();
+		int from = MoveBuffer.from(move);
+		int to = MoveBuffer.to(move);
+		return createMove(from / cols, from % cols, to / cols, to % cols, p);
 	}
 
 	/**
@@ -47,6 +47,10 @@ public class AtaxxRandomPlayer extends Player {
 	 * permitir la reutilizacion de esta clase en otros juegos similares,
 	 * sobrescribiendo este metodo.
 	 * 
+	 * @param oldRow
+	 *            row number of the piece to move or clone.
+	 * @param oldCol
+	 *            column number of the piece to move or clone.
 	 * @param row
 	 *            row number.
 	 * @param col
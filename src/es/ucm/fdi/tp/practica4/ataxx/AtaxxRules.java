@@ -2,15 +2,23 @@ package es.ucm.fdi.tp.practica4.ataxx;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import es.ucm.fdi.tp.basecode.bgame.Utils;
 import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.BoardGeometry;
 import es.ucm.fdi.tp.basecode.bgame.model.FiniteRectBoard;
 import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
 import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
 import es.ucm.fdi.tp.basecode.bgame.model.GameRules;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveBuffer;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveIterator;
+import es.ucm.fdi.tp.basecode.bgame.model.PaddedLayout;
 import es.ucm.fdi.tp.basecode.bgame.model.Pair;
 import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+import es.ucm.fdi.tp.basecode.bgame.model.PieceRegistry;
+import es.ucm.fdi.tp.basecode.bgame.model.ReadOnlyBoard;
+import es.ucm.fdi.tp.basecode.bgame.model.TurnRotation;
 
 /**
  * Rules for Ataxx game.
@@ -41,17 +49,60 @@ public class AtaxxRules implements GameRules {
 	//
 	protected final Pair<State, Piece> gameInPlayResult = new Pair<State, Piece>(State.InPlay, null);
 
+	/**
+	 * Weights of the evaluation: per piece, per piece that cannot be captured
+	 * and per cell where the player can move.
+	 * 
+	 * <p>
+	 * Pesos de la evaluacion: por ficha, por ficha que no puede ser capturada
+	 * y por casilla a la que puede mover el jugador.
+	 */
+	public static final double MATERIAL = 1.0;
+	public static final double SAFETY = 0.5;
+	public static final double MOBILITY = 0.1;
+
 	private int dim;
 
 	private int obstacles;
 
 	private Piece obstacle;
 
-	private int wonIndex;
+	/**
+	 * Whether the statistics of the generated moves are collected. They are
+	 * off by default, since the rules are shared by all the threads of a
+	 * search and updating shared counters on every call to
+	 * {@link #validMoves(Board, List, Piece, MoveBuffer)} would make them
+	 * fight for the same cache line.
+	 * 
+	 * <p>
+	 * Si se recogen las estadisticas de los movimientos generados. Estan
+	 * desactivadas por defecto, ya que las reglas las comparten todos los
+	 * hilos de una busqueda y actualizar contadores compartidos en cada
+	 * llamada a {@link #validMoves(Board, List, Piece, MoveBuffer)} haria que
+	 * compitieran por la misma linea de cache.
+	 */
+	private volatile boolean collectStatistics;
+
+	/**
+	 * Statistics of the generated moves: number of calls to
+	 * {@link #validMoves(Board, List, Piece, MoveBuffer)}, moves generated and
+	 * duplicate clones left out. They are atomic since several players may
+	 * generate moves at the same time.
+	 * 
+	 * <p>
+	 * Estadisticas de los movimientos generados: numero de llamadas a
+	 * {@link #validMoves(Board, List, Piece, MoveBuffer)}, movimientos
+	 * generados y clonaciones repetidas descartadas. Son atomicas porque
+	 * varios jugadores pueden generar movimientos a la vez.
+	 */
+	private final AtomicLong generations = new AtomicLong();
+	private final AtomicLong generatedMoves = new AtomicLong();
+	private final AtomicLong mergedClones = new AtomicLong();
 
 	public AtaxxRules(int dim, int obstacles) {
 		this.dim = dim;
 		this.obstacles = obstacles;
+		this.obstacle = PieceRegistry.OBSTACLE;
 	}
 
 	@Override
@@ -62,7 +113,7 @@ public class AtaxxRules implements GameRules {
 	@Override
 	public Board createBoard(List<Piece> pieces) {
 		/* Initializing the board. */
-		FiniteRectBoard board = new FiniteRectBoard(dim, dim);
+		Board board = AtaxxBitboard.create(dim, dim, pieces, obstacle);
 		embedPlayers(pieces, board);
 		spreadObstacles(board);
 		return board;
@@ -86,6 +137,11 @@ public class AtaxxRules implements GameRules {
 				board.setPosition(dim - 1, dim / 2, pieces.get(3));
 			}
 		}
+
+		/* Every player starts with two pieces. */
+		for (Piece p : pieces) {
+			board.setPieceCount(p, 2);
+		}
 	}
 
 	/**
@@ -94,7 +150,6 @@ public class AtaxxRules implements GameRules {
 	 */
 	private void spreadObstacles(Board board) {
 		int randomRow, randomCol;
-		obstacle = new Piece("*");
 
 		/*
 		 * The obstacles are always greater than 4, in fact they are multiples
@@ -136,42 +191,61 @@ public class AtaxxRules implements GameRules {
 		return 4;
 	}
 
+	/**
+	 * The game ends when the board is full, when no player can move, or when
+	 * only one player has pieces left. It is decided in a single pass over the
+	 * players, with the piece counts of the board and
+	 * {@link #hasValidMove(Board, List, Piece)}, which on bitboards just
+	 * consults their incremental frontier sizes: O(players) per move.
+	 * 
+	 * <p>
+	 * La partida acaba cuando el tablero esta lleno, cuando ningun jugador
+	 * puede mover, o cuando solo a un jugador le quedan fichas. Se decide en
+	 * una sola pasada por los jugadores, con los contadores de fichas del
+	 * tablero y {@link #hasValidMove(Board, List, Piece)}, que en los
+	 * bitboards solo consulta el tamano incremental de sus fronteras:
+	 * O(jugadores) por movimiento.
+	 */
 	@Override
 	public Pair<State, Piece> updateState(Board board, List<Piece> playersPieces, Piece lastPlayer) {
+		boolean full = board.isFull();
+		boolean canMove = false;
+		int alive = 0;
+		int lastAlive = -1;
+		int best = -1;
+		int bestCount = -1;
+		boolean tie = false;
 
-		Integer pos;
-		if (board.isFull()) {
-			if (equalPoints(board, playersPieces)) { // twice linear (reduce!!)
-				return new Pair<State, Piece>(State.Draw, null);
-			} else {
-				return new Pair<State, Piece>(State.Won, playersPieces.get(wonIndex));
+		for (int i = 0; i < playersPieces.size(); i++) {
+			Piece p = playersPieces.get(i);
+			int count = board.getPieceCountValue(p);
+			if (count > bestCount) {
+				best = i;
+				bestCount = count;
+				tie = false;
+			} else if (count == bestCount) {
+				tie = true;
 			}
-		} else {
-			if (noValidMoves(board, playersPieces)) {
-				if (equalPoints(board, playersPieces)) {
-					return new Pair<State, Piece>(State.Draw, null);
-				} else {
-					return new Pair<State, Piece>(State.Won, playersPieces.get(wonIndex));
+			if (count > 0) {
+				alive++;
+				lastAlive = i;
+				if (!full && !canMove) {
+					canMove = hasValidMove(board, playersPieces, p);
 				}
-			} else if ((pos = onlyOneAlive(board, playersPieces)) != null) {
-				return new Pair<State, Piece>(State.Won, playersPieces.get(pos));
-			} else {
-				return gameInPlayResult;
 			}
 		}
-	}
-	
-	//EXPENSIVE!!
-	private boolean noValidMoves(Board board, List<Piece> playersPieces) {
-		boolean correct = true;
-		for (int i = 0; i < playersPieces.size(); i++) {
-			List<GameMove> moves = validMoves(board, playersPieces, playersPieces.get(i));
-			if (moves.size() != 0) {
-				correct = false;
+
+		if (full || !canMove) {
+			if (tie) {
+				return new Pair<State, Piece>(State.Draw, null);
+			} else {
+				return new Pair<State, Piece>(State.Won, playersPieces.get(best));
 			}
+		} else if (alive == 1) {
+			return new Pair<State, Piece>(State.Won, playersPieces.get(lastAlive));
+		} else {
+			return gameInPlayResult;
 		}
-
-		return correct;
 	}
 
 	/**
@@ -189,7 +263,7 @@ public class AtaxxRules implements GameRules {
 
 		for (int i = 0; i < dim; i++) {
 			for (int j = 0; j < dim; j++) {
-				if (board.getPosition(i, j) != null && board.getPosition(i, j).getId() != "*") {
+				if (board.getPosition(i, j) != null && !PieceRegistry.isObstacle(board.getPosition(i, j))) {
 					Integer actualpoints = board.getPieceCount(board.getPosition(i, j)) + 1;
 					board.setPieceCount(board.getPosition(i, j), actualpoints);
 				}
@@ -198,99 +272,371 @@ public class AtaxxRules implements GameRules {
 		}
 	}
 	
-	/*REVISE*/
-	private Integer onlyOneAlive(Board board, List<Piece> playersPieces) {
-		int alive = 0;
-		int pos = -1;
-		for (int i = 0; i < playersPieces.size() && alive < 2; i++) {
-			if (board.getPieceCount(playersPieces.get(i)) != 0) {
-				alive++;
-				if (alive == 1)
-					pos = i;
+	/**
+	 * Players without pieces or without moves pass. Each player is checked
+	 * once (which on bitboards is just reading a counter) and the next one is
+	 * chosen by {@link TurnRotation}.
+	 * 
+	 * <p>
+	 * Los jugadores sin fichas o sin movimientos pasan. Cada jugador se
+	 * comprueba una vez (lo que en los bitboards es solo leer un contador) y
+	 * {@link TurnRotation} elige el siguiente.
+	 * 
+	 * @return The next player, or {@code null} if nobody can move.
+	 */
+	@Override
+	public Piece nextPlayer(Board board, List<Piece> playersPieces, Piece lastPlayer) {
+		int playable = 0;
+		for (int i = 0; i < playersPieces.size(); i++) {
+			Piece p = playersPieces.get(i);
+			if (board.getPieceCountValue(p) > 0 && hasValidMove(board, playersPieces, p)) {
+				playable |= 1 << i;
+			}
+		}
+		return TurnRotation.next(playersPieces, lastPlayer, playable);
+	}
 
+	/**
+	 * Scores every player as {@link #MATERIAL} per piece, plus
+	 * {@link #SAFETY} per piece that cannot be captured (so pieces exposed
+	 * around the frontier are worth less), plus {@link #MOBILITY} per cell it
+	 * can move to, and compares the score of {@code turn} with the best of its
+	 * opponents, so the value is in [-1,1] whatever the number of players. A
+	 * player without pieces evaluates to -1. On bitboards every term is kept
+	 * up to date by the moves, so the cost is O(players); other boards are
+	 * scanned.
+	 * 
+	 * <p>
+	 * Puntua cada jugador con {@link #MATERIAL} por ficha, mas
+	 * {@link #SAFETY} por ficha que no puede ser capturada (por lo que las
+	 * fichas expuestas en la frontera valen menos), mas {@link #MOBILITY} por
+	 * casilla a la que puede mover, y compara la puntuacion de {@code turn}
+	 * con la mejor de sus oponentes, por lo que el valor esta en [-1,1] sea
+	 * cual sea el numero de jugadores. Un jugador sin fichas se evalua a -1.
+	 * En los bitboards los movimientos mantienen al dia todos los terminos,
+	 * por lo que el coste es O(jugadores); los demas tableros se recorren.
+	 */
+	@Override
+	public double evaluate(Board board, List<Piece> playersPieces, Piece turn) {
+		if (board.getPieceCountValue(turn) == 0) {
+			return -1;
+		}
+		AtaxxBitboard bitboard = asBitboard(board);
+		double mine = 0;
+		double theirs = 0;
+		for (Piece p : playersPieces) {
+			double score;
+			if (bitboard != null) {
+				int layer = bitboard.layerOf(p);
+				score = score(board.getPieceCountValue(p), bitboard.safeCount(layer), bitboard.frontierSize(layer));
+			} else {
+				score = score(board, p);
+			}
+			if (p == turn) {
+				mine = score;
+			} else {
+				theirs = Math.max(theirs, score);
 			}
 		}
-		if (pos == -1 || alive == 2) {
-			return null;
-		} else {
-			return pos;
+		return (mine - theirs) / (mine + theirs);
+	}
+
+	private double score(int pieces, int safe, int mobility) {
+		return MATERIAL * pieces + SAFETY * safe + MOBILITY * mobility;
+	}
+
+	/**
+	 * Same as {@link #score(int, int, int)}, counting the terms on any board.
+	 */
+	private double score(Board board, Piece p) {
+		int cols = board.getCols();
+		BoardGeometry geometry = BoardGeometry.of(board.getRows(), cols);
+		int pieces = 0;
+		int safe = 0;
+		int mobility = 0;
+		for (int c = 0; c < board.getRows() * cols; c++) {
+			Piece q = board.getPosition(c / cols, c % cols);
+			if (q == p) {
+				pieces++;
+				if (count(board, geometry, c, 1, null) == 0) {
+					safe++;
+				}
+			} else if (q == null && (count(board, geometry, c, 1, p) > 0 || count(board, geometry, c, 2, p) > 0)) {
+				mobility++;
+			}
 		}
+		return score(pieces, safe, mobility);
 	}
 
-	private Piece wonPlayer(Board board, List<Piece> playersPieces) {
-		int max = board.getPieceCount(playersPieces.get(0));
-		int pos = 0;
-		for (int i = 1; i < playersPieces.size(); i++) {
-			if (max < board.getPieceCount(playersPieces.get(i))) {
-				max = board.getPieceCount(playersPieces.get(i));
-				pos = i;
+	/**
+	 * Counts the cells with {@code p} at distance {@code distance} (1 or 2) of
+	 * {@code cell}.
+	 * <p>
+	 * Cuenta las casillas con {@code p} a distancia {@code distance} (1 o 2)
+	 * de {@code cell}.
+	 */
+	private int count(Board board, BoardGeometry geometry, int cell, int distance, Piece p) {
+		int cols = board.getCols();
+		int size = distance == 1 ? geometry.ring1Size(cell) : geometry.ring2Size(cell);
+		int n = 0;
+		for (int k = 0; k < size; k++) {
+			int c = distance == 1 ? geometry.ring1(cell, k) : geometry.ring2(cell, k);
+			if (board.getPosition(c / cols, c % cols) == p) {
+				n++;
 			}
 		}
-		wonIndex = pos;
-		return playersPieces.get(pos);
+		return n;
 	}
 
 	/**
-	 * Complexity, twice linear, try to improve performance.
+	 * Gets the bitboard behind {@code board}, if any. Players receive the board
+	 * wrapped in a {@link ReadOnlyBoard}, which is unwrapped (not copied), so
+	 * that the bitboard is only read in place.
 	 * 
-	 * @param board
-	 * @param playersPieces
-	 * @return
+	 * @return The bitboard, or {@code null} if {@code board} is not an Ataxx
+	 *         bitboard.
 	 */
-	private boolean equalPoints(Board board, List<Piece> playersPieces) {
-		boolean equal = false;
-		// linear.
-		Piece winnerPiece = wonPlayer(board, playersPieces);
-		// linear again.
-		for (int i = 0; i < playersPieces.size(); i++) {
-			if (board.getPieceCount(playersPieces.get(i)) == board.getPieceCount(winnerPiece)
-					&& playersPieces.get(i).getId() != winnerPiece.getId()) {
-				equal = true;
-			}
+	private AtaxxBitboard asBitboard(Board board) {
+		while (board instanceof ReadOnlyBoard) {
+			board = ((ReadOnlyBoard) board).getWrappedBoard();
+		}
+		if (board instanceof AtaxxBitboard) {
+			return (AtaxxBitboard) board;
+		} else {
+			return null;
 		}
-		return equal;
 	}
 
 	@Override
-	public Piece nextPlayer(Board board, List<Piece> playersPieces, Piece lastPlayer) {
-		int i = playersPieces.indexOf(lastPlayer);
-		List<GameMove> moves = validMoves(board, playersPieces, playersPieces.get((i + 1) % playersPieces.size()));
-		while (board.getPieceCount(playersPieces.get((i + 1) % playersPieces.size())) == 0 || moves.size() == 0) {
-			i++;
-			moves = validMoves(board, playersPieces, playersPieces.get((i + 1) % playersPieces.size()));
+	public List<GameMove> validMoves(Board board, List<Piece> playersPieces, Piece turn) {
+		MoveBuffer buffer = new MoveBuffer();
+		validMoves(board, playersPieces, turn, buffer);
+		List<GameMove> moves = new ArrayList<GameMove>(buffer.size());
+		for (int i = 0; i < buffer.size(); i++) {
+			moves.add(decodeMove(board, turn, buffer.get(i)));
 		}
-		return playersPieces.get((i + 1) % playersPieces.size());
+		return moves;
 	}
 
+	/**
+	 * The moves are encoded as {@link MoveBuffer#encode(int, int)} of the
+	 * origin and destination cells. Clones to the same cell lead to the same
+	 * position, so there is only one for each destination (from the first
+	 * piece of the player next to it), while jumps are kept for each origin.
+	 * 
+	 * <p>
+	 * Los movimientos se codifican como {@link MoveBuffer#encode(int, int)} de
+	 * las casillas de origen y destino. Las clonaciones a la misma casilla
+	 * llevan a la misma posicion, por lo que hay una sola por destino (desde
+	 * la primera ficha del jugador junto a ella), mientras que los saltos se
+	 * mantienen para cada origen.
+	 */
 	@Override
-	public double evaluate(Board board, List<Piece> playersPieces, Piece turn) {
-		return 0;
+	public void validMoves(Board board, List<Piece> playersPieces, Piece turn, MoveBuffer moves) {
+		moves.clear();
+		int merged;
+		AtaxxBitboard bitboard = asBitboard(board);
+		if (bitboard != null) {
+			merged = bitboard.addValidMoves(bitboard.layerOf(turn), moves);
+		} else {
+			merged = 0;
+			BoardGeometry geometry = BoardGeometry.of(board.getRows(), board.getCols());
+			for (int to = 0; to < board.getRows() * board.getCols(); to++) {
+				merged += addMovesTo(board, geometry, turn, to, moves);
+			}
+		}
+		if (collectStatistics) {
+			generations.incrementAndGet();
+			generatedMoves.addAndGet(moves.size());
+			mergedClones.addAndGet(merged);
+		}
 	}
 
-	private static final int deltas[][] = { { 0, 1 }, { 1, 1 }, { 1, 0 }, { 1, -1 }, { 0, -1 }, { -1, 1 }, { -1, 0 },
-			{ -1, -1 }, { -2, -2 }, { -2, -1 }, { -2, 0 }, { -2, 1 }, { -2, 2 }, { -1, -2 }, { -1, 2 }, { 0, -2 },
-			{ 0, 2 }, { 1, -2 }, { 1, 2 }, { 2, -2 }, { 2, -1 }, { 2, 0 }, { 2, 1 }, { 2, 2 } };
-
-	private boolean inBoard(int x, int y) {
-		return x >= 0 && y >= 0 && x < dim && y < dim;
+	@Override
+	public GameMove decodeMove(Board board, Piece turn, int move) {
+		int cols = board.getCols();
+		int from = MoveBuffer.from(move);
+		int to = MoveBuffer.to(move);
+		return new AtaxxMove(from / cols, from % cols, to / cols, to % cols, turn);
 	}
 
+	/**
+	 * Generates the moves one destination cell at a time. On bitboards only
+	 * the cells of the frontier of the player are visited.
+	 * 
+	 * <p>
+	 * Genera los movimientos de casilla de destino en casilla de destino. En
+	 * los bitboards solo se visitan las casillas de la frontera del jugador.
+	 */
 	@Override
-	public List<GameMove> validMoves(Board board, List<Piece> playersPieces, Piece turn) {
-		List<GameMove> moves = new ArrayList<GameMove>();
-		for (int i = 0; i < board.getRows(); i++) {
-			for (int j = 0; j < board.getCols(); j++) {
-				if (board.getPosition(i, j) == turn) {
-					for (int[] ds : deltas) {
-						int x = i + ds[0];
-						int y = j + ds[1];
-						if (inBoard(x, y) && board.getPosition(x, y) == null) {
-							moves.add(new AtaxxMove(i, j, x, y, turn));
-						}
+	public MoveIterator moveIterator(final Board board, List<Piece> playersPieces, final Piece turn) {
+		final AtaxxBitboard bitboard = asBitboard(board);
+		if (bitboard != null) {
+			final int layer = bitboard.layerOf(turn);
+			return new MoveIterator(this, board, turn) {
+				private int from = 0;
+
+				@Override
+				protected boolean nextGroup(MoveBuffer moves) {
+					int to = bitboard.nextFrontierCell(layer, from);
+					if (to < 0) {
+						return false;
 					}
+					bitboard.addMovesTo(layer, to, moves);
+					from = to + 1;
+					return true;
 				}
+			};
+		} else {
+			final BoardGeometry geometry = BoardGeometry.of(board.getRows(), board.getCols());
+			return new MoveIterator(this, board, turn) {
+				private int to = 0;
+
+				@Override
+				protected boolean nextGroup(MoveBuffer moves) {
+					if (to == board.getRows() * board.getCols()) {
+						return false;
+					}
+					addMovesTo(board, geometry, turn, to++, moves);
+					return true;
+				}
+			};
+		}
+	}
+
+	/**
+	 * On bitboards it is enough to check that the frontier of the player is
+	 * not empty, which takes a few bit counts.
+	 * 
+	 * <p>
+	 * En los bitboards basta con comprobar que la frontera del jugador no
+	 * esta vacia, lo que cuesta unas pocas cuentas de bits.
+	 */
+	@Override
+	public boolean hasValidMove(Board board, List<Piece> playersPieces, Piece turn) {
+		AtaxxBitboard bitboard = asBitboard(board);
+		if (bitboard != null) {
+			return bitboard.frontierSize(bitboard.layerOf(turn)) > 0;
+		} else {
+			return moveIterator(board, playersPieces, turn).hasNext();
+		}
+	}
+
+	@Override
+	public GameMove randomValidMove(Board board, List<Piece> playersPieces, Piece turn) {
+		return moveIterator(board, playersPieces, turn).sample();
+	}
+
+	/**
+	 * Adds the valid moves of {@code turn} to the cell {@code to} (a linear
+	 * index), the same ones that bitboards add in
+	 * {@link AtaxxBitboard#addMovesTo(int, int, MoveBuffer)}. The neighbours
+	 * are visited with the offsets of the {@link PaddedLayout} on a
+	 * {@link FiniteRectBoard}, and with the lists of {@code geometry} on any
+	 * other board.
+	 * 
+	 * @return The number of clones left out because they repeat another one.
+	 */
+	private int addMovesTo(Board board, BoardGeometry geometry, Piece turn, int to, MoveBuffer moves) {
+		if (board instanceof FiniteRectBoard) {
+			return addMovesTo((FiniteRectBoard) board, turn, to, moves);
+		}
+		int cols = board.getCols();
+		if (board.getPosition(to / cols, to % cols) != null) {
+			return 0;
+		}
+		int clones = 0;
+		for (int k = 0, n = geometry.ring1Size(to); k < n; k++) {
+			int from = geometry.ring1(to, k);
+			if (board.getPosition(from / cols, from % cols) == turn && clones++ == 0) {
+				moves.add(MoveBuffer.encode(from, to));
 			}
 		}
-		return moves;
+		for (int k = 0, n = geometry.ring2Size(to); k < n; k++) {
+			int from = geometry.ring2(to, k);
+			if (board.getPosition(from / cols, from % cols) == turn) {
+				moves.add(MoveBuffer.encode(from, to));
+			}
+		}
+		return Math.max(0, clones - 1);
+	}
+
+	private int addMovesTo(FiniteRectBoard board, Piece turn, int to, MoveBuffer moves) {
+		PaddedLayout layout = board.getLayout();
+		int i = layout.fromLinear(to);
+		if (!board.isFree(i)) {
+			return 0;
+		}
+		int clones = 0;
+		for (int k = 0; k < PaddedLayout.RING1_SIZE; k++) {
+			int d = layout.ring1(k);
+			if (board.getCell(i + d) == turn && clones++ == 0) {
+				moves.add(MoveBuffer.encode(layout.toLinear(i + d), to));
+			}
+		}
+		for (int k = 0; k < PaddedLayout.RING2_SIZE; k++) {
+			int d = layout.ring2(k);
+			if (board.getCell(i + d) == turn) {
+				moves.add(MoveBuffer.encode(layout.toLinear(i + d), to));
+			}
+		}
+		return Math.max(0, clones - 1);
+	}
+
+	/**
+	 * Enables or disables the statistics of the generated moves (see
+	 * {@link #getBranchingFactor()}), which are disabled by default.
+	 * 
+	 * <p>
+	 * Activa o desactiva las estadisticas de los movimientos generados (vease
+	 * {@link #getBranchingFactor()}), que estan desactivadas por defecto.
+	 */
+	public void setStatisticsEnabled(boolean enabled) {
+		collectStatistics = enabled;
+	}
+
+	/**
+	 * Consults the average number of moves per call to
+	 * {@link #validMoves(Board, List, Piece, MoveBuffer)} (also through
+	 * {@link #validMoves(Board, List, Piece)}) while the statistics were
+	 * enabled (see {@link #setStatisticsEnabled(boolean)}), since the rules
+	 * were created or {@link #resetStatistics()} was called.
+	 * 
+	 * <p>
+	 * Devuelve el numero medio de movimientos por llamada a
+	 * {@link #validMoves(Board, List, Piece, MoveBuffer)} (tambien a traves de
+	 * {@link #validMoves(Board, List, Piece)}) mientras las estadisticas
+	 * estaban activadas (vease {@link #setStatisticsEnabled(boolean)}), desde
+	 * que se crearon las reglas o se llamo a {@link #resetStatistics()}.
+	 */
+	public double getBranchingFactor() {
+		long n = generations.get();
+		return n == 0 ? 0 : (double) generatedMoves.get() / n;
+	}
+
+	/**
+	 * Consults the average number of duplicate clones left out per call, that
+	 * is, how much larger {@link #getBranchingFactor()} would be without
+	 * merging them.
+	 * 
+	 * <p>
+	 * Devuelve el numero medio de clonaciones repetidas descartadas por
+	 * llamada, es decir, cuanto mayor seria {@link #getBranchingFactor()} sin
+	 * unificarlas.
+	 */
+	public double getMergedClonesPerCall() {
+		long n = generations.get();
+		return n == 0 ? 0 : (double) mergedClones.get() / n;
+	}
+
+	/**
+	 * Resets the statistics of the generated moves.
+	 * <p>
+	 * Reinicia las estadisticas de los movimientos generados.
+	 */
+	public void resetStatistics() {
+		generations.set(0);
+		generatedMoves.set(0);
+		mergedClones.set(0);
 	}
 }
@@ -0,0 +1,183 @@
+package es.ucm.fdi.tp.practica4.ataxx;
+
+import java.util.List;
+
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.BoardGeometry;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveBuffer;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+
+/**
+ * An Ataxx bitboard for boards with at most 64 cells (e.g., 5x5 and 7x7), each
+ * layer is a single {@code long}.
+ *
+ * <p>
+ * Tablero de bits de Ataxx para tableros de como mucho 64 casillas (por
+ * ejemplo, 5x5 y 7x7), cada capa es un unico {@code long}.
+ */
+class AtaxxSmallBitboard extends AtaxxBitboard {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The layers, one per player and the last one for the obstacles.
+	 * <p>
+	 * Las capas, una por jugador y la ultima para los obstaculos.
+	 */
+	private long[] bits;
+
+	/**
+	 * Mask of the cells that belong to the board.
+	 * <p>
+	 * Mascara de las casillas que pertenecen al tablero.
+	 */
+	private final long all;
+
+	/**
+	 * The reach of each player (see {@link AtaxxBitboard}).
+	 * <p>
+	 * El alcance de cada jugador (vease {@link AtaxxBitboard}).
+	 */
+	private long[] reach;
+
+	/**
+	 * For each cell, the mask of the cells at distance 1 (clones) and 2
+	 * (jumps), in the first and only word. They are taken from the
+	 * {@link BoardGeometry} of the board, so all the boards of the same
+	 * dimension share them.
+	 *
+	 * <p>
+	 * Para cada casilla, la mascara de las casillas a distancia 1 (clonar) y 2
+	 * (saltar), en la primera y unica palabra. Se obtienen de la
+	 * {@link BoardGeometry} del tablero, por lo que todos los tableros de la
+	 * misma dimension las comparten.
+	 */
+	private final long[][] near;
+	private final long[][] far;
+
+	AtaxxSmallBitboard(int rows, int cols, List<Piece> players, Piece obstacle) {
+		super(rows, cols, players, obstacle);
+		int cells = rows * cols;
+		this.bits = new long[players.size() + 1];
+		this.all = cells == Long.SIZE ? -1L : (1L << cells) - 1;
+		this.reach = new long[players.size()];
+		this.near = geometry.ring1Masks();
+		this.far = geometry.ring2Masks();
+	}
+
+	private AtaxxSmallBitboard(AtaxxSmallBitboard other) {
+		super(other);
+		this.bits = other.bits.clone();
+		this.all = other.all;
+		this.reach = other.reach.clone();
+		this.near = other.near;
+		this.far = other.far;
+	}
+
+	@Override
+	protected int layerAt(int cell) {
+		long bit = 1L << cell;
+		for (int i = 0; i < bits.length; i++) {
+			if ((bits[i] & bit) != 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	protected void setBit(int layer, int cell) {
+		bits[layer] |= 1L << cell;
+	}
+
+	@Override
+	protected void clearBit(int layer, int cell) {
+		bits[layer] &= ~(1L << cell);
+	}
+
+	private long occupiedMask() {
+		long occ = 0;
+		for (long b : bits) {
+			occ |= b;
+		}
+		return occ;
+	}
+
+	@Override
+	protected int nthEmpty(int k) {
+		long empty = all & ~occupiedMask();
+		for (int i = 0; i < k; i++) {
+			empty &= empty - 1;
+		}
+		return Long.numberOfTrailingZeros(empty);
+	}
+
+	@Override
+	protected void setReachBit(int layer, int cell, boolean on) {
+		if (on) {
+			reach[layer] |= 1L << cell;
+		} else {
+			reach[layer] &= ~(1L << cell);
+		}
+	}
+
+	@Override
+	public int addValidMoves(int layer, MoveBuffer moves) {
+		long frontier = reach[layer] & all & ~occupiedMask();
+		long mine = bits[layer];
+		int merged = 0;
+		while (frontier != 0) {
+			int to = Long.numberOfTrailingZeros(frontier);
+			frontier &= frontier - 1;
+			merged += addMovesTo(mine, to, moves);
+		}
+		return merged;
+	}
+
+	@Override
+	public int addMovesTo(int layer, int to, MoveBuffer moves) {
+		return addMovesTo(bits[layer], to, moves);
+	}
+
+	private int addMovesTo(long mine, int to, MoveBuffer moves) {
+		int merged = 0;
+		long clones = near[to][0] & mine;
+		if (clones != 0) {
+			moves.add(MoveBuffer.encode(Long.numberOfTrailingZeros(clones), to));
+			merged = Long.bitCount(clones) - 1;
+		}
+		addMoves(far[to][0] & mine, 0, to, moves);
+		return merged;
+	}
+
+	@Override
+	public int nextFrontierCell(int layer, int from) {
+		if (from >= Long.SIZE) {
+			return -1;
+		}
+		long frontier = reach[layer] & all & ~occupiedMask() & (-1L << from);
+		return frontier == 0 ? -1 : Long.numberOfTrailingZeros(frontier);
+	}
+
+	@Override
+	public int capture(int layer, int cell, int[] cells, Piece[] owners) {
+		long ring = near[cell][0];
+		int total = 0;
+		for (int i = 0; i < players.size(); i++) {
+			long flipped = i == layer ? 0 : bits[i] & ring;
+			lost[i] = Long.bitCount(flipped);
+			if (flipped != 0) {
+				bits[i] &= ~flipped;
+				bits[layer] |= flipped;
+				total = storeCaptured(flipped, 0, i, layer, cells, owners, total);
+			}
+		}
+		return total;
+	}
+
+	@Override
+	public Board copy() {
+		return new AtaxxSmallBitboard(this);
+	}
+
+}
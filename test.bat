@@ -0,0 +1,3 @@
+java -cp bin;lib/commons-cli-1.3.1.jar es.ucm.fdi.tp.practica4.ataxx.AtaxxBitboardTest
+java -cp bin;lib/commons-cli-1.3.1.jar es.ucm.fdi.tp.practica4.ataxx.AtaxxMovesTest
+java -cp bin;lib/commons-cli-1.3.1.jar es.ucm.fdi.tp.basecode.connectN.ConnectNBoardTest
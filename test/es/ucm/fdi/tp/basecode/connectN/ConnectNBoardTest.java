@@ -0,0 +1,260 @@
+package es.ucm.fdi.tp.basecode.connectN;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.FiniteRectBoard;
+import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.Pair;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+import es.ucm.fdi.tp.basecode.bgame.model.ReadOnlyBoard;
+
+/**
+ * Checks the window counters of {@link ConnectNBoard} against a full scan of
+ * the board, for every dimension from 3 to 9 and every line length from 3 to
+ * the dimension. It places, replaces and removes pieces at random, on the
+ * board and on its copies, and compares {@link ConnectNBoard#getOpenWindows}
+ * and {@link ConnectNBoard#getWinner()} with the windows counted cell by cell.
+ * It also plays random games on a {@link ConnectNBoard} and a
+ * {@link FiniteRectBoard} at the same time, comparing the state and
+ * evaluation of {@link ConnectNRules}, and checks that executing a move and
+ * undoing it leaves the counters as they were. Run it as a Java application:
+ * it throws an {@link AssertionError} at the first difference.
+ *
+ * <p>
+ * Comprueba los contadores de ventanas de {@link ConnectNBoard} frente a un
+ * recorrido completo del tablero, para cada dimension de 3 a 9 y cada
+ * longitud de linea de 3 a la dimension. Coloca, sustituye y quita fichas al
+ * azar, en el tablero y en sus copias, y compara
+ * {@link ConnectNBoard#getOpenWindows} y {@link ConnectNBoard#getWinner()} con
+ * las ventanas contadas casilla a casilla. Tambien juega partidas aleatorias
+ * en un {@link ConnectNBoard} y un {@link FiniteRectBoard} a la vez,
+ * comparando el estado y la evaluacion de {@link ConnectNRules}, y comprueba
+ * que ejecutar un movimiento y deshacerlo deja los contadores como estaban.
+ * Se ejecuta como una aplicacion Java: lanza un {@link AssertionError} en la
+ * primera diferencia.
+ */
+public class ConnectNBoardTest {
+
+	/**
+	 * The directions of the windows, as in {@link ConnectNBoard}.
+	 * <p>
+	 * Las direcciones de las ventanas, como en {@link ConnectNBoard}.
+	 */
+	private static final int[] DR = { 0, 1, 1, 1 };
+	private static final int[] DC = { 1, 0, 1, -1 };
+
+	private static final int EDITS = 60;
+	private static final int GAMES = 4;
+
+	public static void main(String[] args) {
+		Random random = new Random(3);
+		int checked = 0;
+		for (int dim = 3; dim <= 9; dim++) {
+			for (int k = 3; k <= dim; k++) {
+				for (int players = 2; players <= 4; players++) {
+					List<Piece> pieces = new ArrayList<Piece>();
+					for (int i = 0; i < players; i++) {
+						pieces.add(new Piece("P" + i));
+					}
+					checked += edit(dim, k, pieces, random);
+					for (int g = 0; g < GAMES; g++) {
+						checked += play(new ConnectNRules(dim, k), pieces, random);
+					}
+				}
+			}
+		}
+		System.out.println("OK: " + checked + " positions checked");
+	}
+
+	/**
+	 * Places, replaces and removes pieces at random, checking the counters
+	 * after each change. Every few changes it goes on with a copy, and checks
+	 * that changing the copy leaves the original as it was, and that the
+	 * original still counts its own changes.
+	 *
+	 * <p>
+	 * Coloca, sustituye y quita fichas al azar, comprobando los contadores
+	 * tras cada cambio. Cada pocos cambios sigue con una copia, y comprueba
+	 * que cambiar la copia deja el original como estaba, y que el original
+	 * sigue contando sus propios cambios.
+	 *
+	 * @return The number of positions checked.
+	 */
+	private static int edit(int dim, int k, List<Piece> pieces, Random random) {
+		ConnectNBoard board = new ConnectNBoard(dim, k);
+		for (int e = 0; e < EDITS; e++) {
+			int row = random.nextInt(dim);
+			int col = random.nextInt(dim);
+			Piece p = random.nextInt(4) == 0 ? null : pieces.get(random.nextInt(pieces.size()));
+			if (e % 8 == 7) {
+				ConnectNBoard original = board;
+				String before = scan(original, pieces);
+				board = (ConnectNBoard) original.copy();
+				board.setPosition(row, col, p);
+				check(original, pieces);
+				if (!before.equals(scan(original, pieces))) {
+					throw new AssertionError("Changing a copy changes the original:\n" + original);
+				}
+				// the original must still keep its own counters
+				Piece q = pieces.get(random.nextInt(pieces.size()));
+				original.setPosition(random.nextInt(dim), random.nextInt(dim), q);
+				check(original, pieces);
+			} else {
+				board.setPosition(row, col, p);
+			}
+			check(board, pieces);
+		}
+		return EDITS;
+	}
+
+	/**
+	 * Plays a random game on a {@link ConnectNBoard} and on a
+	 * {@link FiniteRectBoard}, comparing them after every move.
+	 *
+	 * <p>
+	 * Juega una partida aleatoria en un {@link ConnectNBoard} y en un
+	 * {@link FiniteRectBoard}, comparandolos tras cada movimiento.
+	 *
+	 * @return The number of moves played.
+	 */
+	private static int play(ConnectNRules rules, List<Piece> pieces, Random random) {
+		ConnectNBoard board = (ConnectNBoard) rules.createBoard(pieces);
+		Board plain = new FiniteRectBoard(board.getRows(), board.getCols());
+		for (Piece p : pieces) {
+			plain.setPieceCount(p, board.getPieceCount(p));
+		}
+		Piece turn = rules.initialPlayer(board, pieces);
+		int moves = 0;
+		while (true) {
+			List<GameMove> valid = rules.validMoves(board, pieces, turn);
+			if (valid.isEmpty()) {
+				break;
+			}
+			GameMove move = valid.get(random.nextInt(valid.size()));
+			String before = scan(board, pieces);
+			move.execute(board, pieces);
+			move.undo(board, pieces);
+			check(board, pieces);
+			if (!before.equals(scan(board, pieces))) {
+				throw new AssertionError("Undoing " + move + " does not restore the board:\n" + board);
+			}
+			move.execute(board, pieces);
+			move.execute(plain, pieces);
+			check(board, pieces);
+			moves++;
+
+			Board readOnly = new ReadOnlyBoard(board);
+			for (Piece p : pieces) {
+				if (rules.evaluate(board, pieces, p) != rules.evaluate(plain, pieces, p)
+						|| rules.evaluate(readOnly, pieces, p) != rules.evaluate(plain, pieces, p)) {
+					throw new AssertionError("The evaluations for " + p + " differ:\n" + board);
+				}
+			}
+			Pair<State, Piece> state = rules.updateState(board, pieces, turn);
+			Pair<State, Piece> expected = rules.updateState(plain, pieces, turn);
+			if (state.getFirst() != expected.getFirst() || state.getSecond() != expected.getSecond()) {
+				throw new AssertionError("The states after " + move + " differ:\n" + board);
+			}
+			if (state.getFirst() != State.InPlay) {
+				break;
+			}
+			turn = rules.nextPlayer(board, pieces, turn);
+		}
+		return moves;
+	}
+
+	/**
+	 * Compares the counters of a board with a full scan.
+	 * <p>
+	 * Compara los contadores de un tablero con un recorrido completo.
+	 */
+	private static void check(ConnectNBoard board, List<Piece> pieces) {
+		int k = board.getLineLength();
+		int[][] open = count(board, pieces);
+		Piece winner = board.getWinner();
+		for (int i = 0; i < pieces.size(); i++) {
+			Piece p = pieces.get(i);
+			for (int n = 1; n <= k; n++) {
+				if (open[i][n] != board.getOpenWindows(p, n)) {
+					throw new AssertionError("There are " + open[i][n] + " windows with " + n + " pieces of " + p
+							+ ", the board counts " + board.getOpenWindows(p, n) + ":\n" + board);
+				}
+			}
+			if (winner == p && open[i][k] == 0) {
+				throw new AssertionError(p + " is the winner without a line:\n" + board);
+			}
+			if (winner == null && open[i][k] > 0) {
+				throw new AssertionError(p + " has a line but there is no winner:\n" + board);
+			}
+		}
+	}
+
+	/**
+	 * Counts, cell by cell, the open windows of every piece with every number
+	 * of pieces.
+	 *
+	 * <p>
+	 * Cuenta, casilla a casilla, las ventanas abiertas de cada ficha con cada
+	 * numero de fichas.
+	 *
+	 * @return The windows of {@code pieces.get(i)} with {@code n} pieces at
+	 *         {@code [i][n]}.
+	 */
+	private static int[][] count(ConnectNBoard board, List<Piece> pieces) {
+		int dim = board.getRows();
+		int k = board.getLineLength();
+		int[][] open = new int[pieces.size()][k + 1];
+		for (int d = 0; d < DR.length; d++) {
+			for (int r = 0; r < dim; r++) {
+				for (int c = 0; c < dim; c++) {
+					int er = r + (k - 1) * DR[d];
+					int ec = c + (k - 1) * DC[d];
+					if (er >= dim || ec < 0 || ec >= dim) {
+						continue;
+					}
+					Piece owner = null;
+					int n = 0;
+					for (int t = 0; t < k && n >= 0; t++) {
+						Piece q = board.getPosition(r + t * DR[d], c + t * DC[d]);
+						if (q == null) {
+							continue;
+						} else if (owner == null || owner == q) {
+							owner = q;
+							n++;
+						} else {
+							n = -1;
+						}
+					}
+					if (n > 0) {
+						open[pieces.indexOf(owner)][n]++;
+					}
+				}
+			}
+		}
+		return open;
+	}
+
+	/**
+	 * Describes the cells and counters of a board, to compare it with others.
+	 * <p>
+	 * Describe las casillas y contadores de un tablero, para compararlo con
+	 * otros.
+	 */
+	private static String scan(ConnectNBoard board, List<Piece> pieces) {
+		StringBuilder s = new StringBuilder(board.toString());
+		for (Piece p : pieces) {
+			s.append(p).append('=').append(board.getPieceCount(p));
+			for (int n = 1; n <= board.getLineLength(); n++) {
+				s.append(' ').append(board.getOpenWindows(p, n));
+			}
+			s.append('\n');
+		}
+		s.append(board.getWinner());
+		return s.toString();
+	}
+
+}
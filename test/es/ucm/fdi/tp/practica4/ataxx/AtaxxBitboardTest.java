@@ -0,0 +1,269 @@
+package es.ucm.fdi.tp.practica4.ataxx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.FiniteRectBoard;
+import es.ucm.fdi.tp.basecode.bgame.model.Game.State;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.Pair;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+import es.ucm.fdi.tp.basecode.bgame.model.ReadOnlyBoard;
+import es.ucm.fdi.tp.basecode.bgame.model.Zobrist;
+
+/**
+ * Checks that an {@link AtaxxBitboard} behaves as a {@link FiniteRectBoard}.
+ * It plays random games of Ataxx on both boards at the same time and, after
+ * every move, compares the cells, the piece-counts, the empty cells, the
+ * Zobrist keys and the results of {@link AtaxxRules} on both. It also compares
+ * the frontiers and safe pieces kept incrementally by the bitboard with a full
+ * scan, and checks that executing a move and undoing it leaves both boards as
+ * they were. Run it as a Java application: it throws an
+ * {@link AssertionError} at the first difference.
+ *
+ * <p>
+ * Comprueba que un {@link AtaxxBitboard} se comporta como un
+ * {@link FiniteRectBoard}. Juega partidas aleatorias de Ataxx en ambos
+ * tableros a la vez y, tras cada movimiento, compara las casillas, los
+ * contadores de fichas, las casillas vacias, las claves de Zobrist y los
+ * resultados de {@link AtaxxRules} en ambos. Tambien compara las fronteras y
+ * las fichas seguras que el bitboard mantiene de forma incremental con un
+ * recorrido completo, y comprueba que ejecutar un movimiento y deshacerlo deja
+ * ambos tableros como estaban. Se ejecuta como una aplicacion Java: lanza un
+ * {@link AssertionError} en la primera diferencia.
+ */
+public class AtaxxBitboardTest {
+
+	private static final String[] IDS = { "X", "O", "R", "B" };
+
+	/**
+	 * The sizes of the boards, both below and above the 64 cells of
+	 * {@link AtaxxSmallBitboard}.
+	 *
+	 * <p>
+	 * Los tamanos de los tableros, tanto por debajo como por encima de las 64
+	 * casillas de {@link AtaxxSmallBitboard}.
+	 */
+	private static final int[] DIMS = { 5, 7, 9, 11, 13 };
+
+	private static final int GAMES = 60;
+	private static final int MAX_MOVES = 300;
+
+	public static void main(String[] args) {
+		Random random = new Random(1);
+		int checked = 0;
+		for (int g = 0; g < GAMES; g++) {
+			int dim = DIMS[g % DIMS.length];
+			List<Piece> pieces = new ArrayList<Piece>();
+			for (int i = 0; i < 2 + g % 3; i++) {
+				pieces.add(new Piece(IDS[i]));
+			}
+			checked += play(new AtaxxRules(dim, g % 2 == 0 ? 0 : 4), pieces, random);
+		}
+		System.out.println("OK: " + checked + " moves checked");
+	}
+
+	/**
+	 * Plays a random game on a bitboard and on a {@link FiniteRectBoard},
+	 * comparing them after every move.
+	 *
+	 * <p>
+	 * Juega una partida aleatoria en un bitboard y en un
+	 * {@link FiniteRectBoard}, comparandolos tras cada movimiento.
+	 *
+	 * @return The number of moves played.
+	 */
+	private static int play(AtaxxRules rules, List<Piece> pieces, Random random) {
+		AtaxxBitboard bits = (AtaxxBitboard) rules.createBoard(pieces);
+		Board plain = new FiniteRectBoard(bits.getRows(), bits.getCols());
+		for (int i = 0; i < bits.getRows(); i++) {
+			for (int j = 0; j < bits.getCols(); j++) {
+				plain.setPosition(i, j, bits.getPosition(i, j));
+			}
+		}
+		for (Piece p : pieces) {
+			plain.setPieceCount(p, bits.getPieceCount(p));
+		}
+		compare(rules, pieces, bits, plain);
+
+		Piece turn = rules.initialPlayer(bits, pieces);
+		int moves = 0;
+		while (moves < MAX_MOVES && turn != null && rules.updateState(bits, pieces, turn).getFirst() == State.InPlay) {
+			List<GameMove> valid = rules.validMoves(bits, pieces, turn);
+			if (valid.isEmpty()) {
+				break;
+			}
+			GameMove move = valid.get(random.nextInt(valid.size()));
+			checkUndo(move, bits, pieces);
+			checkUndo(move, plain, pieces);
+			move.execute(bits, pieces);
+			move.execute(plain, pieces);
+			compare(rules, pieces, bits, plain);
+			turn = rules.nextPlayer(bits, pieces, turn);
+			if (turn != rules.nextPlayer(plain, pieces, move.getPiece())) {
+				throw new AssertionError("The next player differs after " + move);
+			}
+			moves++;
+		}
+		return moves;
+	}
+
+	/**
+	 * Checks that executing {@code move} on {@code board} and undoing it
+	 * leaves the board as it was.
+	 *
+	 * <p>
+	 * Comprueba que ejecutar {@code move} sobre {@code board} y deshacerlo
+	 * deja el tablero como estaba.
+	 */
+	private static void checkUndo(GameMove move, Board board, List<Piece> pieces) {
+		String before = snapshot(board, pieces);
+		long key = board.getZobristKey(null);
+		move.execute(board, pieces);
+		move.undo(board, pieces);
+		if (!before.equals(snapshot(board, pieces)) || key != board.getZobristKey(null)) {
+			throw new AssertionError("Undoing " + move + " does not restore the board:\n" + before + "\n"
+					+ snapshot(board, pieces));
+		}
+		if (board instanceof AtaxxBitboard) {
+			checkIncremental((AtaxxBitboard) board);
+		}
+	}
+
+	/**
+	 * Compares a bitboard with a {@link FiniteRectBoard} in the same
+	 * position.
+	 *
+	 * <p>
+	 * Compara un bitboard con un {@link FiniteRectBoard} en la misma
+	 * posicion.
+	 */
+	private static void compare(AtaxxRules rules, List<Piece> pieces, AtaxxBitboard bits, Board plain) {
+		if (!snapshot(bits, pieces).equals(snapshot(plain, pieces))) {
+			throw new AssertionError("The boards differ:\n" + snapshot(bits, pieces) + "\n"
+					+ snapshot(plain, pieces));
+		}
+		long key = 0;
+		for (int i = 0; i < bits.getRows(); i++) {
+			for (int j = 0; j < bits.getCols(); j++) {
+				key ^= Zobrist.cellKey(bits.getPosition(i, j), i * bits.getCols() + j);
+			}
+		}
+		Board readOnly = new ReadOnlyBoard(bits);
+		Board copy = bits.copy();
+		for (Piece p : pieces) {
+			long k = bits.getZobristKey(p);
+			if (key != bits.getZobristKey(null) || k != plain.getZobristKey(p) || k != copy.getZobristKey(p)
+					|| k != readOnly.getZobristKey(p)) {
+				throw new AssertionError("The Zobrist keys differ:\n" + bits);
+			}
+			if (rules.evaluate(bits, pieces, p) != rules.evaluate(plain, pieces, p)
+					|| rules.evaluate(readOnly, pieces, p) != rules.evaluate(plain, pieces, p)) {
+				throw new AssertionError("The evaluations for " + p + " differ:\n" + bits);
+			}
+			Pair<State, Piece> state = rules.updateState(bits, pieces, p);
+			Pair<State, Piece> expected = rules.updateState(plain, pieces, p);
+			if (state.getFirst() != expected.getFirst() || state.getSecond() != expected.getSecond()) {
+				throw new AssertionError("The states after " + p + " differ:\n" + bits);
+			}
+		}
+		if (!snapshot(copy, pieces).equals(snapshot(bits, pieces))) {
+			throw new AssertionError("The copy differs:\n" + bits);
+		}
+		checkIncremental(bits);
+	}
+
+	/**
+	 * Compares the frontiers and safe pieces of a bitboard with a full scan
+	 * of its cells.
+	 *
+	 * <p>
+	 * Compara las fronteras y las fichas seguras de un bitboard con un
+	 * recorrido completo de sus casillas.
+	 */
+	private static void checkIncremental(AtaxxBitboard bits) {
+		int rows = bits.getRows();
+		int cols = bits.getCols();
+		for (int l = 0; l < bits.numOfPlayers(); l++) {
+			Piece p = bits.pieceOf(l);
+			int frontier = 0;
+			int safe = 0;
+			for (int i = 0; i < rows; i++) {
+				for (int j = 0; j < cols; j++) {
+					Piece q = bits.getPosition(i, j);
+					if (q == null && around(bits, i, j, 2, p)) {
+						frontier++;
+					} else if (q == p && !around(bits, i, j, 1, null)) {
+						safe++;
+					}
+				}
+			}
+			if (frontier != bits.frontierSize(l) || safe != bits.safeCount(l)) {
+				throw new AssertionError("The frontier (" + bits.frontierSize(l) + ", should be " + frontier
+						+ ") or safe pieces (" + bits.safeCount(l) + ", should be " + safe + ") of " + p
+						+ " are wrong:\n" + bits);
+			}
+		}
+	}
+
+	/**
+	 * Consults whether there is a cell with {@code p} at distance at most
+	 * {@code distance} of {@code (row, col)}, other than itself.
+	 *
+	 * <p>
+	 * Devuelve si hay una casilla con {@code p} a distancia como mucho
+	 * {@code distance} de {@code (row, col)}, distinta de ella misma.
+	 */
+	private static boolean around(Board board, int row, int col, int distance, Piece p) {
+		for (int i = Math.max(0, row - distance); i <= Math.min(board.getRows() - 1, row + distance); i++) {
+			for (int j = Math.max(0, col - distance); j <= Math.min(board.getCols() - 1, col + distance); j++) {
+				if ((i != row || j != col) && board.getPosition(i, j) == p) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Describes the cells, piece-counts and empty cells of a board, to compare
+	 * it with others.
+	 *
+	 * <p>
+	 * Describe las casillas, contadores de fichas y casillas vacias de un
+	 * tablero, para compararlo con otros.
+	 */
+	private static String snapshot(Board board, List<Piece> pieces) {
+		StringBuilder s = new StringBuilder();
+		for (int i = 0; i < board.getRows(); i++) {
+			for (int j = 0; j < board.getCols(); j++) {
+				s.append(board.getPosition(i, j)).append(' ');
+			}
+			s.append('\n');
+		}
+		for (Piece p : pieces) {
+			s.append(p).append('=').append(board.getPieceCount(p)).append(' ');
+		}
+		boolean[] empty = new boolean[board.getRows() * board.getCols()];
+		for (int k = 0; k < board.getNumOfEmptyCells(); k++) {
+			empty[board.getEmptyCell(k)] = true;
+		}
+		int empties = 0;
+		for (int i = 0; i < board.getRows(); i++) {
+			for (int j = 0; j < board.getCols(); j++) {
+				if ((board.getPosition(i, j) == null) != empty[i * board.getCols() + j]) {
+					throw new AssertionError("The empty cells of the board are wrong at (" + i + "," + j + "):\n"
+							+ board);
+				}
+				if (empty[i * board.getCols() + j]) {
+					empties++;
+				}
+			}
+		}
+		s.append("empty=").append(empties).append(" full=").append(board.isFull());
+		return s.toString();
+	}
+
+}
@@ -0,0 +1,212 @@
+package es.ucm.fdi.tp.practica4.ataxx;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import es.ucm.fdi.tp.basecode.bgame.model.Board;
+import es.ucm.fdi.tp.basecode.bgame.model.FiniteRectBoard;
+import es.ucm.fdi.tp.basecode.bgame.model.GameMove;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveBuffer;
+import es.ucm.fdi.tp.basecode.bgame.model.MoveIterator;
+import es.ucm.fdi.tp.basecode.bgame.model.Piece;
+import es.ucm.fdi.tp.basecode.bgame.model.ReadOnlyBoard;
+
+/**
+ * Checks the moves generated by {@link AtaxxRules} against a full scan of the
+ * board. Every empty cell next to a piece of the player must get exactly one
+ * clone, and every piece of the player at distance 2 of it a jump. It checks
+ * the same on a bitboard, a {@link FiniteRectBoard} and a {@link ReadOnlyBoard}
+ * of the latter, since each one is generated in a different way. It also
+ * checks that {@link AtaxxRules#moveIterator}, {@link AtaxxRules#hasValidMove}
+ * and {@link AtaxxRules#randomValidMove} agree with
+ * {@link AtaxxRules#validMoves}, and that the statistics count only while they
+ * are enabled. Run it as a Java application: it throws an
+ * {@link AssertionError} at the first difference.
+ *
+ * <p>
+ * Comprueba los movimientos que genera {@link AtaxxRules} frente a un
+ * recorrido completo del tablero. Cada casilla vacia junto a una ficha del
+ * jugador debe recibir exactamente una clonacion, y cada ficha del jugador a
+ * distancia 2 de ella un salto. Comprueba lo mismo en un bitboard, un
+ * {@link FiniteRectBoard} y un {@link ReadOnlyBoard} de este ultimo, ya que
+ * cada uno se genera de una forma distinta. Tambien comprueba que
+ * {@link AtaxxRules#moveIterator}, {@link AtaxxRules#hasValidMove} y
+ * {@link AtaxxRules#randomValidMove} coinciden con
+ * {@link AtaxxRules#validMoves}, y que las estadisticas solo cuentan mientras
+ * estan activadas. Se ejecuta como una aplicacion Java: lanza un
+ * {@link AssertionError} en la primera diferencia.
+ */
+public class AtaxxMovesTest {
+
+	private static final String[] IDS = { "X", "O", "R", "B" };
+	private static final int[] DIMS = { 5, 7, 9, 11 };
+
+	private static final int GAMES = 20;
+	private static final int MAX_MOVES = 200;
+
+	public static void main(String[] args) {
+		Random random = new Random(2);
+		int checked = 0;
+		for (int g = 0; g < GAMES; g++) {
+			int dim = DIMS[g % DIMS.length];
+			List<Piece> pieces = new ArrayList<Piece>();
+			for (int i = 0; i < 2 + g % 3; i++) {
+				pieces.add(new Piece(IDS[i]));
+			}
+			AtaxxRules rules = new AtaxxRules(dim, g % 2 == 0 ? 0 : 4);
+			Board bits = rules.createBoard(pieces);
+			FiniteRectBoard plain = new FiniteRectBoard(dim, dim);
+			for (int i = 0; i < dim; i++) {
+				for (int j = 0; j < dim; j++) {
+					plain.setPosition(i, j, bits.getPosition(i, j));
+				}
+			}
+			Board[] boards = { bits, plain, new ReadOnlyBoard(plain) };
+
+			Piece turn = rules.initialPlayer(bits, pieces);
+			for (int m = 0; m < MAX_MOVES && turn != null; m++) {
+				for (Piece p : pieces) {
+					for (Board board : boards) {
+						check(rules, board, pieces, p);
+						checked++;
+					}
+				}
+				List<GameMove> valid = rules.validMoves(bits, pieces, turn);
+				if (valid.isEmpty()) {
+					break;
+				}
+				GameMove move = valid.get(random.nextInt(valid.size()));
+				move.execute(bits, pieces);
+				move.execute(plain, pieces);
+				turn = rules.nextPlayer(bits, pieces, turn);
+			}
+		}
+		checkStatistics();
+		System.out.println("OK: " + checked + " move generations checked");
+	}
+
+	/**
+	 * Checks the moves of {@code turn} on {@code board}.
+	 * <p>
+	 * Comprueba los movimientos de {@code turn} en {@code board}.
+	 */
+	private static void check(AtaxxRules rules, Board board, List<Piece> pieces, Piece turn) {
+		int rows = board.getRows();
+		int cols = board.getCols();
+		Set<Integer> clones = new HashSet<Integer>();
+		Set<Integer> jumps = new HashSet<Integer>();
+		int merged = 0;
+		for (int to = 0; to < rows * cols; to++) {
+			if (board.getPosition(to / cols, to % cols) != null) {
+				continue;
+			}
+			int sources = 0;
+			for (int i = Math.max(0, to / cols - 2); i <= Math.min(rows - 1, to / cols + 2); i++) {
+				for (int j = Math.max(0, to % cols - 2); j <= Math.min(cols - 1, to % cols + 2); j++) {
+					int d = Math.max(Math.abs(i - to / cols), Math.abs(j - to % cols));
+					if (board.getPosition(i, j) != turn) {
+						continue;
+					}
+					if (d == 1) {
+						sources++;
+					} else if (d == 2) {
+						jumps.add(MoveBuffer.encode(i * cols + j, to));
+					}
+				}
+			}
+			if (sources > 0) {
+				clones.add(to);
+				merged += sources - 1;
+			}
+		}
+
+		MoveBuffer buffer = new MoveBuffer();
+		rules.setStatisticsEnabled(true);
+		rules.resetStatistics();
+		rules.validMoves(board, pieces, turn, buffer);
+		rules.setStatisticsEnabled(false);
+		if (rules.getBranchingFactor() != buffer.size() || rules.getMergedClonesPerCall() != merged) {
+			throw new AssertionError("The statistics count " + rules.getBranchingFactor() + " moves and "
+					+ rules.getMergedClonesPerCall() + " merged clones, should be " + buffer.size() + " and "
+					+ merged);
+		}
+		Set<Integer> seenClones = new HashSet<Integer>();
+		Set<Integer> seenJumps = new HashSet<Integer>();
+		for (int i = 0; i < buffer.size(); i++) {
+			int move = buffer.get(i);
+			int from = MoveBuffer.from(move);
+			int to = MoveBuffer.to(move);
+			int d = Math.max(Math.abs(from / cols - to / cols), Math.abs(from % cols - to % cols));
+			if (board.getPosition(from / cols, from % cols) != turn
+					|| board.getPosition(to / cols, to % cols) != null || d < 1 || d > 2) {
+				throw new AssertionError("Invalid move " + rules.decodeMove(board, turn, move) + " on\n" + board);
+			}
+			if (d == 1 ? !seenClones.add(to) : !seenJumps.add(move)) {
+				throw new AssertionError("Repeated move " + rules.decodeMove(board, turn, move) + " on\n" + board);
+			}
+		}
+		if (!seenClones.equals(clones) || !seenJumps.equals(jumps)) {
+			throw new AssertionError("The moves of " + turn + " are " + seenClones.size() + " clones and "
+					+ seenJumps.size() + " jumps, should be " + clones.size() + " and " + jumps.size() + " on\n"
+					+ board);
+		}
+
+		List<GameMove> list = rules.validMoves(board, pieces, turn);
+		List<String> decoded = new ArrayList<String>();
+		for (int i = 0; i < buffer.size(); i++) {
+			decoded.add(rules.decodeMove(board, turn, buffer.get(i)).toString());
+		}
+		List<String> listed = new ArrayList<String>();
+		for (GameMove m : list) {
+			listed.add(m.toString());
+		}
+		List<String> iterated = new ArrayList<String>();
+		MoveIterator it = rules.moveIterator(board, pieces, turn);
+		while (it.hasNext()) {
+			iterated.add(it.next().toString());
+		}
+		if (!listed.equals(decoded) || !new HashSet<String>(iterated).equals(new HashSet<String>(listed))
+				|| iterated.size() != listed.size()) {
+			throw new AssertionError("The move list, buffer and iterator of " + turn + " differ on\n" + board);
+		}
+		if (rules.hasValidMove(board, pieces, turn) == list.isEmpty()) {
+			throw new AssertionError("hasValidMove is wrong for " + turn + " on\n" + board);
+		}
+		GameMove sample = rules.randomValidMove(board, pieces, turn);
+		if ((sample == null) != list.isEmpty() || (sample != null && !listed.contains(sample.toString()))) {
+			throw new AssertionError("randomValidMove returned " + sample + " for " + turn + " on\n" + board);
+		}
+	}
+
+	/**
+	 * Checks that the statistics are disabled by default, and that they do
+	 * not count while disabled.
+	 *
+	 * <p>
+	 * Comprueba que las estadisticas estan desactivadas por defecto, y que no
+	 * cuentan mientras estan desactivadas.
+	 */
+	private static void checkStatistics() {
+		List<Piece> pieces = new ArrayList<Piece>();
+		pieces.add(new Piece(IDS[0]));
+		pieces.add(new Piece(IDS[1]));
+		AtaxxRules rules = new AtaxxRules(7, 0);
+		Board board = rules.createBoard(pieces);
+		rules.validMoves(board, pieces, pieces.get(0));
+		if (rules.getBranchingFactor() != 0) {
+			throw new AssertionError("The statistics are enabled by default");
+		}
+		rules.setStatisticsEnabled(true);
+		rules.validMoves(board, pieces, pieces.get(0));
+		double counted = rules.getBranchingFactor();
+		rules.setStatisticsEnabled(false);
+		rules.validMoves(board, pieces, pieces.get(1));
+		if (counted == 0 || rules.getBranchingFactor() != counted) {
+			throw new AssertionError("The statistics count while disabled");
+		}
+	}
+
+}